@@ -0,0 +1,81 @@
+package com.test.drawableloader
+
+import android.content.res.Resources
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.os.SystemClock
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.test.drawableloader.decoder.ResourceDecoder
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures the time saved per decode by opening a resource once for both bounds and pixel passes,
+ * against decoding it twice with [BitmapFactory.decodeResource]. Results are logged with tag "DecodeBenchmark".
+ * Timings depend on the device and aren't asserted, only both paths decoding the same size is.
+ */
+@RunWith(AndroidJUnit4::class)
+class ResourceDecoderBenchmark {
+    private val resources: Resources = InstrumentationRegistry.getInstrumentation().context.resources
+    private val resId = com.test.drawableloader.test.R.drawable.benchmark_image
+
+    @Test
+    fun measureSinglePassSaving() {
+        val decoder = ResourceDecoder(null)
+
+        // Warm up both paths so class loading and resource table lookups aren't measured
+        repeat(WARM_UP) {
+            decodeTwice().recycle()
+            decoder.decodeMeasured(resources, resId, REQ_SIZE, REQ_SIZE, BitmapFactory.Options())!!.recycle()
+        }
+
+        var twoOpensNanos = 0L
+        var singlePassNanos = 0L
+        repeat(ITERATIONS) {
+            var start = SystemClock.elapsedRealtimeNanos()
+            val twice = decodeTwice()
+            twoOpensNanos += SystemClock.elapsedRealtimeNanos() - start
+
+            start = SystemClock.elapsedRealtimeNanos()
+            val once = decoder.decodeMeasured(resources, resId, REQ_SIZE, REQ_SIZE, BitmapFactory.Options())
+            singlePassNanos += SystemClock.elapsedRealtimeNanos() - start
+
+            assertNotNull(once)
+            assertEquals(twice.width, once!!.width)
+            assertEquals(twice.height, once.height)
+            twice.recycle()
+            once.recycle()
+        }
+
+        val twoOpensMicros = twoOpensNanos / ITERATIONS / 1000
+        val singlePassMicros = singlePassNanos / ITERATIONS / 1000
+        Log.i(
+            "DecodeBenchmark",
+            "two opens: ${twoOpensMicros}us/decode, single pass: ${singlePassMicros}us/decode, " +
+                    "saved: ${twoOpensMicros - singlePassMicros}us/decode"
+        )
+    }
+
+    /**
+     * Measured decode as done before: bounds and pixels each open the resource.
+     */
+    private fun decodeTwice(): Bitmap {
+        val options = BitmapFactory.Options()
+        options.inJustDecodeBounds = true
+        BitmapFactory.decodeResource(resources, resId, options)
+        options.inSampleSize = DrawableLoader.calculateInSampleSize(options, REQ_SIZE, REQ_SIZE)
+        options.inJustDecodeBounds = false
+        options.inMutable = true
+        return BitmapFactory.decodeResource(resources, resId, options)
+    }
+
+    companion object {
+        private const val REQ_SIZE = 200
+        private const val WARM_UP = 5
+        private const val ITERATIONS = 50
+    }
+}
@@ -2,14 +2,67 @@
 
 package com.test.drawableloader
 
+import android.content.ContentResolver
 import android.content.Context
 import android.content.res.Resources
 import android.graphics.Bitmap
 import android.graphics.BitmapFactory
+import android.net.Uri
+import android.widget.ImageView
 import com.test.drawableloader.asynctasks.AsyncDecodeResForced
 import com.test.drawableloader.asynctasks.AsyncDecodeResMeasured
+import com.test.drawableloader.asynctasks.AsyncDecodeSource
+import com.test.drawableloader.asynctasks.BatchDecodeTask
+import com.test.drawableloader.asynctasks.LoaderExecutors
+import com.test.drawableloader.asynctasks.PrioritizedRunnable
+import com.test.drawableloader.asynctasks.RequestGroup
+import com.test.drawableloader.cacheutils.BitmapPool
+import com.test.drawableloader.cacheutils.DiskCacheFormat
+import com.test.drawableloader.cacheutils.HttpDiskCache
+import com.test.drawableloader.decoder.ConfigPolicy
+import com.test.drawableloader.decoder.HeapBudget
+import com.test.drawableloader.decoder.ResourceDecoder
+import com.test.drawableloader.decoder.ScaleMode
+import com.test.drawableloader.listeners.OnBatchItemRendered
+import com.test.drawableloader.listeners.OnBatchRendered
 import com.test.drawableloader.listeners.OnBitmapRenderFailed
 import com.test.drawableloader.listeners.OnBitmapRendered
+import com.test.drawableloader.region.TiledImageLoader
+import com.test.drawableloader.request.BatchItem
+import com.test.drawableloader.request.LoadState
+import com.test.drawableloader.request.Priority
+import com.test.drawableloader.request.RequestHandle
+import com.test.drawableloader.request.RequestKey
+import com.test.drawableloader.request.RequestRegistry
+import com.test.drawableloader.source.AssetSource
+import com.test.drawableloader.source.ByteArraySource
+import com.test.drawableloader.source.ByteBufferSource
+import com.test.drawableloader.source.ContentUriSource
+import com.test.drawableloader.source.DataSource
+import com.test.drawableloader.source.Fetcher
+import com.test.drawableloader.source.FileSource
+import com.test.drawableloader.source.HttpFetcher
+import com.test.drawableloader.source.ResourceSource
+import com.test.drawableloader.target.ImageViewTarget
+import com.test.drawableloader.transform.Transformation
+import com.test.drawableloader.transform.Transformations
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.async
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.selects.select
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.nio.ByteBuffer
+import java.util.concurrent.CopyOnWriteArrayList
+import kotlin.coroutines.coroutineContext
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
 
 /**
  *
@@ -50,17 +103,103 @@ object DrawableLoader {
      */
     private var cache: DrawableLoaderBitmapCache? = null
 
+    /**
+     * Previews of progressive requests are decoded for required measures divided by this value.
+     */
+    private const val PREVIEW_DIVISOR = 8
+
+    /**
+     * Path of `file://` URIs pointing to app assets.
+     */
+    private const val ASSET_PATH_PREFIX = "/android_asset/"
+
+    /**
+     * Subdirectory of the cache dir HTTP responses are stored in, apart from decoded Bitmaps.
+     */
+    private const val HTTP_CACHE_SUBDIR = "http"
+
+    /**
+     * Maximum size of the stored HTTP responses.
+     */
+    private const val HTTP_CACHE_SIZE = 1024L * 1024 * 50 // 50MB
+
+    /**
+     * Registry merging concurrent async requests for the same [RequestKey] into a single decode.
+     * Its counters show how many decodes were started and how many were saved.
+     */
+    @JvmStatic
+    val requestRegistry = RequestRegistry()
+
+    /**
+     * How the [Bitmap.Config] of decodes is chosen. [ConfigPolicy.DEFAULT] decodes everything as ARGB_8888,
+     * [ConfigPolicy.AUTO] decodes opaque images as RGB_565. Savings are reported by the cache.
+     */
+    @JvmStatic
+    var configPolicy: ConfigPolicy = ConfigPolicy.DEFAULT
+        set(value) {
+            field = value
+            cache?.configPolicy = value
+        }
+
+    /**
+     * How decoded Bitmaps are encoded on disk cache. [DiskCacheFormat.SOURCE] keeps the format of the source image,
+     * [DiskCacheFormat.COMPACT] stores opaque Bitmaps as JPEG, for smaller and faster writes.
+     */
+    @JvmStatic
+    var diskCacheFormat: DiskCacheFormat = DiskCacheFormat.SOURCE
+        set(value) {
+            field = value
+            cache?.diskCacheFormat = value
+        }
+
+    /**
+     * Dispatcher [loadBitmap] looks up cache and decodes on. Null, the default, runs suspend loads on the loader's own
+     * pools, queued with their priority and merged with other requests for the same Bitmap.
+     */
+    @JvmStatic
+    var coroutineDispatcher: CoroutineDispatcher? = null
+
+    /**
+     * Fetchers registered with [registerFetcher], tried before the built-in ones, newest first.
+     */
+    private val fetchers = CopyOnWriteArrayList<Fetcher>()
+
+    /**
+     * Application context, to read assets and `content://` URIs.
+     */
+    private var appContext: Context? = null
+
+    /**
+     * Fetcher of `http` and `https` images, null until [initLoader] is called.
+     */
+    private var httpFetcher: HttpFetcher? = null
 
-    fun initLoader(context: Context){
+    /**
+     * Initializes the loader: builds its thread pools, its memory and disk caches, and the heap budget decodes are checked against.
+     *
+     * @param context         [Context] from where lib is being called. This is used to get application's cache dir for disk cache.
+     * @param executionConfig Sizes of the disk I/O and decode thread pools. Defaults are calculated from the device's core count.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun initLoader(context: Context, executionConfig: ExecutionConfig = ExecutionConfig()) {
+        appContext = context.applicationContext ?: context
+        LoaderExecutors.setDefault(LoaderExecutors(executionConfig))
+        HeapBudget.setDefault(HeapBudget(context.applicationContext ?: context))
         cache = DrawableLoaderBitmapCache()
+        cache!!.configPolicy = configPolicy
+        cache!!.diskCacheFormat = diskCacheFormat
         initDiskCache(context)
+        httpFetcher = HttpFetcher(
+            HttpDiskCache(DrawableLoaderBitmapCache.getDiskCacheDir(context, HTTP_CACHE_SUBDIR), HTTP_CACHE_SIZE)
+        )
     }
 
     /**
      *
      *
      * Decodes a sampled [Bitmap] object from a given app resource, using the specified measures to calculate image downsample if needed.
-     * Downsample rate is auto-increased if bitmap rendering causes an [OutOfMemoryError].
+     * Downsample rate is auto-increased if the decode wouldn't fit in available memory, avoiding an [OutOfMemoryError].
      *
      *
      *
@@ -79,45 +218,90 @@ object DrawableLoader {
         resId: Int,
         reqWidth: Int,
         reqHeight: Int
+    ): Bitmap? {
+        return decodeBitmapFromResource(res, resId, reqWidth, reqHeight, ScaleMode.NONE)
+    }
+
+    /**
+     * Decodes a [Bitmap] object from a given app resource, sized against the specified measures as the [ScaleMode] says.
+     * Downsample rate is auto-increased if the decode wouldn't fit in available memory, avoiding an [OutOfMemoryError].
+     *
+     * **Important Note:** This method is synchronous and can cause UI Thread to freeze,
+     * use [.decodeBitmapFromResource] instead for an asynchronous solution.
+     *
+     * @param res       Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId     App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth  Required width of the view where the Bitmap should fit.
+     * @param reqHeight Required height of the view where the Bitmap should fit.
+     * @param scaleMode How the Bitmap is sized against required width and height: power of two downsample only, fit inside, center crop or exact size.
+     * @return Decoded [Bitmap] object, ready to use on any View or code.
+     */
+    fun decodeBitmapFromResource(
+        res: Resources?,
+        resId: Int,
+        reqWidth: Int,
+        reqHeight: Int,
+        scaleMode: ScaleMode
+    ): Bitmap? {
+        return decodeBitmapFromResource(res, resId, reqWidth, reqHeight, scaleMode, emptyList())
+    }
+
+    /**
+     * Decodes a sampled [Bitmap] object from a given app resource, and applies the given [Transformation]s to it.
+     * Transformed Bitmap is cached, so the same request is served from cache without decoding nor transforming again.
+     *
+     * **Important Note:** This method is synchronous and can cause UI Thread to freeze,
+     * use [.decodeBitmapFromResource] instead for an asynchronous solution.
+     *
+     * @param res             Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId           App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth        Required width of the view where the Bitmap should fit.
+     * @param reqHeight       Required height of the view where the Bitmap should fit.
+     * @param transformations [Transformation]s applied to the decoded Bitmap, in order.
+     * @return Decoded and transformed [Bitmap] object, ready to use on any View or code.
+     */
+    fun decodeBitmapFromResource(
+        res: Resources?,
+        resId: Int,
+        reqWidth: Int,
+        reqHeight: Int,
+        transformations: List<Transformation>
+    ): Bitmap? {
+        return decodeBitmapFromResource(res, resId, reqWidth, reqHeight, ScaleMode.NONE, transformations)
+    }
+
+    private fun decodeBitmapFromResource(
+        res: Resources?,
+        resId: Int,
+        reqWidth: Int,
+        reqHeight: Int,
+        scaleMode: ScaleMode,
+        transformations: List<Transformation>
     ): Bitmap? {
         var decodedBitmap: Bitmap? = null
-        var outOfMemoryError = true
+        val requestKey = RequestKey.forResource(
+            res, resId, reqWidth, reqHeight,
+            scaleMode = scaleMode, configPolicy = configPolicy, transformations = transformations
+        )
 
         // Search bitmap on cache first if available
         if (cache != null) {
-            decodedBitmap = cache!!.getBitmapFromCache(resId.toString())
+            decodedBitmap = cache!!.getBitmapFromCache(requestKey)
         }
 
         //If bitmap not found on cache, render it
         if (decodedBitmap == null) {
-            // First decode with inJustDecodeBounds=true (No memory allocation) to check dimensions
             val options = BitmapFactory.Options()
-            options.inJustDecodeBounds = true
-            BitmapFactory.decodeResource(res, resId, options)
-
-            // Calculate inSampleSize
-            options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight)
-
-            // Decode bitmap with inSampleSize set
-            options.inJustDecodeBounds = false
-            while (outOfMemoryError) {
-                try {
-                    decodedBitmap = BitmapFactory.decodeResource(res, resId, options)
+            decodedBitmap = decoder().decodeMeasured(res, resId, reqWidth, reqHeight, scaleMode, options)
+            var mimeType = options.outMimeType
+            if (decodedBitmap != null && transformations.isNotEmpty()) {
+                decodedBitmap = Transformations.apply(transformations, cache?.bitmapPool, decodedBitmap, reqWidth, reqHeight)
+                mimeType = Transformations.outMimeType(decodedBitmap, mimeType)
+            }
 
-                    //Add bitmap to cache if bitmap was successfully rendered and cache is available
-                    if (decodedBitmap != null && cache != null) {
-                        cache!!.put(resId.toString(), decodedBitmap, options.outMimeType, 100)
-                    }
-                    outOfMemoryError = false
-                } catch (e: OutOfMemoryError) {
-                    //If inSampleSize still not enough to avoid out of memory error, increase it
-                    options.inSampleSize *= 2
-                    outOfMemoryError = true
-                }
-                if (options.inSampleSize >= 20) {
-                    //Break loop in case of too many loops (something else is happening)
-                    outOfMemoryError = false
-                }
+            //Add bitmap to cache if bitmap was successfully rendered and cache is available
+            if (decodedBitmap != null && cache != null) {
+                cache!!.put(requestKey, decodedBitmap, mimeType, 100)
             }
         }
         return decodedBitmap
@@ -156,30 +340,124 @@ object DrawableLoader {
     @JvmOverloads
     fun decodeBitmapFromResource(res: Resources?, resId: Int, inSampleSize: Int = 1): Bitmap? {
         var decodedBitmap: Bitmap? = null
+        val requestKey = RequestKey.forResourceSampled(res, resId, inSampleSize, configPolicy = configPolicy)
 
         // Search bitmap on cache first if available
         if (cache != null) {
-            decodedBitmap = cache!!.getBitmapFromCache(resId.toString())
+            decodedBitmap = cache!!.getBitmapFromCache(requestKey)
         }
 
         //If bitmap not found on cache, render it
         if (decodedBitmap == null) {
             // Decode bitmap with inSampleSize set
             val options = BitmapFactory.Options()
-            options.inSampleSize = inSampleSize
-            decodedBitmap = BitmapFactory.decodeResource(res, resId, options)
+            decodedBitmap = decoder().decodeSampled(res, resId, inSampleSize, options)
+
+            //Add bitmap to cache if bitmap was successfully rendered and cache is available
+            if (decodedBitmap != null && cache != null) {
+                cache!!.put(requestKey, decodedBitmap, options.outMimeType, 100)
+            }
+        }
+        return decodedBitmap
+    }
+    /**
+     * Decodes a sampled [Bitmap] object from any [DataSource], such as a file, an asset, a `content://` URI or bytes in
+     * memory, using the specified measures to calculate image downsample if needed. Sources are sampled, budgeted and
+     * cached the same way app resources are.
+     *
+     * **Important Note:** This method is synchronous and can cause UI Thread to freeze,
+     * use [.decodeBitmapFromSource] instead for an asynchronous solution.
+     *
+     * @param source    Source of the encoded image. See [sourceOf] to get one from a file, an URI or bytes.
+     * @param reqWidth  Required width of the view where the Bitmap should fit.
+     * @param reqHeight Required height of the view where the Bitmap should fit.
+     * @return Decoded [Bitmap] object, ready to use on any View or code. Null if source couldn't be decoded.
+     */
+    fun decodeBitmapFromSource(source: DataSource, reqWidth: Int, reqHeight: Int): Bitmap? {
+        var decodedBitmap: Bitmap? = null
+        val requestKey = RequestKey.forSource(source, reqWidth, reqHeight, configPolicy = configPolicy)
+
+        // Search bitmap on cache first if available
+        if (cache != null) {
+            decodedBitmap = cache!!.getBitmapFromCache(requestKey)
+        }
+
+        //If bitmap not found on cache, render it
+        if (decodedBitmap == null) {
+            val options = BitmapFactory.Options()
+            decodedBitmap = decoder().decodeMeasured(source, reqWidth, reqHeight, ScaleMode.NONE, options, null)
 
             //Add bitmap to cache if bitmap was successfully rendered and cache is available
             if (decodedBitmap != null && cache != null) {
-                cache!!.put(resId.toString(), decodedBitmap, options.outMimeType, 100)
+                cache!!.put(requestKey, decodedBitmap, options.outMimeType, 100)
             }
         }
         return decodedBitmap
     }
+
+    /**
+     * Registers a [Fetcher], so requests made with [decodeBitmap] for the models it handles can be decoded.
+     * Registered fetchers are tried before the built-in ones, the last registered first.
+     *
+     * @param fetcher Fetcher to register.
+     */
+    @JvmStatic
+    fun registerFetcher(fetcher: Fetcher) {
+        fetchers.add(0, fetcher)
+    }
+
+    /**
+     * Gets the [DataSource] of a model, from registered fetchers first, then from the built-in ones: [DataSource]s,
+     * [File]s, byte arrays, [ByteBuffer]s, and [Uri]s with `file`, `content` or `android.resource` scheme.
+     * Assets are read through `file:///android_asset/` URIs. Once [initLoader] is called, `http` and `https` [Uri]s,
+     * [java.net.URL]s and strings are downloaded through [httpDiskCache].
+     *
+     * @param model Model to decode, e.g. a [File] or a [Uri].
+     * @return [DataSource] reading the model.
+     * @throws IllegalArgumentException If no fetcher handles the model.
+     * @throws IllegalStateException    If the model needs a [Context] and [initLoader] wasn't called.
+     */
+    @JvmStatic
+    fun sourceOf(model: Any): DataSource {
+        for (fetcher in fetchers) {
+            val source = fetcher.fetch(model)
+            if (source != null) {
+                return source
+            }
+        }
+        httpFetcher?.fetch(model)?.let { return it }
+        return when (model) {
+            is DataSource -> model
+            is File -> FileSource(model)
+            is ByteArray -> ByteArraySource(model)
+            is ByteBuffer -> ByteBufferSource(model)
+            is Uri -> sourceOfUri(model)
+            else -> null
+        } ?: throw IllegalArgumentException("No fetcher for model $model")
+    }
+
+    private fun sourceOfUri(uri: Uri): DataSource? {
+        val path = uri.path
+        if (uri.scheme == ContentResolver.SCHEME_FILE && path != null) {
+            if (!path.startsWith(ASSET_PATH_PREFIX)) {
+                return FileSource(File(path))
+            }
+        } else if (uri.scheme != ContentResolver.SCHEME_CONTENT && uri.scheme != ContentResolver.SCHEME_ANDROID_RESOURCE) {
+            return null
+        }
+
+        val context = appContext ?: throw IllegalStateException("initLoader must be called to load $uri")
+        return if (uri.scheme == ContentResolver.SCHEME_FILE) {
+            AssetSource(context.assets, path!!.substring(ASSET_PATH_PREFIX.length))
+        } else {
+            ContentUriSource(context.contentResolver, uri)
+        }
+    }
+
     //region Rendering Async methods
     /**
      * Decodes a sampled [Bitmap] object from a given app resource asynchronously, using the specified measures to calculate image downsample if needed.
-     * Downsample rate is auto-increased if bitmap rendering causes an [OutOfMemoryError].
+     * Downsample rate is auto-increased if the decode wouldn't fit in available memory, avoiding an [OutOfMemoryError].
      *
      * @param res                  Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
      * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
@@ -187,67 +465,602 @@ object DrawableLoader {
      * @param reqHeight            Required height of the view where the Bitmap should fit. This parameter doesn't affect image aspect ratio, it's only used to calculate the inSampleSize of the image in case a downsample is required.
      * @param onBitmapRendered     Overwrite this callback to retrieve [Bitmap] object rendered once it's ready and perform any other actions needed.
      * @param onBitmapRenderFailed Overwrite this callback to perform actions when [Bitmap] object fails to render. Can be null.
+     * @return [RequestHandle] to cancel the request, e.g. when the view it was meant for is recycled.
+     */
+    fun decodeBitmapFromResource(
+        res: Resources?, resId: Int,
+        reqWidth: Int, reqHeight: Int,
+        onBitmapRendered: OnBitmapRendered?,
+        onBitmapRenderFailed: OnBitmapRenderFailed?
+    ): RequestHandle {
+        return decodeBitmapFromResource(
+            res, resId, reqWidth, reqHeight, ScaleMode.NONE,
+            onBitmapRendered, onBitmapRenderFailed
+        )
+    }
+
+    /**
+     * Decodes a [Bitmap] object from a given app resource asynchronously, sized against the specified measures as the [ScaleMode] says.
+     * Downsample rate is auto-increased if the decode wouldn't fit in available memory, avoiding an [OutOfMemoryError].
+     *
+     * @param res                  Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth             Required width of the view where the Bitmap should fit.
+     * @param reqHeight            Required height of the view where the Bitmap should fit.
+     * @param scaleMode            How the Bitmap is sized against required width and height: power of two downsample only, fit inside, center crop or exact size.
+     * @param onBitmapRendered     Overwrite this callback to retrieve [Bitmap] object rendered once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed Overwrite this callback to perform actions when [Bitmap] object fails to render. Can be null.
+     * @return [RequestHandle] to cancel the request, e.g. when the view it was meant for is recycled.
+     */
+    fun decodeBitmapFromResource(
+        res: Resources?, resId: Int,
+        reqWidth: Int, reqHeight: Int,
+        scaleMode: ScaleMode,
+        onBitmapRendered: OnBitmapRendered?,
+        onBitmapRenderFailed: OnBitmapRenderFailed?
+    ): RequestHandle {
+        return decodeBitmapFromResource(
+            res, resId, reqWidth, reqHeight, scaleMode, Priority.NORMAL, null,
+            onBitmapRendered, onBitmapRenderFailed
+        )
+    }
+
+    /**
+     * Decodes a sampled [Bitmap] object from a given app resource asynchronously, queued with the given [Priority].
+     * Within a priority, the newest requests are served first, so after a fast scroll the rows on screen don't wait
+     * behind rows already scrolled away. Use [Priority.IMMEDIATE] for images blocking what's on screen.
+     *
+     * @param res                  Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth             Required width of the view where the Bitmap should fit.
+     * @param reqHeight            Required height of the view where the Bitmap should fit.
+     * @param priority             [Priority] the request is queued with. It can be raised later through [RequestHandle.bumpPriority].
+     * @param onBitmapRendered     Overwrite this callback to retrieve [Bitmap] object rendered once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed Overwrite this callback to perform actions when [Bitmap] object fails to render. Can be null.
+     * @return [RequestHandle] to cancel the request or raise its priority.
+     */
+    fun decodeBitmapFromResource(
+        res: Resources?, resId: Int,
+        reqWidth: Int, reqHeight: Int,
+        priority: Priority,
+        onBitmapRendered: OnBitmapRendered?,
+        onBitmapRenderFailed: OnBitmapRenderFailed?
+    ): RequestHandle {
+        return decodeBitmapFromResource(
+            res, resId, reqWidth, reqHeight, ScaleMode.NONE, priority, null,
+            onBitmapRendered, onBitmapRenderFailed
+        )
+    }
+
+    /**
+     * Decodes a sampled [Bitmap] object from a given app resource asynchronously, as part of a [RequestGroup]: its work
+     * is held while the group is paused, e.g. while the list it's shown in is flinging, and dropped once the group is
+     * destroyed, e.g. along with the screen it's shown in.
+     *
+     * @param res                  Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth             Required width of the view where the Bitmap should fit.
+     * @param reqHeight            Required height of the view where the Bitmap should fit.
+     * @param group                [RequestGroup] the request belongs to.
+     * @param onBitmapRendered     Overwrite this callback to retrieve [Bitmap] object rendered once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed Overwrite this callback to perform actions when [Bitmap] object fails to render. Can be null.
+     * @return [RequestHandle] to cancel the request, e.g. when the view it was meant for is recycled.
+     */
+    fun decodeBitmapFromResource(
+        res: Resources?, resId: Int,
+        reqWidth: Int, reqHeight: Int,
+        group: RequestGroup,
+        onBitmapRendered: OnBitmapRendered?,
+        onBitmapRenderFailed: OnBitmapRenderFailed?
+    ): RequestHandle {
+        return decodeBitmapFromResource(
+            res, resId, reqWidth, reqHeight, ScaleMode.NONE, Priority.NORMAL, group,
+            onBitmapRendered, onBitmapRenderFailed
+        )
+    }
+
+    /**
+     * Decodes a sampled [Bitmap] object from a given app resource asynchronously, and applies the given
+     * [Transformation]s to it on the decode pool. Transformed Bitmap is cached in memory and on disk under a key
+     * including every transformation, so binding the same request again is a cache hit, e.g. when a list row is
+     * scrolled back into view.
+     *
+     * @param res                  Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth             Required width of the view where the Bitmap should fit.
+     * @param reqHeight            Required height of the view where the Bitmap should fit.
+     * @param transformations      [Transformation]s applied to the decoded Bitmap, in order, such as [com.test.drawableloader.transform.CenterCrop] or [com.test.drawableloader.transform.RoundedCorners].
+     * @param onBitmapRendered     Overwrite this callback to retrieve [Bitmap] object rendered once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed Overwrite this callback to perform actions when [Bitmap] object fails to render. Can be null.
+     * @return [RequestHandle] to cancel the request, e.g. when the view it was meant for is recycled.
      */
     fun decodeBitmapFromResource(
         res: Resources?, resId: Int,
         reqWidth: Int, reqHeight: Int,
+        transformations: List<Transformation>,
+        onBitmapRendered: OnBitmapRendered?,
+        onBitmapRenderFailed: OnBitmapRenderFailed?
+    ): RequestHandle {
+        return decodeBitmapFromResource(
+            res, resId, reqWidth, reqHeight, ScaleMode.NONE, Priority.NORMAL, null,
+            onBitmapRendered, onBitmapRenderFailed, transformations
+        )
+    }
+
+    /**
+     * Decodes a [Bitmap] object progressively from a given app resource, asynchronously: a heavily downsampled preview
+     * is delivered first, from cache or decoded at a large inSampleSize, then the Bitmap sized for the required
+     * measures replaces it. Previews are queued with [Priority.HIGH], so previews of every visible row are served
+     * before any full decode.
+     *
+     * @param res                  Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth             Required width of the view where the Bitmap should fit.
+     * @param reqHeight            Required height of the view where the Bitmap should fit.
+     * @param onPreviewRendered    Overwrite this callback to retrieve the preview [Bitmap]. Not called if the full Bitmap is ready first. Can be null.
+     * @param onBitmapRendered     Overwrite this callback to retrieve the full [Bitmap] object once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed Overwrite this callback to perform actions when the full [Bitmap] object fails to render. Can be null.
+     * @return [RequestHandle] to cancel both stages of the request.
+     */
+    fun decodeBitmapFromResourceProgressive(
+        res: Resources?, resId: Int,
+        reqWidth: Int, reqHeight: Int,
+        onPreviewRendered: OnBitmapRendered?,
+        onBitmapRendered: OnBitmapRendered?,
+        onBitmapRenderFailed: OnBitmapRenderFailed?
+    ): RequestHandle {
+        var previewHandle: RequestHandle? = null
+        val fullHandle = decodeBitmapFromResource(
+            res, resId, reqWidth, reqHeight, ScaleMode.NONE, Priority.NORMAL, null,
+            object : OnBitmapRendered {
+                override fun onBitmapRendered(bitmap: Bitmap?) {
+                    // A late preview must not replace the full Bitmap
+                    previewHandle?.cancel()
+                    onBitmapRendered?.onBitmapRendered(bitmap)
+                }
+            },
+            onBitmapRenderFailed
+        )
+
+        val preview = decodeBitmapFromResource(
+            res, resId,
+            (reqWidth / PREVIEW_DIVISOR).coerceAtLeast(1), (reqHeight / PREVIEW_DIVISOR).coerceAtLeast(1),
+            ScaleMode.NONE, Priority.HIGH, null, onPreviewRendered, null
+        )
+        previewHandle = preview
+        fullHandle.link(preview)
+        return fullHandle
+    }
+
+    /**
+     * Loads a [Bitmap] from a given app resource, suspending until it's ready. A Bitmap found in memory cache is
+     * returned right away, without suspending nor switching threads. Otherwise the request runs on
+     * [coroutineDispatcher], or on the loader's pools if it's null.
+     *
+     * Cancelling the calling coroutine cancels the request: queued work is removed before it starts, and a running
+     * decode gives up between its bounds and pixel passes.
+     *
+     * @param res       Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId     App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth  Required width of the view where the Bitmap should fit.
+     * @param reqHeight Required height of the view where the Bitmap should fit.
+     * @param scaleMode How the Bitmap is sized against required width and height: power of two downsample only, fit inside, center crop or exact size.
+     * @param priority  Priority the request is queued with on the loader's pools.
+     * @param transformations [Transformation]s applied to the decoded Bitmap, in order.
+     * @return Loaded [Bitmap].
+     * @throws Exception If the Bitmap fails to render.
+     */
+    suspend fun loadBitmap(
+        res: Resources?, resId: Int,
+        reqWidth: Int, reqHeight: Int,
+        scaleMode: ScaleMode = ScaleMode.NONE,
+        priority: Priority = Priority.NORMAL,
+        transformations: List<Transformation> = emptyList()
+    ): Bitmap {
+        val requestKey = RequestKey.forResource(
+            res, resId, reqWidth, reqHeight,
+            scaleMode = scaleMode, configPolicy = configPolicy, transformations = transformations
+        )
+        val cached = cache?.getBitmapFromMemCache(requestKey.cacheKey)
+        if (cached != null) {
+            return cached
+        }
+
+        val dispatcher = coroutineDispatcher
+        if (dispatcher != null) {
+            return withContext(dispatcher) {
+                decodeCancellable(res, resId, reqWidth, reqHeight, scaleMode, transformations, requestKey)
+            }
+        }
+        return suspendCancellableCoroutine { continuation ->
+            val handle = decodeBitmapFromResource(
+                res, resId, reqWidth, reqHeight, scaleMode, priority, null,
+                object : OnBitmapRendered {
+                    override fun onBitmapRendered(bitmap: Bitmap?) {
+                        if (bitmap != null) {
+                            continuation.resume(bitmap)
+                        } else {
+                            continuation.resumeWithException(IllegalArgumentException("Unable to decode resource $resId"))
+                        }
+                    }
+                },
+                object : OnBitmapRenderFailed {
+                    override fun onBitmapRenderFailed(e: Exception?) {
+                        continuation.resumeWithException(e ?: IllegalArgumentException("Unable to decode resource $resId"))
+                    }
+                },
+                transformations
+            )
+            continuation.invokeOnCancellation { handle.cancel() }
+        }
+    }
+
+    /**
+     * Loads a [Bitmap] from a given app resource progressively, as a [Flow] of [LoadState]s: [LoadState.Placeholder]
+     * first, then [LoadState.Preview] with a heavily downsampled preview if it's ready before the full Bitmap, and
+     * finally [LoadState.Complete]. A Bitmap found in memory cache is emitted as [LoadState.Complete] right away.
+     *
+     * Requests run as [loadBitmap] ones, and are cancelled when the collector is. The preview is sized, scaled and
+     * transformed the same way as the full Bitmap.
+     *
+     * @param res         Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId       App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth    Required width of the view where the Bitmap should fit.
+     * @param reqHeight   Required height of the view where the Bitmap should fit.
+     * @param placeholder Bitmap emitted as [LoadState.Placeholder]. Can be null.
+     * @param scaleMode   How the Bitmap is sized against required width and height: power of two downsample only, fit inside, center crop or exact size.
+     * @param priority    Priority the full Bitmap is queued with on the loader's pools. Previews are queued with [Priority.HIGH], or this priority if it's higher.
+     * @param transformations [Transformation]s applied to the preview and the full Bitmap, in order.
+     * @return [Flow] of the request states. It fails if the full Bitmap fails to render.
+     */
+    fun loadBitmapFlow(
+        res: Resources?, resId: Int,
+        reqWidth: Int, reqHeight: Int,
+        placeholder: Bitmap? = null,
+        scaleMode: ScaleMode = ScaleMode.NONE,
+        priority: Priority = Priority.NORMAL,
+        transformations: List<Transformation> = emptyList()
+    ): Flow<LoadState> = flow {
+        val requestKey = RequestKey.forResource(
+            res, resId, reqWidth, reqHeight,
+            scaleMode = scaleMode, configPolicy = configPolicy, transformations = transformations
+        )
+        val cached = cache?.getBitmapFromMemCache(requestKey.cacheKey)
+        if (cached != null) {
+            emit(LoadState.Complete(cached))
+            return@flow
+        }
+
+        emit(LoadState.Placeholder(placeholder))
+        coroutineScope {
+            val full = async { loadBitmap(res, resId, reqWidth, reqHeight, scaleMode, priority, transformations) }
+            val preview = async {
+                try {
+                    loadBitmap(
+                        res, resId,
+                        (reqWidth / PREVIEW_DIVISOR).coerceAtLeast(1), (reqHeight / PREVIEW_DIVISOR).coerceAtLeast(1),
+                        scaleMode, minOf(priority, Priority.HIGH), transformations
+                    )
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Exception) {
+                    // A preview failing to render is just not shown
+                    null
+                }
+            }
+
+            val previewFirst = select<Boolean> {
+                preview.onAwait { true }
+                full.onAwait { false }
+            }
+            // A late preview must not replace the full Bitmap
+            if (previewFirst && !full.isCompleted) {
+                preview.await()?.let { emit(LoadState.Preview(it)) }
+            } else {
+                preview.cancel()
+            }
+            emit(LoadState.Complete(full.await()))
+        }
+    }
+
+    /**
+     * Decodes a batch of app resources asynchronously as a single task: memory cache is checked for the whole batch
+     * at once, misses are looked up on disk cache in a single pass, and the remaining ones are decoded in parallel,
+     * each reserving its memory before allocating it. Images repeated in the batch are decoded once, in batch order,
+     * and images already being decoded for other requests are waited for instead of decoded again.
+     *
+     * @param res              Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param items            Resources of the batch, with the measures each one should fit in.
+     * @param onItemRendered   Overwrite this callback to retrieve each [Bitmap] as soon as it's ready, null if it failed to render. Can be null.
+     * @param onBatchRendered  Overwrite this callback to retrieve every [Bitmap] at once, in batch order, when the whole batch is ready. Can be null.
+     * @return [BatchDecodeTask] to cancel the batch.
+     */
+    fun decodeBitmapsFromResources(
+        res: Resources?,
+        items: List<BatchItem>,
+        onItemRendered: OnBatchItemRendered?,
+        onBatchRendered: OnBatchRendered?
+    ): BatchDecodeTask {
+        val task = BatchDecodeTask(res, items, onItemRendered, onBatchRendered, cache, requestRegistry)
+        task.execute()
+        return task
+    }
+
+    /**
+     * Loads an app resource into an [ImageView], decoded for the size the view is laid out at and scaled as its
+     * [ImageView.ScaleType] shows it. If the view isn't laid out yet, the request waits for it. Binding the same view again cancels the previous request, so a reused row
+     * never shows the image of the row it was before. Must be called on the main thread.
+     *
+     * @param res                  Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param imageView            [ImageView] the Bitmap is shown in.
+     * @param onBitmapRenderFailed Overwrite this callback to perform actions when [Bitmap] object fails to render. Can be null.
+     * @param priority             [Priority] the request is queued with.
+     * @param transformations      [Transformation]s applied to the Bitmap, in order, at the size the view is laid out at.
+     * @return [ImageViewTarget] bound to the view, to cancel the request.
+     */
+    @JvmOverloads
+    fun into(
+        res: Resources?, resId: Int,
+        imageView: ImageView,
+        onBitmapRenderFailed: OnBitmapRenderFailed? = null,
+        priority: Priority = Priority.NORMAL,
+        transformations: List<Transformation> = emptyList()
+    ): ImageViewTarget {
+        (imageView.getTag(R.id.drawable_loader_target) as? ImageViewTarget)?.cancel()
+        val target = ImageViewTarget(imageView, res, resId, priority, transformations, onBitmapRenderFailed)
+        imageView.setTag(R.id.drawable_loader_target, target)
+        target.start()
+        return target
+    }
+
+    /**
+     * Decodes app resources into the cache ahead of time, with [Priority.PREFETCH] so they never delay visible
+     * requests. No callback is called: later requests for the same resources and measures are served from memory
+     * cache, or attached to the preload if it's still in flight. Resources already in memory cache are skipped.
+     *
+     * @param res       Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resIds    App resource ids to preload.
+     * @param reqWidth  Required width of the views where the Bitmaps will be shown.
+     * @param reqHeight Required height of the views where the Bitmaps will be shown.
+     * @param group     [RequestGroup] the preloads belong to, so they're held while it's paused. Can be null.
+     * @return [RequestHandle]s of the preloads started, to cancel them if they are no longer needed.
+     */
+    fun preload(
+        res: Resources?, resIds: IntArray,
+        reqWidth: Int, reqHeight: Int,
+        group: RequestGroup? = null
+    ): List<RequestHandle> {
+        if (cache == null) {
+            return emptyList()
+        }
+        val handles = ArrayList<RequestHandle>(resIds.size)
+        for (resId in resIds) {
+            if (getBitmapFromMemCache(res, resId, reqWidth, reqHeight) == null) {
+                handles.add(
+                    decodeBitmapFromResource(
+                        res, resId, reqWidth, reqHeight, ScaleMode.NONE, Priority.PREFETCH, group, null, null
+                    )
+                )
+            }
+        }
+        return handles
+    }
+
+    /**
+     * Looks up a Bitmap decoded for the given measures in memory cache only, so it's cheap enough for the main thread.
+     */
+    internal fun getBitmapFromMemCache(
+        res: Resources?, resId: Int,
+        reqWidth: Int, reqHeight: Int,
+        scaleMode: ScaleMode = ScaleMode.NONE,
+        transformations: List<Transformation> = emptyList()
+    ): Bitmap? {
+        val requestKey = RequestKey.forResource(
+            res, resId, reqWidth, reqHeight, scaleMode = scaleMode, configPolicy = configPolicy,
+            transformations = transformations
+        )
+        return cache?.getBitmapFromMemCache(requestKey.cacheKey)
+    }
+
+    internal fun decodeBitmapFromResource(
+        res: Resources?, resId: Int,
+        reqWidth: Int, reqHeight: Int,
+        scaleMode: ScaleMode,
+        priority: Priority,
+        group: RequestGroup?,
+        onBitmapRendered: OnBitmapRendered?,
+        onBitmapRenderFailed: OnBitmapRenderFailed?,
+        transformations: List<Transformation> = emptyList()
+    ): RequestHandle {
+        val requestKey = RequestKey.forResource(
+            res, resId, reqWidth, reqHeight,
+            scaleMode = scaleMode, configPolicy = configPolicy, transformations = transformations
+        )
+
+        //Launch renderer task, unless the same request is already being decoded
+        val handle = requestRegistry.register(requestKey, onBitmapRendered, onBitmapRenderFailed)
+        group?.add(handle)
+        if (!handle.startsDecode) {
+            // Decode in flight may be a preload, it must not make this request wait behind others
+            handle.bumpPriority(priority)
+        } else {
+            val task = AsyncDecodeResMeasured(
+                res,
+                resId,
+                reqWidth,
+                reqHeight,
+                scaleMode,
+                transformations,
+                requestRegistry.renderedListener(requestKey),
+                requestRegistry.failedListener(requestKey),
+                cache
+            )
+            task.priority = priority
+            task.setGroup(group)
+            requestRegistry.attachTask(requestKey, task)
+            task.execute()
+        }
+        return handle
+    }
+
+    private fun decodeBitmapFromSource(
+        source: DataSource,
+        reqWidth: Int, reqHeight: Int,
+        priority: Priority,
         onBitmapRendered: OnBitmapRendered?,
         onBitmapRenderFailed: OnBitmapRenderFailed?
-    ) {
-        //Launch renderer AsyncTask
-        AsyncDecodeResMeasured(
-            res,
-            resId,
-            reqWidth,
-            reqHeight,
-            onBitmapRendered,
-            onBitmapRenderFailed,
-            cache
-        ).execute()
+    ): RequestHandle {
+        if (source is ResourceSource) {
+            // Same key as resource requests, keep using their task
+            return decodeBitmapFromResource(
+                source.res, source.resId, reqWidth, reqHeight, ScaleMode.NONE, priority, null,
+                onBitmapRendered, onBitmapRenderFailed
+            )
+        }
+        // Reading the key of a source may hit the file system or digest the whole image, so it's read once on the
+        // disk I/O pool. Returned handle is linked to the registered request once its key is known
+        val handle = RequestHandle(null, null, null, null)
+        val executors = LoaderExecutors.getDefault()
+        executors.diskIo().execute(object : PrioritizedRunnable(priority) {
+            override fun run() {
+                if (handle.isCancelled) {
+                    return
+                }
+                val requestKey = try {
+                    RequestKey.forSource(source, reqWidth, reqHeight, configPolicy = configPolicy)
+                } catch (e: RuntimeException) {
+                    executors.postToMainThread(Runnable {
+                        if (!handle.isCancelled) {
+                            onBitmapRenderFailed?.onBitmapRenderFailed(e)
+                        }
+                    })
+                    return
+                }
+                handle.key = requestKey
+
+                //Launch renderer task, unless the same request is already being decoded
+                val registered = requestRegistry.register(requestKey, onBitmapRendered, onBitmapRenderFailed)
+                if (!registered.startsDecode) {
+                    registered.bumpPriority(priority)
+                } else {
+                    val task = AsyncDecodeSource(
+                        source,
+                        requestKey,
+                        reqWidth,
+                        reqHeight,
+                        ScaleMode.NONE,
+                        emptyList(),
+                        requestRegistry.renderedListener(requestKey),
+                        requestRegistry.failedListener(requestKey),
+                        cache
+                    )
+                    task.priority = priority
+                    requestRegistry.attachTask(requestKey, task)
+                    task.execute()
+                }
+                handle.link(registered)
+            }
+        })
+        return handle
     }
 
     /**
      * Decodes a sampled [Bitmap] object from a given app resource asynchronously, using the inSampleSize specified.
-     * Downsample rate is auto-increased if bitmap rendering causes an [OutOfMemoryError].
+     * Downsample rate is auto-increased if the decode wouldn't fit in available memory, avoiding an [OutOfMemoryError].
      *
      * @param res                  Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
      * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
      * @param inSampleSize         Determines how many times image resolution is divided to lower memory usage. Image aspect ratio is not affected by this parameter, just its resolution / quality is lowered.
      * @param onBitmapRendered     Overwrite this callback to retrieve [Bitmap] object rendered once it's ready and perform any other actions needed.
      * @param onBitmapRenderFailed Overwrite this callback to perform actions when [Bitmap] object fails to render. Can be null.
+     * @return [RequestHandle] to cancel the request, e.g. when the view it was meant for is recycled.
      */
     private fun decodeBitmapFromResource(
         res: Resources?, resId: Int,
         inSampleSize: Int,
         onBitmapRendered: OnBitmapRendered?,
         onBitmapRenderFailed: OnBitmapRenderFailed?
-    ) {
-        //Launch renderer AsyncTask
-        AsyncDecodeResForced(
-            res,
-            resId,
-            inSampleSize,
-            onBitmapRendered,
-            onBitmapRenderFailed,
-            cache
-        ).execute()
+    ): RequestHandle {
+        val requestKey = RequestKey.forResourceSampled(res, resId, inSampleSize, configPolicy = configPolicy)
+
+        //Launch renderer task, unless the same request is already being decoded
+        val handle = requestRegistry.register(requestKey, onBitmapRendered, onBitmapRenderFailed)
+        if (handle.startsDecode) {
+            val task = AsyncDecodeResForced(
+                res,
+                resId,
+                inSampleSize,
+                requestRegistry.renderedListener(requestKey),
+                requestRegistry.failedListener(requestKey),
+                cache
+            )
+            requestRegistry.attachTask(requestKey, task)
+            task.execute()
+        }
+        return handle
     }
 
     /**
      * Decodes a [Bitmap] object from a given app resource asynchronously, at its original dimensions.
-     * Downsample rate is auto-increased if bitmap rendering causes an [OutOfMemoryError].
+     * Downsample rate is auto-increased if the decode wouldn't fit in available memory, avoiding an [OutOfMemoryError].
      *
      * @param res                  Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
      * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
      * @param onBitmapRendered     Overwrite this callback to retrieve [Bitmap] object rendered once it's ready and perform any other actions needed.
      * @param onBitmapRenderFailed Overwrite this callback to perform actions when [Bitmap] object fails to render. Can be null.
+     * @return [RequestHandle] to cancel the request, e.g. when the view it was meant for is recycled.
      */
     fun decodeBitmapFromResource(
         res: Resources?, resId: Int,
         onBitmapRendered: OnBitmapRendered?,
         onBitmapRenderFailed: OnBitmapRenderFailed?
-    ) {
-        decodeBitmapFromResource(res, resId, 1, onBitmapRendered, onBitmapRenderFailed)
+    ): RequestHandle {
+        return decodeBitmapFromResource(res, resId, 1, onBitmapRendered, onBitmapRenderFailed)
+    }
+
+    /**
+     * Decodes a sampled [Bitmap] object from any [DataSource] asynchronously, such as a file, an asset, a `content://`
+     * URI or bytes in memory. Sources are sampled, budgeted, merged with requests for the same Bitmap in flight and
+     * cached in memory and on disk the same way app resources are.
+     *
+     * @param source               Source of the encoded image. See [sourceOf] to get one from a file, an URI or bytes.
+     * @param reqWidth             Required width of the view where the Bitmap should fit.
+     * @param reqHeight            Required height of the view where the Bitmap should fit.
+     * @param onBitmapRendered     Overwrite this callback to retrieve [Bitmap] object rendered once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed Overwrite this callback to perform actions when [Bitmap] object fails to render. Can be null.
+     * @return [RequestHandle] to cancel the request, e.g. when the view it was meant for is recycled.
+     */
+    fun decodeBitmapFromSource(
+        source: DataSource,
+        reqWidth: Int, reqHeight: Int,
+        onBitmapRendered: OnBitmapRendered?,
+        onBitmapRenderFailed: OnBitmapRenderFailed?
+    ): RequestHandle {
+        return decodeBitmapFromSource(
+            source, reqWidth, reqHeight, Priority.NORMAL, onBitmapRendered, onBitmapRenderFailed
+        )
+    }
+
+    /**
+     * Decodes a sampled [Bitmap] object asynchronously from a model, e.g. a [File], a [Uri] or a byte array, through
+     * the [Fetcher] handling it. See [sourceOf].
+     *
+     * @param model                Model to decode.
+     * @param reqWidth             Required width of the view where the Bitmap should fit.
+     * @param reqHeight            Required height of the view where the Bitmap should fit.
+     * @param onBitmapRendered     Overwrite this callback to retrieve [Bitmap] object rendered once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed Overwrite this callback to perform actions when [Bitmap] object fails to render. Can be null.
+     * @return [RequestHandle] to cancel the request, e.g. when the view it was meant for is recycled.
+     * @throws IllegalArgumentException If no fetcher handles the model.
+     */
+    fun decodeBitmap(
+        model: Any,
+        reqWidth: Int, reqHeight: Int,
+        onBitmapRendered: OnBitmapRendered?,
+        onBitmapRenderFailed: OnBitmapRenderFailed?
+    ): RequestHandle {
+        return decodeBitmapFromSource(sourceOf(model), reqWidth, reqHeight, onBitmapRendered, onBitmapRenderFailed)
     }
 
 
@@ -264,7 +1077,97 @@ object DrawableLoader {
      * @param context [Context] from where lib is being called. This is used to get application's cache dir for disk cache.
      */
     private fun initDiskCache(context: Context?) {
-        cache!!.initDiskCache(context)
+        cache!!.initDiskCache(context, LoaderExecutors.getDefault().diskIo())
+    }
+
+    /**
+     * Gives back a [Bitmap] obtained from the loader that is no longer displayed nor referenced anywhere, so its pixels
+     * are reused by later decodes instead of allocating new ones.
+     *
+     * @param bitmap [Bitmap] no longer used. It must not be used again after this call.
+     * @return True if Bitmap was pooled, False if it can't be reused.
+     */
+    @JvmStatic
+    fun releaseBitmap(bitmap: Bitmap?): Boolean {
+        return cache?.bitmapPool?.put(bitmap) ?: false
+    }
+
+    /**
+     * Disk cache HTTP images are downloaded into, null until [initLoader] is called. Its counters show how many
+     * responses were downloaded, revalidated without download, or shared between concurrent requests.
+     */
+    @JvmStatic
+    val httpDiskCache: HttpDiskCache?
+        get() = httpFetcher?.diskCache
+
+    /**
+     * Pool of Bitmaps reused by decodes, null until [initLoader] is called.
+     */
+    @JvmStatic
+    val bitmapPool: BitmapPool?
+        get() = cache?.bitmapPool
+
+    /**
+     * Creates a loader decoding only the visible tiles of an app resource too big to be decoded whole, at the level
+     * matching the current zoom. Tiles are kept in the loader's memory cache. Call [TiledImageLoader.start] to open
+     * the image and [TiledImageLoader.release] once it's no longer displayed.
+     *
+     * @param res      Resources package. You can get default resources package using [Activity.getResources] inside an activity or [Context.getResources] outside if a [Context] is available.
+     * @param resId    App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param listener Listener notified when image size is known and when tiles are decoded.
+     * @param tileSize Size of a decoded tile side, in pixels.
+     * @return [TiledImageLoader] of the resource.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun tiledImage(
+        res: Resources, resId: Int,
+        listener: TiledImageLoader.Listener,
+        tileSize: Int = TiledImageLoader.DEFAULT_TILE_SIZE
+    ): TiledImageLoader {
+        return TiledImageLoader(res, resId, listener, cache, LoaderExecutors.getDefault(), tileSize)
+    }
+
+    /**
+     * Budget decodes are downsampled to fit in before allocating. Its counters show how often decodes were downsampled
+     * to fit and how often an [OutOfMemoryError] still happened.
+     */
+    @JvmStatic
+    val heapBudget: HeapBudget
+        get() = HeapBudget.getDefault()
+
+    private suspend fun decodeCancellable(
+        res: Resources?, resId: Int,
+        reqWidth: Int, reqHeight: Int,
+        scaleMode: ScaleMode,
+        transformations: List<Transformation>,
+        requestKey: RequestKey
+    ): Bitmap {
+        val job = coroutineContext[Job]
+        var decodedBitmap = cache?.getBitmapFromCache(requestKey)
+
+        //If bitmap not found on cache, render it, unless request was cancelled meanwhile
+        if (decodedBitmap == null) {
+            coroutineContext.ensureActive()
+            val options = BitmapFactory.Options()
+            decodedBitmap = decoder().decodeMeasured(res, resId, reqWidth, reqHeight, scaleMode, options) {
+                job?.isActive == false
+            }
+            var mimeType = options.outMimeType
+            if (decodedBitmap != null && transformations.isNotEmpty()) {
+                decodedBitmap = Transformations.apply(transformations, cache?.bitmapPool, decodedBitmap, reqWidth, reqHeight)
+                mimeType = Transformations.outMimeType(decodedBitmap, mimeType)
+            }
+            if (decodedBitmap != null && cache != null) {
+                cache!!.put(requestKey, decodedBitmap, mimeType, 100)
+            }
+        }
+        coroutineContext.ensureActive()
+        return decodedBitmap ?: throw IllegalArgumentException("Unable to decode resource $resId")
+    }
+
+    private fun decoder(): ResourceDecoder {
+        return ResourceDecoder(cache?.bitmapPool, HeapBudget.getDefault(), configPolicy)
     }
 
     /**
@@ -1,6 +1,5 @@
 package com.test.drawableloader;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.os.AsyncTask;
@@ -9,10 +8,28 @@ import android.util.Log;
 import android.util.LruCache;
 
 
+import com.test.drawableloader.asynctasks.PrioritizedRunnable;
+import com.test.drawableloader.cacheutils.BitmapPool;
+import com.test.drawableloader.cacheutils.DiskCacheFormat;
 import com.test.drawableloader.cacheutils.DiskLruCache;
+import com.test.drawableloader.decoder.ConfigPolicy;
+import com.test.drawableloader.request.Priority;
+import com.test.drawableloader.request.RequestKey;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * An Bitmap cache to store data on both memory and disk cache. This class auto manages caches concurrency,
@@ -20,13 +37,69 @@ import java.io.IOException;
  */
 public class DrawableLoaderBitmapCache {
     private final LruCache<String, Bitmap> mMemoryCache;
+    private final BitmapPool mBitmapPool;
+    private volatile boolean mPoolEvictedBitmaps = false;
+    private volatile ConfigPolicy mConfigPolicy = ConfigPolicy.DEFAULT;
+    private final AtomicLong mReducedConfigCount = new AtomicLong();
+    private final AtomicLong mReducedConfigSavedBytes = new AtomicLong();
+    private volatile DiskCacheFormat mDiskCacheFormat = DiskCacheFormat.SOURCE;
     private DiskLruCache mDiskLruCache;
 
+    // Disk writes run on this executor when set, so decode threads never wait for Bitmap.compress
+    private volatile Executor mDiskWriteExecutor;
+    // Bitmaps queued to be written to disk, with how many writes each, and the ones evicted meanwhile
+    private final Map<Bitmap, Integer> mPendingDiskWrites = new IdentityHashMap<>();
+    private final Map<Bitmap, Boolean> mEvictedWhileWriting = new IdentityHashMap<>();
+    // Pending writes hold their Bitmaps out of the pool, even once memory cache evicted them, so they're bounded
+    private int mPendingDiskWriteCount;
+    private long mPendingDiskWriteBytes;
+    private final long mMaxPendingDiskWriteBytes;
+    private static final int MAX_PENDING_DISK_WRITES = 32;
+
+    // Sizes of the Bitmaps cached through a RequestKey, grouped by variant group, to find larger variants
+    private final Map<String, Map<RequestKey, int[]>> mVariants = new HashMap<>();
+    // Same variants by cache key, least recently used first, so the index is bounded like the caches it describes
+    private final LinkedHashMap<String, RequestKey> mVariantKeys =
+            new LinkedHashMap<String, RequestKey>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, RequestKey> eldest) {
+                    if (size() > MAX_VARIANTS) {
+                        removeFromGroup(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+    private static final int MAX_VARIANTS = 1024;
+
     private final Object mDiskCacheLock = new Object();
-    private boolean mDiskCacheStarting = true;
+    private DiskCacheState mDiskCacheState = DiskCacheState.STARTING;
+    // Writes put while disk cache is starting, run once it's ready
+    private final List<DiskWrite> mQueuedDiskWrites = new ArrayList<>();
     private static final int DISK_CACHE_SIZE = 1024 * 1024 * 10; // 10MB
     private static final String DISK_CACHE_SUBDIR = "images";
 
+    /**
+     * State of the disk cache, which is opened in background. Until it's {@link #READY}, disk lookups are misses and
+     * disk writes are queued, so no request ever waits for the disk cache journal to be read.
+     */
+    public enum DiskCacheState {
+        /**
+         * Disk cache is being opened.
+         */
+        STARTING,
+
+        /**
+         * Disk cache is open, lookups and writes go to disk.
+         */
+        READY,
+
+        /**
+         * Disk cache couldn't be opened, only memory cache is used.
+         */
+        FAILED
+    }
+
     /**
      * Basic constructor, builds the memory cache automatically.
      */
@@ -38,6 +111,11 @@ public class DrawableLoaderBitmapCache {
         // Use 1/8th of the available memory for this memory cache.
         final int cacheSize = maxMemory / 8;
 
+        // Use 1/16th of the available memory for reusable Bitmaps.
+        mBitmapPool = new BitmapPool(Runtime.getRuntime().maxMemory() / 16);
+        // Bitmaps waiting for disk may add up to a quarter of the memory cache on top of it
+        mMaxPendingDiskWriteBytes = cacheSize * 1024L / 4;
+
         //Initialize the memory cache
         mMemoryCache = new LruCache<String, Bitmap>(cacheSize) {
             @Override
@@ -46,9 +124,120 @@ public class DrawableLoaderBitmapCache {
                 // number of items.
                 return (bitmap.getRowBytes() * bitmap.getHeight()) / 1024;
             }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (newValue == null && (!evicted || getDiskCacheState() != DiskCacheState.READY)) {
+                    // Removed from every tier, or evicted with no disk copy to serve it from
+                    unregisterVariant(key);
+                }
+                if (evicted && mPoolEvictedBitmaps) {
+                    synchronized (mPendingDiskWrites) {
+                        if (mPendingDiskWrites.containsKey(oldValue)) {
+                            // Still being compressed to disk, pooled once its write is done
+                            mEvictedWhileWriting.put(oldValue, Boolean.TRUE);
+                            return;
+                        }
+                    }
+                    // Give pixels of evicted Bitmap to the pool for later decodes to reuse them
+                    mBitmapPool.put(oldValue);
+                }
+            }
         };
     }
 
+    /**
+     * Gets the pool of Bitmaps reused by decodes.
+     *
+     * @return {@link BitmapPool} fed by this cache.
+     */
+    public BitmapPool getBitmapPool() {
+        return mBitmapPool;
+    }
+
+    /**
+     * <p>Sets whether Bitmaps evicted from memory cache are given to the {@link BitmapPool} for decodes to reuse them.</p>
+     * <p>
+     * <b>NOTE:</b> Disabled by default. Only enable it if no evicted Bitmap can still be displayed, e.g. when views always
+     * get their Bitmaps from cache on bind, as a pooled Bitmap's pixels are overwritten by later decodes.
+     * </p>
+     *
+     * @param poolEvictedBitmaps True to pool evicted Bitmaps, False to leave them to the garbage collector.
+     */
+    public void setPoolEvictedBitmaps(boolean poolEvictedBitmaps) {
+        mPoolEvictedBitmaps = poolEvictedBitmaps;
+    }
+
+
+    /**
+     * Gets the policy Bitmaps stored in this cache are decoded with.
+     *
+     * @return {@link ConfigPolicy} used by decodes.
+     */
+    public ConfigPolicy getConfigPolicy() {
+        return mConfigPolicy;
+    }
+
+    /**
+     * Sets the policy Bitmaps stored in this cache are decoded with. The policy is part of {@link RequestKey}s, so
+     * Bitmaps decoded with another policy are kept apart.
+     *
+     * @param configPolicy {@link ConfigPolicy} used by decodes.
+     */
+    public void setConfigPolicy(ConfigPolicy configPolicy) {
+        mConfigPolicy = configPolicy;
+    }
+
+    /**
+     * Gets how Bitmaps are encoded when they're written to disk cache.
+     *
+     * @return {@link DiskCacheFormat} of disk cache entries.
+     */
+    public DiskCacheFormat getDiskCacheFormat() {
+        return mDiskCacheFormat;
+    }
+
+    /**
+     * Sets how Bitmaps put with a mime type are encoded when they're written to disk cache. Entries already on disk
+     * are kept as they were written.
+     *
+     * @param diskCacheFormat {@link DiskCacheFormat} of disk cache entries.
+     */
+    public void setDiskCacheFormat(DiskCacheFormat diskCacheFormat) {
+        mDiskCacheFormat = diskCacheFormat;
+    }
+
+    /**
+     * @return Number of Bitmaps waiting to be written to disk cache.
+     */
+    public int getPendingDiskWriteCount() {
+        synchronized (mPendingDiskWrites) {
+            return mPendingDiskWriteCount;
+        }
+    }
+
+    /**
+     * @return {@link DiskCacheState} of the disk cache.
+     */
+    public DiskCacheState getDiskCacheState() {
+        synchronized (mDiskCacheLock) {
+            return mDiskCacheState;
+        }
+    }
+
+    /**
+     * @return Number of Bitmaps stored with a smaller config than ARGB_8888 thanks to {@link ConfigPolicy#AUTO}.
+     */
+    public long getReducedConfigCount() {
+        return mReducedConfigCount.get();
+    }
+
+    /**
+     * @return Bytes of memory saved by Bitmaps stored with a smaller config than ARGB_8888 thanks to {@link ConfigPolicy#AUTO}.
+     */
+    public long getReducedConfigSavedBytes() {
+        return mReducedConfigSavedBytes.get();
+    }
 
     /**
      * Initializes memory cache. This method uses context to find app's own cache directory.
@@ -56,18 +245,45 @@ public class DrawableLoaderBitmapCache {
      * @param context {@link Context} from where lib is being called. This is used to get application's cache dir for disk cache.
      */
     public void initDiskCache(Context context) {
-        // Initialize disk cache on background thread
-        File cacheDir = getDiskCacheDir(context, DISK_CACHE_SUBDIR);
-        new InitDiskCacheTask().execute(cacheDir);
+        initDiskCache(context, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Initializes memory cache on the given {@link Executor}. This method uses context to find app's own cache directory.
+     *
+     * @param context  {@link Context} from where lib is being called. This is used to get application's cache dir for disk cache.
+     * @param executor {@link Executor} to open disk cache on, usually the loader's disk I/O pool.
+     */
+    public void initDiskCache(Context context, Executor executor) {
+        initDiskCache(getDiskCacheDir(context, DISK_CACHE_SUBDIR), executor);
+    }
+
+    /**
+     * Initializes disk cache in the given directory on the given {@link Executor}. This method returns right away:
+     * the disk cache is a miss for lookups until it's open, see {@link #getDiskCacheState()}.
+     *
+     * @param cacheDir Directory of the disk cache. It must not be shared with another cache.
+     * @param executor {@link Executor} to open disk cache on, usually the loader's disk I/O pool.
+     */
+    public void initDiskCache(File cacheDir, Executor executor) {
+        synchronized (mDiskCacheLock) {
+            mDiskCacheState = DiskCacheState.STARTING;
+        }
+        // Initialize disk cache on background thread, later disk writes are run there too
+        mDiskWriteExecutor = executor;
+        executor.execute(new InitDiskCacheTask(cacheDir));
     }
 
 
     /**
      * Adds or updates a {@link Bitmap} to Memory and Disk cache compressed in format and quality specified, identified by a key.
+     * The Bitmap is compressed to disk in background on the executor of the disk cache, so this method only waits for
+     * the memory cache. Writes put while the disk cache is starting are run once it's ready. If too many Bitmaps are
+     * already waiting for disk, this one is only kept in memory.
      *
      * @param key                   ID of the {@link Bitmap} to retrieve it later.
      * @param bitmap                {@link Bitmap} to be stored.
-     * @param inDiskCompressFormat  Format to compress the image (JPEG, PNG, etc.) to store on disk cache.
+     * @param inDiskCompressFormat  Format to compress the image (JPEG, PNG, etc.) to store on disk cache, null to store its raw pixels.
      * @param inDiskCompressQuality Compress quality percentage of the image, from 0 to 100, to store on disk cache.
      */
     public void put(String key, Bitmap bitmap, Bitmap.CompressFormat inDiskCompressFormat, int inDiskCompressQuality) {
@@ -75,13 +291,92 @@ public class DrawableLoaderBitmapCache {
         mMemoryCache.put(key, bitmap);
 
         // Also add to disk cache
+        if (mDiskWriteExecutor == null) {
+            // Disk cache was never initialized
+            return;
+        }
+        final DiskWrite write = new DiskWrite(key, bitmap, inDiskCompressFormat, inDiskCompressQuality);
+        synchronized (mDiskCacheLock) {
+            if (mDiskCacheState == DiskCacheState.FAILED) {
+                return;
+            }
+            // Pixels of the Bitmap must not be pooled, nor overwritten by a decode, until they're compressed
+            if (!pin(write)) {
+                // Too many Bitmaps held for disk, e.g. writes starved by continuous scrolling, this one is only kept in memory
+                return;
+            }
+            if (mDiskCacheState == DiskCacheState.STARTING) {
+                mQueuedDiskWrites.add(write);
+                return;
+            }
+        }
+        execute(write);
+    }
+
+    private void execute(DiskWrite write) {
+        // Disk entries are only needed after memory cache evicts the Bitmap, so writes never delay any request
+        try {
+            mDiskWriteExecutor.execute(write);
+        } catch (RejectedExecutionException e) {
+            // Executor was shut down, e.g. loader initialized again with other pools
+            write.run();
+        }
+    }
+
+    private boolean pin(DiskWrite write) {
+        synchronized (mPendingDiskWrites) {
+            if (mPendingDiskWriteCount >= MAX_PENDING_DISK_WRITES || (mPendingDiskWriteCount > 0
+                    && mPendingDiskWriteBytes + write.bytes > mMaxPendingDiskWriteBytes)) {
+                return false;
+            }
+            final Integer writes = mPendingDiskWrites.get(write.bitmap);
+            mPendingDiskWrites.put(write.bitmap, writes == null ? 1 : writes + 1);
+            mPendingDiskWriteCount++;
+            mPendingDiskWriteBytes += write.bytes;
+            return true;
+        }
+    }
+
+    private void onDiskWriteDone(DiskWrite write) {
+        final Bitmap bitmap = write.bitmap;
+        synchronized (mPendingDiskWrites) {
+            mPendingDiskWriteCount--;
+            mPendingDiskWriteBytes -= write.bytes;
+            final int writes = mPendingDiskWrites.remove(bitmap);
+            if (writes > 1) {
+                mPendingDiskWrites.put(bitmap, writes - 1);
+                return;
+            }
+            if (mEvictedWhileWriting.remove(bitmap) == null) {
+                return;
+            }
+        }
+        mBitmapPool.put(bitmap);
+    }
+
+    private void writeToDisk(String key, Bitmap bitmap, Bitmap.CompressFormat format, int quality) {
+        final DiskLruCache diskLruCache;
         synchronized (mDiskCacheLock) {
-            mDiskLruCache.put(key, bitmap, inDiskCompressFormat, inDiskCompressQuality);
+            diskLruCache = mDiskLruCache;
+        }
+        // Compressed out of the lock, so disk reads of other keys aren't blocked meanwhile
+        if (diskLruCache != null && !diskLruCache.isClosed()) {
+            try {
+                if (format == null) {
+                    diskLruCache.putRaw(key, bitmap);
+                } else {
+                    diskLruCache.put(key, bitmap, format, quality);
+                }
+            } catch (IllegalStateException e) {
+                // Disk cache was closed by clear() while compressing
+                Log.w("DrawableLoaderBitmapCache", "Disk cache closed before " + key + " was written");
+            }
         }
     }
 
     /**
      * Adds or updates a {@link Bitmap} to Memory and Disk cache compressed in format and quality specified, identified by a key.
+     * The format and quality are chosen by the {@link DiskCacheFormat} of this cache.
      *
      * @param key                   ID of the {@link Bitmap} to retrieve it later.
      * @param bitmap                {@link Bitmap} to be stored.
@@ -91,18 +386,13 @@ public class DrawableLoaderBitmapCache {
      */
     public void put(String key, Bitmap bitmap, String outMimeType, int inDiskCompressQuality)
             throws IllegalArgumentException {
-        Bitmap.CompressFormat inDiskCompressFormat;
         String[] parts = outMimeType.split("/");
 
         //Mime type should be "image"
         if (parts[0].equals("image")) {
-            if (parts[1].contains("jpeg")) {
-                inDiskCompressFormat = Bitmap.CompressFormat.JPEG;
-            } else {
-                inDiskCompressFormat = Bitmap.CompressFormat.PNG;
-            }
-
-            put(key, bitmap, inDiskCompressFormat, inDiskCompressQuality);
+            final DiskCacheFormat diskCacheFormat = mDiskCacheFormat;
+            put(key, bitmap, diskCacheFormat.compressFormatOf(outMimeType, bitmap.hasAlpha()),
+                    diskCacheFormat.qualityOf(inDiskCompressQuality));
         } else {
             throw new IllegalArgumentException("Incorrect Mime Type. Expected image, found " + parts[0]);
         }
@@ -122,6 +412,39 @@ public class DrawableLoaderBitmapCache {
         put(key, bitmap, Bitmap.CompressFormat.JPEG, 100);
     }
 
+    /**
+     * Adds or updates a {@link Bitmap} to Memory and Disk cache compressed in format and quality specified, identified by a {@link RequestKey}.
+     * The Bitmap is also registered as a variant of its source, so it can serve smaller requests later.
+     *
+     * @param key                   {@link RequestKey} of the request the {@link Bitmap} was decoded for.
+     * @param bitmap                {@link Bitmap} to be stored.
+     * @param outMimeType           Image's mime type (usually in form 'image/format', e.g. 'image/png'), to automatically obtain the compress format to store on disk cache.
+     * @param inDiskCompressQuality Compress quality percentage of the image, from 0 to 100, to store on disk cache.
+     * @throws IllegalArgumentException In case Mime Type specified is not image.
+     */
+    public void put(RequestKey key, Bitmap bitmap, String outMimeType, int inDiskCompressQuality)
+            throws IllegalArgumentException {
+        put(key.getCacheKey(), bitmap, outMimeType, inDiskCompressQuality);
+        registerVariant(key, bitmap.getWidth(), bitmap.getHeight());
+
+        if (key.getConfigPolicy() == ConfigPolicy.AUTO && bitmap.getConfig() == Bitmap.Config.RGB_565) {
+            // Same Bitmap in ARGB_8888 would take twice its size
+            mReducedConfigCount.incrementAndGet();
+            mReducedConfigSavedBytes.addAndGet(BitmapPool.getBitmapSize(bitmap));
+        }
+    }
+
+    /**
+     * Adds or updates a {@link Bitmap} to Memory cache only, identified by a key. Meant for Bitmaps cheaper to decode
+     * again than to compress to disk, such as tiles of a {@link com.test.drawableloader.region.TiledImageLoader}.
+     *
+     * @param key    ID of the {@link Bitmap} to retrieve it later.
+     * @param bitmap {@link Bitmap} to be stored.
+     */
+    public void putInMemCache(String key, Bitmap bitmap) {
+        mMemoryCache.put(key, bitmap);
+    }
+
     /**
      * Removes an entry from memory and disk cache.
      *
@@ -132,7 +455,9 @@ public class DrawableLoaderBitmapCache {
         mMemoryCache.remove(key);
 
         synchronized (mDiskCacheLock) {
-            mDiskLruCache.remove(key);
+            if (mDiskLruCache != null) {
+                mDiskLruCache.remove(key);
+            }
         }
     }
 
@@ -153,19 +478,34 @@ public class DrawableLoaderBitmapCache {
      * @return {@link Bitmap} object if found, null otherwise.
      */
     public Bitmap getBitmapFromDiskCache(String key) {
+        return getBitmapFromDiskCache(key, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Gets Bitmap from Disk Cache by its key, decoded with the config given.
+     *
+     * @param key    ID of the {@link Bitmap} to be retrieved.
+     * @param config Preferred {@link Bitmap.Config} of the Bitmap.
+     * @return {@link Bitmap} object if found, null otherwise.
+     */
+    public Bitmap getBitmapFromDiskCache(String key, Bitmap.Config config) {
+        final DiskLruCache diskLruCache;
         synchronized (mDiskCacheLock) {
-            // Wait while disk cache is started from background thread
-            while (mDiskCacheStarting) {
-                try {
-                    mDiskCacheLock.wait();
-                } catch (InterruptedException ignored) {
-                }
-            }
-            if (mDiskLruCache != null) {
-                return mDiskLruCache.getBitmap(key);
+            // Never wait for disk cache to be opened, a miss is cheaper for the first frames
+            if (mDiskCacheState != DiskCacheState.READY) {
+                return null;
             }
+            diskLruCache = mDiskLruCache;
+        }
+        if (diskLruCache.isClosed()) {
+            return null;
+        }
+        try {
+            return diskLruCache.getBitmap(key, config, mBitmapPool);
+        } catch (IllegalStateException e) {
+            // Disk cache was closed by clear() meanwhile
+            return null;
         }
-        return null;
     }
 
     /**
@@ -175,18 +515,144 @@ public class DrawableLoaderBitmapCache {
      * @return {@link Bitmap} object if found, null otherwise.
      */
     public Bitmap getBitmapFromCache(String key) {
+        return getBitmapFromCache(key, Bitmap.Config.ARGB_8888);
+    }
+
+    private Bitmap getBitmapFromCache(String key, Bitmap.Config diskConfig) {
         Bitmap bitmap = null;
 
         if (mMemoryCache != null) {
             bitmap = getBitmapFromMemCache(key);
         }
-        if (bitmap == null && mDiskLruCache != null) {
-            bitmap = getBitmapFromDiskCache(key);
+        if (bitmap == null) {
+            // Disk cache state is checked under its lock, a cache still opening is a miss
+            bitmap = getBitmapFromDiskCache(key, diskConfig);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Config to read a key's Bitmap from disk with. Disk cache stores compressed images, so an opaque image stored by
+     * {@link ConfigPolicy#AUTO} is read back as RGB_565, while the decoder keeps ARGB_8888 for images with alpha.
+     * Raw entries, see {@link DiskCacheFormat#RAW}, keep the config they were stored with.
+     */
+    private static Bitmap.Config diskConfigOf(RequestKey key) {
+        return key.getConfigPolicy() == ConfigPolicy.AUTO ? Bitmap.Config.RGB_565 : key.getConfig();
+    }
+
+    /**
+     * Tries to retrieve a Bitmap by its {@link RequestKey} from Memory Cache, and if not found, from Disk Cache.
+     * If no exact match is cached, the smallest cached variant of the same source big enough to satisfy the request is returned.
+     *
+     * @param key {@link RequestKey} of the {@link Bitmap} to be retrieved.
+     * @return {@link Bitmap} object if found, null otherwise.
+     */
+    public Bitmap getBitmapFromCache(RequestKey key) {
+        Bitmap bitmap = getBitmapFromCache(key.getCacheKey(), diskConfigOf(key));
+
+        if (bitmap != null) {
+            touchVariant(key);
+        } else {
+            bitmap = getBestVariant(key);
         }
 
         return bitmap;
     }
 
+    /**
+     * Looks for the smallest cached Bitmap of the same source, config and density than the request that is
+     * big enough to satisfy it, so it can be served without decoding again.
+     *
+     * @param key {@link RequestKey} of the request to be served.
+     * @return Larger {@link Bitmap} variant if found, null otherwise.
+     */
+    public Bitmap getBestVariant(RequestKey key) {
+        final List<Map.Entry<RequestKey, int[]>> candidates = new ArrayList<>();
+
+        synchronized (mVariants) {
+            Map<RequestKey, int[]> variants = mVariants.get(key.getVariantGroup());
+            if (variants == null) {
+                return null;
+            }
+            for (Map.Entry<RequestKey, int[]> variant : variants.entrySet()) {
+                int[] size = variant.getValue();
+                if (key.canBeServedBy(variant.getKey(), size[0], size[1])) {
+                    candidates.add(new AbstractMap.SimpleEntry<>(variant));
+                }
+            }
+        }
+
+        // Smallest satisfying variant first, to keep the served Bitmap as close as possible to the request
+        Collections.sort(candidates, new Comparator<Map.Entry<RequestKey, int[]>>() {
+            @Override
+            public int compare(Map.Entry<RequestKey, int[]> a, Map.Entry<RequestKey, int[]> b) {
+                long pixelsA = (long) a.getValue()[0] * a.getValue()[1];
+                long pixelsB = (long) b.getValue()[0] * b.getValue()[1];
+                return pixelsA < pixelsB ? -1 : (pixelsA == pixelsB ? 0 : 1);
+            }
+        });
+
+        for (Map.Entry<RequestKey, int[]> candidate : candidates) {
+            Bitmap bitmap = getBitmapFromCache(candidate.getKey().getCacheKey(), diskConfigOf(candidate.getKey()));
+            if (bitmap != null) {
+                touchVariant(candidate.getKey());
+                return bitmap;
+            }
+            // Variant is no longer in any tier, forget it
+            unregisterVariant(candidate.getKey());
+        }
+
+        return null;
+    }
+
+    private void registerVariant(RequestKey key, int width, int height) {
+        synchronized (mVariants) {
+            Map<RequestKey, int[]> variants = mVariants.get(key.getVariantGroup());
+            if (variants == null) {
+                variants = new HashMap<>();
+                mVariants.put(key.getVariantGroup(), variants);
+            }
+            variants.put(key, new int[]{width, height});
+            mVariantKeys.put(key.getCacheKey(), key);
+        }
+    }
+
+    private void touchVariant(RequestKey key) {
+        synchronized (mVariants) {
+            mVariantKeys.get(key.getCacheKey());
+        }
+    }
+
+    private void unregisterVariant(RequestKey key) {
+        synchronized (mVariants) {
+            mVariantKeys.remove(key.getCacheKey());
+            removeFromGroup(key);
+        }
+    }
+
+    private void unregisterVariant(String cacheKey) {
+        synchronized (mVariants) {
+            final RequestKey key = mVariantKeys.remove(cacheKey);
+            if (key != null) {
+                removeFromGroup(key);
+            }
+        }
+    }
+
+    /**
+     * Removes a variant from its group. Must be called holding the lock of mVariants.
+     */
+    private void removeFromGroup(RequestKey key) {
+        Map<RequestKey, int[]> variants = mVariants.get(key.getVariantGroup());
+        if (variants != null) {
+            variants.remove(key);
+            if (variants.isEmpty()) {
+                mVariants.remove(key.getVariantGroup());
+            }
+        }
+    }
+
     /**
      * Deletes memory and disk cache contents.
      *
@@ -195,8 +661,15 @@ public class DrawableLoaderBitmapCache {
     public void clear() throws IOException {
         mMemoryCache.evictAll();
 
+        synchronized (mVariants) {
+            mVariants.clear();
+            mVariantKeys.clear();
+        }
+
         synchronized (mDiskCacheLock) {
-            mDiskLruCache.delete();
+            if (mDiskLruCache != null) {
+                mDiskLruCache.delete();
+            }
         }
     }
 
@@ -225,25 +698,69 @@ public class DrawableLoaderBitmapCache {
     }
 
     /**
-     * AsyncTask to initialize disk cache.
+     * Write of a Bitmap to disk cache, run after any request queued on the disk I/O pool.
+     */
+    private class DiskWrite extends PrioritizedRunnable {
+        private final String key;
+        private final Bitmap bitmap;
+        private final Bitmap.CompressFormat format;
+        private final int quality;
+        private final int bytes;
+
+        DiskWrite(String key, Bitmap bitmap, Bitmap.CompressFormat format, int quality) {
+            super(Priority.PREFETCH);
+            this.key = key;
+            this.bitmap = bitmap;
+            this.format = format;
+            this.quality = quality;
+            this.bytes = BitmapPool.getBitmapSize(bitmap);
+        }
+
+        @Override
+        public void run() {
+            try {
+                writeToDisk(key, bitmap, format, quality);
+            } finally {
+                onDiskWriteDone(this);
+            }
+        }
+    }
+
+    /**
+     * Task to initialize disk cache.
      */
-    @SuppressLint("StaticFieldLeak")
-    class InitDiskCacheTask extends AsyncTask<File, Void, Void> {
+    class InitDiskCacheTask implements Runnable {
+        private final File cacheDir;
+
+        InitDiskCacheTask(File cacheDir) {
+            this.cacheDir = cacheDir;
+        }
+
         @Override
-        protected Void doInBackground(File... params) {
+        public void run() {
+            // Journal is read out of the lock, lookups are misses meanwhile instead of waiting for it
+            DiskLruCache diskLruCache = null;
+            try {
+                diskLruCache = DiskLruCache.open(cacheDir, DISK_CACHE_SIZE);
+            } catch (IOException e) {
+                Log.e("InitDiskCacheTask", "initDiskCacheException" + e);
+            }
 
+            final List<DiskWrite> queuedWrites;
             synchronized (mDiskCacheLock) {
-                try {
-                    File cacheDir = params[0];
-                    mDiskLruCache = DiskLruCache.open(cacheDir, DISK_CACHE_SIZE);
-                    mDiskCacheStarting = false; // Finished initialization
-                    mDiskCacheLock.notifyAll(); // Wake any waiting threads
-                } catch (IOException e) {
-                    Log.e("InitDiskCacheTask","initDiskCacheException"+e);
-                }
+                mDiskLruCache = diskLruCache;
+                mDiskCacheState = diskLruCache != null ? DiskCacheState.READY : DiskCacheState.FAILED;
+                queuedWrites = new ArrayList<>(mQueuedDiskWrites);
+                mQueuedDiskWrites.clear();
             }
 
-            return null;
+            for (DiskWrite write : queuedWrites) {
+                if (diskLruCache != null) {
+                    execute(write);
+                } else {
+                    onDiskWriteDone(write);
+                }
+            }
         }
     }
-}
\ No newline at end of file
+}
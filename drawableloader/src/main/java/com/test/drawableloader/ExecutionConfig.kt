@@ -0,0 +1,44 @@
+package com.test.drawableloader
+
+/**
+ * Execution configuration of the loader: sizes of the thread pools used for disk cache I/O and for CPU bound
+ * Bitmap decoding. Both pools are bounded, their threads are started on demand and die after being idle for
+ * [keepAliveSeconds].
+ *
+ * Default sizes are calculated from the number of available cores: decoding uses every core but one (at least
+ * two threads), while disk I/O uses half of them, between two and four threads.
+ *
+ * @param diskThreads      Max number of threads reading and writing disk cache.
+ * @param decodeThreads    Max number of threads decoding Bitmaps.
+ * @param keepAliveSeconds Seconds an idle thread is kept alive before being released.
+ */
+class ExecutionConfig @JvmOverloads constructor(
+    val diskThreads: Int = defaultDiskThreads(),
+    val decodeThreads: Int = defaultDecodeThreads(),
+    val keepAliveSeconds: Long = 30
+) {
+    init {
+        require(diskThreads > 0) { "diskThreads <= 0" }
+        require(decodeThreads > 0) { "decodeThreads <= 0" }
+    }
+
+    companion object {
+        private val CPU_COUNT = Runtime.getRuntime().availableProcessors()
+
+        /**
+         * @return Default number of disk I/O threads for this device.
+         */
+        @JvmStatic
+        fun defaultDiskThreads(): Int {
+            return (CPU_COUNT / 2).coerceIn(2, 4)
+        }
+
+        /**
+         * @return Default number of decode threads for this device.
+         */
+        @JvmStatic
+        fun defaultDecodeThreads(): Int {
+            return (CPU_COUNT - 1).coerceAtLeast(2)
+        }
+    }
+}
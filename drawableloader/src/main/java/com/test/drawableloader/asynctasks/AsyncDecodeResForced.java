@@ -5,21 +5,26 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.os.AsyncTask;
 
 import com.test.drawableloader.DrawableLoaderBitmapCache;
+import com.test.drawableloader.decoder.ConfigPolicy;
+import com.test.drawableloader.decoder.HeapBudget;
+import com.test.drawableloader.decoder.ResourceDecoder;
 import com.test.drawableloader.listeners.OnBitmapRenderFailed;
 import com.test.drawableloader.listeners.OnBitmapRendered;
+import com.test.drawableloader.request.RequestKey;
 
 /**
- * AsyncTask to decode a Bitmap from resource given its resource ID. InSampleSize parameter is forced to the value specified.
+ * Async task to decode a Bitmap from resource given its resource ID. InSampleSize parameter is forced to the value specified.
  */
-public class AsyncDecodeResForced extends AsyncTask<Void, Void, Bitmap> {
+public class AsyncDecodeResForced extends AsyncDecodeTask {
     private final Resources resources;
     private final int resourceId;
     private final int inSampleSize;
+    private final RequestKey requestKey;
     private Exception failException;
     private final DrawableLoaderBitmapCache drawableLoaderBitmapCache;
+    private final ResourceDecoder decoder;
 
     private final OnBitmapRendered onBitmapRendered;
     private final OnBitmapRenderFailed onBitmapRenderFailed;
@@ -40,12 +45,18 @@ public class AsyncDecodeResForced extends AsyncTask<Void, Void, Bitmap> {
                                 OnBitmapRendered onBitmapRendered,
                                 OnBitmapRenderFailed onBitmapRenderFailed,
                                 DrawableLoaderBitmapCache drawableLoaderBitmapCache) {
+        final ConfigPolicy configPolicy = drawableLoaderBitmapCache != null
+                ? drawableLoaderBitmapCache.getConfigPolicy() : ConfigPolicy.DEFAULT;
         this.resources = res;
         this.resourceId = resId;
+        this.requestKey = RequestKey.forResourceSampled(res, resId, inSampleSize, Bitmap.Config.ARGB_8888, configPolicy);
         this.inSampleSize = inSampleSize;
         this.onBitmapRendered = onBitmapRendered;
         this.onBitmapRenderFailed = onBitmapRenderFailed;
         this.drawableLoaderBitmapCache = drawableLoaderBitmapCache;
+        this.decoder = drawableLoaderBitmapCache != null
+                ? new ResourceDecoder(drawableLoaderBitmapCache.getBitmapPool(), HeapBudget.getDefault(), configPolicy)
+                : new ResourceDecoder(null);
     }
 
     /**
@@ -61,37 +72,39 @@ public class AsyncDecodeResForced extends AsyncTask<Void, Void, Bitmap> {
                                 OnBitmapRendered onBitmapRendered) {
         this.resources = res;
         this.resourceId = resId;
+        this.requestKey = RequestKey.forResourceSampled(res, resId, inSampleSize);
         this.inSampleSize = inSampleSize;
         this.onBitmapRendered = onBitmapRendered;
         this.onBitmapRenderFailed = null;
         this.drawableLoaderBitmapCache = null;
+        this.decoder = new ResourceDecoder(null);
     }
 
     @Override
-    protected Bitmap doInBackground(Void... params) {
-        Bitmap decodedBitmap = null;
-
+    protected Bitmap loadFromCache() {
         // Search bitmap on cache first if available
         if (drawableLoaderBitmapCache != null) {
-            decodedBitmap = drawableLoaderBitmapCache.getBitmapFromCache(String.valueOf(resourceId));
+            return drawableLoaderBitmapCache.getBitmapFromCache(requestKey);
         }
+        return null;
+    }
 
-        //If bitmap not found on cache, render it
-        if (decodedBitmap == null) {
-            // Decode bitmap with inSampleSize set
-            try {
-                final BitmapFactory.Options options = new BitmapFactory.Options();
-                options.inSampleSize = inSampleSize;
-                decodedBitmap = BitmapFactory.decodeResource(resources, resourceId, options);
+    @Override
+    protected Bitmap decode() {
+        Bitmap decodedBitmap = null;
+
+        //Bitmap not found on cache, decode bitmap with inSampleSize set
+        try {
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            decodedBitmap = decoder.decodeSampled(resources, resourceId, inSampleSize, options);
 
-                //Add bitmap to cache if bitmap was successfully rendered and cache is available
-                if (decodedBitmap != null && drawableLoaderBitmapCache != null) {
-                    drawableLoaderBitmapCache.put(String.valueOf(resourceId), decodedBitmap, options.outMimeType, 100);
-                }
-            } catch (Exception e) {
-                //Set failException for later launch fail callback on main thread
-                failException = e;
+            //Add bitmap to cache if bitmap was successfully rendered and cache is available
+            if (decodedBitmap != null && drawableLoaderBitmapCache != null) {
+                drawableLoaderBitmapCache.put(requestKey, decodedBitmap, options.outMimeType, 100);
             }
+        } catch (Exception e) {
+            //Set failException for later launch fail callback on main thread
+            failException = e;
         }
 
         return decodedBitmap;
@@ -104,7 +117,11 @@ public class AsyncDecodeResForced extends AsyncTask<Void, Void, Bitmap> {
                 //Call listener to return rendered bitmap
                 onBitmapRendered.onBitmapRendered(bitmap);
             }
-        } else if (onBitmapRenderFailed != null && failException != null) {
+        } else if (onBitmapRenderFailed != null) {
+            if (failException == null) {
+                //Decoder returned no Bitmap without throwing, e.g. resource is not a bitmap
+                failException = new IllegalArgumentException("Unable to decode resource " + resourceId);
+            }
             //Call fail listener and send failException triggered
             onBitmapRenderFailed.onBitmapRenderFailed(failException);
         }
@@ -5,23 +5,35 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.os.AsyncTask;
 
 import com.test.drawableloader.DrawableLoaderBitmapCache;
-import com.test.drawableloader.DrawableLoader;
+import com.test.drawableloader.decoder.ConfigPolicy;
+import com.test.drawableloader.decoder.HeapBudget;
+import com.test.drawableloader.decoder.ResourceDecoder;
+import com.test.drawableloader.decoder.ScaleMode;
 import com.test.drawableloader.listeners.OnBitmapRenderFailed;
 import com.test.drawableloader.listeners.OnBitmapRendered;
+import com.test.drawableloader.request.RequestKey;
+import com.test.drawableloader.transform.Transformation;
+import com.test.drawableloader.transform.Transformations;
+
+import java.util.Collections;
+import java.util.List;
 
 /**
- * AsyncTask to decode a Bitmap from resource given its resource ID and desired dimensions.
+ * Async task to decode a Bitmap from resource given its resource ID and desired dimensions.
  */
-public class AsyncDecodeResMeasured extends AsyncTask<Void, Void, Bitmap> {
+public class AsyncDecodeResMeasured extends AsyncDecodeTask {
     private final Resources resources;
     private final int resourceId;
     private final int requiredWidth;
     private final int requiredHeight;
+    private final ScaleMode scaleMode;
+    private final List<Transformation> transformations;
+    private final RequestKey requestKey;
     private Exception failException;
     private final DrawableLoaderBitmapCache drawableLoaderBitmapCache;
+    private final ResourceDecoder decoder;
 
     private final OnBitmapRendered onBitmapRendered;
     private final OnBitmapRenderFailed onBitmapRenderFailed;
@@ -43,13 +55,67 @@ public class AsyncDecodeResMeasured extends AsyncTask<Void, Void, Bitmap> {
                                   OnBitmapRendered onBitmapRendered,
                                   OnBitmapRenderFailed onBitmapRenderFailed,
                                   DrawableLoaderBitmapCache drawableLoaderBitmapCache) {
+        this(res, resId, reqWidth, reqHeight, ScaleMode.NONE, onBitmapRendered, onBitmapRenderFailed, drawableLoaderBitmapCache);
+    }
+
+    /**
+     * All parameters constructor, with a {@link ScaleMode} to size the Bitmap exactly.
+     *
+     * @param res                  Resources package. You can get default resources package using {@link Activity#getResources()} inside an activity or {@link Context#getResources()} outside if a {@link Context} is available.
+     * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth             Required width of the view where the Bitmap should fit.
+     * @param reqHeight            Required height of the view where the Bitmap should fit.
+     * @param scaleMode            How the Bitmap is sized against required width and height.
+     * @param onBitmapRendered     Overwrite this callback to retrieve {@link Bitmap} object rendered once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed Overwrite this callback to perform actions when {@link Bitmap} object fails to render. Can be null.
+     * @param drawableLoaderBitmapCache      Cache to check if bitmap has already been rendered.
+     */
+    public AsyncDecodeResMeasured(Resources res, int resId,
+                                  int reqWidth, int reqHeight,
+                                  ScaleMode scaleMode,
+                                  OnBitmapRendered onBitmapRendered,
+                                  OnBitmapRenderFailed onBitmapRenderFailed,
+                                  DrawableLoaderBitmapCache drawableLoaderBitmapCache) {
+        this(res, resId, reqWidth, reqHeight, scaleMode, Collections.<Transformation>emptyList(),
+                onBitmapRendered, onBitmapRenderFailed, drawableLoaderBitmapCache);
+    }
+
+    /**
+     * All parameters constructor, with {@link Transformation}s applied to the decoded Bitmap before it's cached.
+     *
+     * @param res                  Resources package. You can get default resources package using {@link Activity#getResources()} inside an activity or {@link Context#getResources()} outside if a {@link Context} is available.
+     * @param resId                App resource id. Could be either the pure integer value, or the Android resource name (R.drawable.img_name).
+     * @param reqWidth             Required width of the view where the Bitmap should fit.
+     * @param reqHeight            Required height of the view where the Bitmap should fit.
+     * @param scaleMode            How the Bitmap is sized against required width and height.
+     * @param transformations      Transformations applied to the decoded Bitmap, in order. Transformed Bitmap is cached under a key including them.
+     * @param onBitmapRendered     Overwrite this callback to retrieve {@link Bitmap} object rendered once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed Overwrite this callback to perform actions when {@link Bitmap} object fails to render. Can be null.
+     * @param drawableLoaderBitmapCache      Cache to check if bitmap has already been rendered.
+     */
+    public AsyncDecodeResMeasured(Resources res, int resId,
+                                  int reqWidth, int reqHeight,
+                                  ScaleMode scaleMode,
+                                  List<Transformation> transformations,
+                                  OnBitmapRendered onBitmapRendered,
+                                  OnBitmapRenderFailed onBitmapRenderFailed,
+                                  DrawableLoaderBitmapCache drawableLoaderBitmapCache) {
+        final ConfigPolicy configPolicy = drawableLoaderBitmapCache != null
+                ? drawableLoaderBitmapCache.getConfigPolicy() : ConfigPolicy.DEFAULT;
         this.resources = res;
         this.resourceId = resId;
+        this.requestKey = RequestKey.forResource(res, resId, reqWidth, reqHeight, Bitmap.Config.ARGB_8888, scaleMode,
+                configPolicy, transformations);
         this.requiredWidth = reqWidth;
         this.requiredHeight = reqHeight;
+        this.scaleMode = scaleMode;
+        this.transformations = transformations;
         this.onBitmapRendered = onBitmapRendered;
         this.onBitmapRenderFailed = onBitmapRenderFailed;
         this.drawableLoaderBitmapCache = drawableLoaderBitmapCache;
+        this.decoder = drawableLoaderBitmapCache != null
+                ? new ResourceDecoder(drawableLoaderBitmapCache.getBitmapPool(), HeapBudget.getDefault(), configPolicy)
+                : new ResourceDecoder(null);
     }
 
     /**
@@ -66,61 +132,56 @@ public class AsyncDecodeResMeasured extends AsyncTask<Void, Void, Bitmap> {
                                   OnBitmapRendered onBitmapRendered) {
         this.resources = res;
         this.resourceId = resId;
+        this.requestKey = RequestKey.forResource(res, resId, reqWidth, reqHeight);
         this.requiredWidth = reqWidth;
         this.requiredHeight = reqHeight;
+        this.scaleMode = ScaleMode.NONE;
+        this.transformations = Collections.emptyList();
         this.onBitmapRendered = onBitmapRendered;
         this.onBitmapRenderFailed = null;
         this.drawableLoaderBitmapCache = null;
+        this.decoder = new ResourceDecoder(null);
     }
 
     @Override
-    protected Bitmap doInBackground(Void... params) {
-        Bitmap decodedBitmap = null;
-        Boolean outOfMemoryError = true;
-
+    protected Bitmap loadFromCache() {
         // Search bitmap on cache first if available
         if (drawableLoaderBitmapCache != null) {
-            decodedBitmap = drawableLoaderBitmapCache.getBitmapFromCache(String.valueOf(resourceId));
+            return drawableLoaderBitmapCache.getBitmapFromCache(requestKey);
         }
+        return null;
+    }
 
-        //If bitmap not found on cache, render it
-        if (decodedBitmap == null) {
-            try {
-                // First decode with inJustDecodeBounds=true (No memory allocation) to check dimensions
-                final BitmapFactory.Options options = new BitmapFactory.Options();
-                options.inJustDecodeBounds = true;
-                BitmapFactory.decodeResource(resources, resourceId, options);
-
-                // Calculate inSampleSize
-                options.inSampleSize = DrawableLoader.calculateInSampleSize(options, requiredWidth, requiredHeight);
-
-                // Decode bitmap with inSampleSize set
-                options.inJustDecodeBounds = false;
-                while (outOfMemoryError) {
-                    try {
-                        decodedBitmap = BitmapFactory.decodeResource(resources, resourceId, options);
-
-                        //Add bitmap to cache if bitmap was successfully rendered and cache is available
-                        if (decodedBitmap != null && drawableLoaderBitmapCache != null) {
-                            drawableLoaderBitmapCache.put(String.valueOf(resourceId), decodedBitmap, options.outMimeType, 100);
+    @Override
+    protected Bitmap decode() {
+        Bitmap decodedBitmap = null;
+
+        //Bitmap not found on cache, render it
+        try {
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            decodedBitmap = decoder.decodeMeasured(resources, resourceId, requiredWidth, requiredHeight, scaleMode, options,
+                    new ResourceDecoder.CancellationCheck() {
+                        @Override
+                        public boolean isCancelled() {
+                            return AsyncDecodeResMeasured.this.isCancelled();
                         }
+                    });
+
+            String mimeType = options.outMimeType;
+            if (decodedBitmap != null && !transformations.isEmpty()) {
+                decodedBitmap = Transformations.apply(transformations,
+                        drawableLoaderBitmapCache != null ? drawableLoaderBitmapCache.getBitmapPool() : null,
+                        decodedBitmap, requiredWidth, requiredHeight);
+                mimeType = Transformations.outMimeType(decodedBitmap, mimeType);
+            }
 
-                        outOfMemoryError = false;
-                    } catch (OutOfMemoryError e) {
-                        //If inSampleSize still not enough to avoid out of memory error, increase it
-                        options.inSampleSize *= 2;
-                        outOfMemoryError = true;
-                    }
-
-                    if (options.inSampleSize >= 20) {
-                        //Break loop in case of too many loops (something else is happening)
-                        outOfMemoryError = false;
-                    }
-                }
-            } catch (Exception e) {
-                //Set failException for later launch fail callback on main thread
-                failException = e;
+            //Add bitmap to cache if bitmap was successfully rendered and cache is available
+            if (decodedBitmap != null && drawableLoaderBitmapCache != null) {
+                drawableLoaderBitmapCache.put(requestKey, decodedBitmap, mimeType, 100);
             }
+        } catch (Exception e) {
+            //Set failException for later launch fail callback on main thread
+            failException = e;
         }
 
         return decodedBitmap;
@@ -133,7 +194,11 @@ public class AsyncDecodeResMeasured extends AsyncTask<Void, Void, Bitmap> {
                 //Call listener to return rendered bitmap
                 onBitmapRendered.onBitmapRendered(bitmap);
             }
-        } else if (onBitmapRenderFailed != null && failException != null) {
+        } else if (onBitmapRenderFailed != null) {
+            if (failException == null) {
+                //Decoder returned no Bitmap without throwing, e.g. resource is not a bitmap
+                failException = new IllegalArgumentException("Unable to decode resource " + resourceId);
+            }
             //Call fail listener and send failException triggered
             onBitmapRenderFailed.onBitmapRenderFailed(failException);
         }
@@ -0,0 +1,164 @@
+package com.test.drawableloader.asynctasks;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.test.drawableloader.DrawableLoaderBitmapCache;
+import com.test.drawableloader.decoder.ConfigPolicy;
+import com.test.drawableloader.decoder.HeapBudget;
+import com.test.drawableloader.decoder.ResourceDecoder;
+import com.test.drawableloader.decoder.ScaleMode;
+import com.test.drawableloader.listeners.OnBitmapRenderFailed;
+import com.test.drawableloader.listeners.OnBitmapRendered;
+import com.test.drawableloader.request.RequestKey;
+import com.test.drawableloader.source.DataSource;
+import com.test.drawableloader.transform.Transformation;
+import com.test.drawableloader.transform.Transformations;
+
+import java.util.List;
+
+/**
+ * Async task to decode a Bitmap from any {@link DataSource} given its desired dimensions.
+ */
+public class AsyncDecodeSource extends AsyncDecodeTask {
+    private final DataSource source;
+    private final int requiredWidth;
+    private final int requiredHeight;
+    private final ScaleMode scaleMode;
+    private final List<Transformation> transformations;
+    private final RequestKey requestKey;
+    private Exception failException;
+    private final DrawableLoaderBitmapCache drawableLoaderBitmapCache;
+    private final ResourceDecoder decoder;
+
+    private final OnBitmapRendered onBitmapRendered;
+    private final OnBitmapRenderFailed onBitmapRenderFailed;
+
+    /**
+     * All parameters constructor.
+     *
+     * @param source                    Source of the encoded image.
+     * @param reqWidth                  Required width of the view where the Bitmap should fit.
+     * @param reqHeight                 Required height of the view where the Bitmap should fit.
+     * @param scaleMode                 How the Bitmap is sized against required width and height.
+     * @param transformations           Transformations applied to the decoded Bitmap, in order.
+     * @param onBitmapRendered          Overwrite this callback to retrieve {@link Bitmap} object rendered once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed      Overwrite this callback to perform actions when {@link Bitmap} object fails to render. Can be null.
+     * @param drawableLoaderBitmapCache Cache to check if bitmap has already been rendered.
+     */
+    public AsyncDecodeSource(DataSource source,
+                             int reqWidth, int reqHeight,
+                             ScaleMode scaleMode,
+                             List<Transformation> transformations,
+                             OnBitmapRendered onBitmapRendered,
+                             OnBitmapRenderFailed onBitmapRenderFailed,
+                             DrawableLoaderBitmapCache drawableLoaderBitmapCache) {
+        this(source, RequestKey.forSource(source, reqWidth, reqHeight, Bitmap.Config.ARGB_8888, scaleMode,
+                        configPolicyOf(drawableLoaderBitmapCache), transformations),
+                reqWidth, reqHeight, scaleMode, transformations, onBitmapRendered, onBitmapRenderFailed,
+                drawableLoaderBitmapCache);
+    }
+
+    /**
+     * All parameters constructor, with the {@link RequestKey} of the request already built, so the
+     * {@link DataSource#getKey()} of the source, which may be costly to read, is read only once and off the calling
+     * thread.
+     *
+     * @param source                    Source of the encoded image.
+     * @param requestKey                {@link RequestKey} the request is merged and cached under.
+     * @param reqWidth                  Required width of the view where the Bitmap should fit.
+     * @param reqHeight                 Required height of the view where the Bitmap should fit.
+     * @param scaleMode                 How the Bitmap is sized against required width and height.
+     * @param transformations           Transformations applied to the decoded Bitmap, in order.
+     * @param onBitmapRendered          Overwrite this callback to retrieve {@link Bitmap} object rendered once it's ready and perform any other actions needed.
+     * @param onBitmapRenderFailed      Overwrite this callback to perform actions when {@link Bitmap} object fails to render. Can be null.
+     * @param drawableLoaderBitmapCache Cache to check if bitmap has already been rendered.
+     */
+    public AsyncDecodeSource(DataSource source,
+                             RequestKey requestKey,
+                             int reqWidth, int reqHeight,
+                             ScaleMode scaleMode,
+                             List<Transformation> transformations,
+                             OnBitmapRendered onBitmapRendered,
+                             OnBitmapRenderFailed onBitmapRenderFailed,
+                             DrawableLoaderBitmapCache drawableLoaderBitmapCache) {
+        final ConfigPolicy configPolicy = configPolicyOf(drawableLoaderBitmapCache);
+        this.source = source;
+        this.requestKey = requestKey;
+        this.requiredWidth = reqWidth;
+        this.requiredHeight = reqHeight;
+        this.scaleMode = scaleMode;
+        this.transformations = transformations;
+        this.onBitmapRendered = onBitmapRendered;
+        this.onBitmapRenderFailed = onBitmapRenderFailed;
+        this.drawableLoaderBitmapCache = drawableLoaderBitmapCache;
+        this.decoder = drawableLoaderBitmapCache != null
+                ? new ResourceDecoder(drawableLoaderBitmapCache.getBitmapPool(), HeapBudget.getDefault(), configPolicy)
+                : new ResourceDecoder(null);
+    }
+
+    private static ConfigPolicy configPolicyOf(DrawableLoaderBitmapCache drawableLoaderBitmapCache) {
+        return drawableLoaderBitmapCache != null ? drawableLoaderBitmapCache.getConfigPolicy() : ConfigPolicy.DEFAULT;
+    }
+
+    @Override
+    protected Bitmap loadFromCache() {
+        // Search bitmap on cache first if available
+        if (drawableLoaderBitmapCache != null) {
+            return drawableLoaderBitmapCache.getBitmapFromCache(requestKey);
+        }
+        return null;
+    }
+
+    @Override
+    protected Bitmap decode() {
+        Bitmap decodedBitmap = null;
+
+        //Bitmap not found on cache, render it
+        try {
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            decodedBitmap = decoder.decodeMeasured(source, requiredWidth, requiredHeight, scaleMode, options,
+                    new ResourceDecoder.CancellationCheck() {
+                        @Override
+                        public boolean isCancelled() {
+                            return AsyncDecodeSource.this.isCancelled();
+                        }
+                    });
+
+            String mimeType = options.outMimeType;
+            if (decodedBitmap != null && !transformations.isEmpty()) {
+                decodedBitmap = Transformations.apply(transformations,
+                        drawableLoaderBitmapCache != null ? drawableLoaderBitmapCache.getBitmapPool() : null,
+                        decodedBitmap, requiredWidth, requiredHeight);
+                mimeType = Transformations.outMimeType(decodedBitmap, mimeType);
+            }
+
+            //Add bitmap to cache if bitmap was successfully rendered and cache is available
+            if (decodedBitmap != null && drawableLoaderBitmapCache != null) {
+                drawableLoaderBitmapCache.put(requestKey, decodedBitmap, mimeType, 100);
+            }
+        } catch (Exception e) {
+            //Set failException for later launch fail callback on main thread
+            failException = e;
+        }
+
+        return decodedBitmap;
+    }
+
+    @Override
+    protected void onPostExecute(Bitmap bitmap) {
+        if (bitmap != null) {
+            if (onBitmapRendered != null) {
+                //Call listener to return rendered bitmap
+                onBitmapRendered.onBitmapRendered(bitmap);
+            }
+        } else if (onBitmapRenderFailed != null) {
+            if (failException == null) {
+                //Decoder returned no Bitmap without throwing, e.g. source is not an image
+                failException = new IllegalArgumentException("Unable to decode source " + requestKey.getSource());
+            }
+            //Call fail listener and send failException triggered
+            onBitmapRenderFailed.onBitmapRenderFailed(failException);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.test.drawableloader.asynctasks;
+
+import android.graphics.Bitmap;
+
+import com.test.drawableloader.request.Priority;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Base of the asynchronous decode tasks. A task runs in two stages on the pools of {@link LoaderExecutors}:
+ * cache lookup on the disk I/O pool and, on a cache miss, decoding on the decode pool. The result is then
+ * delivered on the main thread through {@link #onPostExecute(Bitmap)}, just like an {@link android.os.AsyncTask}.
+ * <p>
+ * A task can be cancelled at any time: queued stages are removed from their pool before they start, and the result
+ * of a running stage is dropped instead of being delivered.
+ * </p>
+ * <p>
+ * Stages of a task belonging to a {@link RequestGroup} are held while the group is paused.
+ * </p>
+ */
+public abstract class AsyncDecodeTask {
+    private volatile boolean cancelled;
+    private volatile LoaderExecutors executors;
+    private volatile PrioritizedRunnable pendingStage;
+    private volatile Executor pendingPool;
+    private volatile Priority priority = Priority.NORMAL;
+    private volatile RequestGroup group;
+
+    /**
+     * Sets the priority both stages of the task are queued with. Must be called before the task is started.
+     *
+     * @param priority Priority of the task, {@link Priority#NORMAL} by default.
+     */
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * @return Priority both stages of the task are queued with.
+     */
+    public Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Raises the priority of a task that may already be started, e.g. when a visible row attaches to a preload still
+     * in flight. A queued stage is moved ahead in its pool. Lower priorities than the current one are ignored.
+     *
+     * @param priority New priority of the task.
+     */
+    public void bumpPriority(Priority priority) {
+        synchronized (this) {
+            if (priority.compareTo(this.priority) >= 0) {
+                return;
+            }
+            this.priority = priority;
+        }
+
+        // Stage is read before its pool, which is always written first
+        final LoaderExecutors executors = this.executors;
+        final PrioritizedRunnable pendingStage = this.pendingStage;
+        final Executor pendingPool = this.pendingPool;
+        if (executors == null || pendingStage == null) {
+            // Not started yet, stages will be queued with the new priority
+            return;
+        }
+        final RequestGroup group = this.group;
+        if (group != null) {
+            group.reprioritize(pendingStage, priority);
+        } else if (executors.remove(pendingStage)) {
+            // Queues don't reorder their work, take it out to change it
+            pendingStage.setPriority(priority);
+            pendingPool.execute(pendingStage);
+        }
+    }
+
+    /**
+     * Sets the group the task belongs to, so its stages are held while the group is paused. Must be called before
+     * the task is started.
+     *
+     * @param group {@link RequestGroup} of the task. Can be null.
+     */
+    public void setGroup(RequestGroup group) {
+        this.group = group;
+    }
+
+    /**
+     * Starts the task on the default {@link LoaderExecutors}.
+     */
+    public final void execute() {
+        executeOnExecutors(LoaderExecutors.getDefault());
+    }
+
+    /**
+     * Starts the task on the given {@link LoaderExecutors}.
+     *
+     * @param executors Pools to run the task on.
+     */
+    public final void executeOnExecutors(final LoaderExecutors executors) {
+        this.executors = executors;
+
+        final PrioritizedRunnable decodeStage = new PrioritizedRunnable(priority) {
+            @Override
+            public void run() {
+                onStageStarted(this);
+                if (cancelled) {
+                    return;
+                }
+                postResult(decode());
+            }
+        };
+
+        final PrioritizedRunnable cacheStage = new PrioritizedRunnable(priority) {
+            @Override
+            public void run() {
+                onStageStarted(this);
+                if (cancelled) {
+                    return;
+                }
+                Bitmap cachedBitmap = null;
+                try {
+                    cachedBitmap = loadFromCache();
+                } catch (RuntimeException ignored) {
+                    //A failing cache lookup is just a cache miss
+                }
+                if (cachedBitmap != null) {
+                    postResult(cachedBitmap);
+                    return;
+                }
+
+                if (!cancelled) {
+                    if (decodeStage.getPriority() != priority) {
+                        // Task was bumped while looking up cache
+                        decodeStage.setPriority(priority);
+                    }
+                    pendingPool = executors.decode();
+                    pendingStage = decodeStage;
+                    submit(executors.decode(), decodeStage);
+                }
+            }
+        };
+
+        pendingPool = executors.diskIo();
+        pendingStage = cacheStage;
+        submit(executors.diskIo(), cacheStage);
+    }
+
+    /**
+     * Cancels the task. Its stage is removed from its pool if it didn't start yet, and its result is never delivered.
+     */
+    public void cancel() {
+        cancelled = true;
+
+        final LoaderExecutors executors = this.executors;
+        final Runnable pendingStage = this.pendingStage;
+        if (executors != null && pendingStage != null) {
+            executors.remove(pendingStage);
+            final RequestGroup group = this.group;
+            if (group != null) {
+                group.remove(pendingStage);
+            }
+        }
+    }
+
+    /**
+     * @return True if {@link #cancel()} was called, False otherwise.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void submit(Executor pool, Runnable stage) {
+        final RequestGroup group = this.group;
+        if (group != null) {
+            group.execute(executors, pool, stage);
+        } else {
+            pool.execute(stage);
+        }
+    }
+
+    private void onStageStarted(Runnable stage) {
+        final RequestGroup group = this.group;
+        if (group != null) {
+            group.onStarted(stage);
+        }
+    }
+
+    private void postResult(final Bitmap bitmap) {
+        if (cancelled) {
+            return;
+        }
+        executors.postToMainThread(new Runnable() {
+            @Override
+            public void run() {
+                // Checked again on main thread, where requests are usually cancelled
+                if (!cancelled) {
+                    onPostExecute(bitmap);
+                }
+            }
+        });
+    }
+
+    /**
+     * Looks for the requested Bitmap in cache. Runs on the disk I/O pool.
+     *
+     * @return Cached {@link Bitmap} if found, null otherwise.
+     */
+    protected abstract Bitmap loadFromCache();
+
+    /**
+     * Decodes the requested Bitmap from its source. Runs on the decode pool, only if it wasn't found in cache.
+     *
+     * @return Decoded {@link Bitmap}, null if decode failed.
+     */
+    protected abstract Bitmap decode();
+
+    /**
+     * Delivers the result of the task. Runs on the main thread, unless the task was cancelled.
+     *
+     * @param bitmap Cached or decoded {@link Bitmap}, null if decode failed.
+     */
+    protected abstract void onPostExecute(Bitmap bitmap);
+}
@@ -0,0 +1,381 @@
+package com.test.drawableloader.asynctasks;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.test.drawableloader.DrawableLoaderBitmapCache;
+import com.test.drawableloader.decoder.ConfigPolicy;
+import com.test.drawableloader.decoder.HeapBudget;
+import com.test.drawableloader.decoder.ResourceDecoder;
+import com.test.drawableloader.decoder.ScaleMode;
+import com.test.drawableloader.listeners.OnBatchItemRendered;
+import com.test.drawableloader.listeners.OnBatchRendered;
+import com.test.drawableloader.listeners.OnBitmapRenderFailed;
+import com.test.drawableloader.listeners.OnBitmapRendered;
+import com.test.drawableloader.request.BatchItem;
+import com.test.drawableloader.request.Priority;
+import com.test.drawableloader.request.RequestHandle;
+import com.test.drawableloader.request.RequestKey;
+import com.test.drawableloader.request.RequestRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes a batch of app resources as a single task, instead of one task and one listener per image:
+ * <ol>
+ * <li>Memory cache is checked for every image at once on the calling thread.</li>
+ * <li>Misses are looked up on disk cache in a single stage on the disk I/O pool.</li>
+ * <li>Remaining misses are decoded in parallel on the decode pool, one stage per distinct {@link RequestKey}, each
+ * reserving its bytes from the {@link HeapBudget} before allocating. Stages are started in the order of the batch.</li>
+ * </ol>
+ * Results are delivered on the main thread, as each image is ready and once the whole batch is done.
+ * <p>
+ * Misses are registered with the {@link RequestRegistry}, if any, like single requests: an image already being
+ * decoded for another request is waited for instead of decoded again, and single requests for an image the batch is
+ * decoding wait for the batch.
+ * </p>
+ */
+public class BatchDecodeTask {
+    private final Resources resources;
+    private final List<BatchItem> items;
+    private final RequestKey[] keys;
+    private final Bitmap[] results;
+    private final DrawableLoaderBitmapCache drawableLoaderBitmapCache;
+    private final ResourceDecoder decoder;
+    private final RequestRegistry requestRegistry;
+    private final List<RequestHandle> handles = Collections.synchronizedList(new ArrayList<RequestHandle>());
+    private final OnBatchItemRendered onBatchItemRendered;
+    private final OnBatchRendered onBatchRendered;
+    private final AtomicInteger remaining;
+    private final List<Runnable> pendingStages = Collections.synchronizedList(new ArrayList<Runnable>());
+    private volatile boolean cancelled;
+    private volatile Priority priority = Priority.NORMAL;
+    private LoaderExecutors executors;
+
+    /**
+     * Constructor of a batch decoding its images on its own, without merging them with other requests.
+     *
+     * @param res                       Resources package the images are loaded with.
+     * @param items                     Images of the batch.
+     * @param onBatchItemRendered       Listener called as each image is ready. Can be null.
+     * @param onBatchRendered           Listener called once every image is ready. Can be null.
+     * @param drawableLoaderBitmapCache Cache to look images up and store decoded ones in. Can be null.
+     */
+    public BatchDecodeTask(Resources res, List<BatchItem> items,
+                           OnBatchItemRendered onBatchItemRendered,
+                           OnBatchRendered onBatchRendered,
+                           DrawableLoaderBitmapCache drawableLoaderBitmapCache) {
+        this(res, items, onBatchItemRendered, onBatchRendered, drawableLoaderBitmapCache, null);
+    }
+
+    /**
+     * All parameters constructor.
+     *
+     * @param res                       Resources package the images are loaded with.
+     * @param items                     Images of the batch.
+     * @param onBatchItemRendered       Listener called as each image is ready. Can be null.
+     * @param onBatchRendered           Listener called once every image is ready. Can be null.
+     * @param drawableLoaderBitmapCache Cache to look images up and store decoded ones in. Can be null.
+     * @param requestRegistry           Registry merging the decodes of the batch with other requests. Can be null.
+     */
+    public BatchDecodeTask(Resources res, List<BatchItem> items,
+                           OnBatchItemRendered onBatchItemRendered,
+                           OnBatchRendered onBatchRendered,
+                           DrawableLoaderBitmapCache drawableLoaderBitmapCache,
+                           RequestRegistry requestRegistry) {
+        final ConfigPolicy configPolicy = drawableLoaderBitmapCache != null
+                ? drawableLoaderBitmapCache.getConfigPolicy() : ConfigPolicy.DEFAULT;
+        this.resources = res;
+        this.items = new ArrayList<>(items);
+        this.keys = new RequestKey[items.size()];
+        for (int i = 0; i < keys.length; i++) {
+            final BatchItem item = items.get(i);
+            keys[i] = RequestKey.forResource(res, item.getResId(), item.getReqWidth(), item.getReqHeight(),
+                    Bitmap.Config.ARGB_8888, ScaleMode.NONE, configPolicy);
+        }
+        this.results = new Bitmap[items.size()];
+        this.remaining = new AtomicInteger(items.size());
+        this.onBatchItemRendered = onBatchItemRendered;
+        this.onBatchRendered = onBatchRendered;
+        this.drawableLoaderBitmapCache = drawableLoaderBitmapCache;
+        this.requestRegistry = requestRegistry;
+        this.decoder = drawableLoaderBitmapCache != null
+                ? new ResourceDecoder(drawableLoaderBitmapCache.getBitmapPool(), HeapBudget.getDefault(), configPolicy)
+                : new ResourceDecoder(null);
+    }
+
+    /**
+     * Sets the priority the stages of the batch are queued with. Must be called before the task is started.
+     *
+     * @param priority Priority of the batch, {@link Priority#NORMAL} by default.
+     */
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Starts the batch on the default {@link LoaderExecutors}.
+     */
+    public final void execute() {
+        executeOnExecutors(LoaderExecutors.getDefault());
+    }
+
+    /**
+     * Starts the batch on the given {@link LoaderExecutors}. Memory cache is checked on the calling thread.
+     *
+     * @param executors Pools to run the batch on.
+     */
+    public final void executeOnExecutors(final LoaderExecutors executors) {
+        this.executors = executors;
+        if (items.isEmpty()) {
+            postCompletion();
+            return;
+        }
+
+        // Group positions by key, so an image repeated in the batch is looked up and decoded once
+        final Map<RequestKey, List<Integer>> misses = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            final Bitmap cached = drawableLoaderBitmapCache != null
+                    ? drawableLoaderBitmapCache.getBitmapFromMemCache(keys[i].getCacheKey()) : null;
+            if (cached != null) {
+                deliver(Collections.singletonList(i), cached);
+            } else {
+                List<Integer> positions = misses.get(keys[i]);
+                if (positions == null) {
+                    positions = new ArrayList<>();
+                    misses.put(keys[i], positions);
+                }
+                positions.add(i);
+            }
+        }
+        if (misses.isEmpty()) {
+            return;
+        }
+
+        // Work of the same priority runs newest first: stages are created last image first, so the batch is decoded
+        // in its own order
+        final List<RequestKey> missKeys = new ArrayList<>(misses.keySet());
+        final Map<RequestKey, DecodeStage> decodeStages = new LinkedHashMap<>();
+        for (int i = missKeys.size() - 1; i >= 0; i--) {
+            final RequestKey key = missKeys.get(i);
+            decodeStages.put(key, new DecodeStage(key, misses.get(key)));
+        }
+
+        final Runnable diskStage = new PrioritizedRunnable(priority) {
+            @Override
+            public void run() {
+                pendingStages.remove(this);
+                for (Map.Entry<RequestKey, List<Integer>> miss : misses.entrySet()) {
+                    if (cancelled) {
+                        return;
+                    }
+                    Bitmap cached = null;
+                    if (drawableLoaderBitmapCache != null) {
+                        try {
+                            cached = drawableLoaderBitmapCache.getBitmapFromCache(miss.getKey());
+                        } catch (RuntimeException ignored) {
+                            //A failing cache lookup is just a cache miss
+                        }
+                    }
+                    if (cached != null) {
+                        deliver(miss.getValue(), cached);
+                    } else if (startsDecode(miss.getKey(), miss.getValue())) {
+                        final Runnable decodeStage = decodeStages.get(miss.getKey());
+                        pendingStages.add(decodeStage);
+                        executors.decode().execute(decodeStage);
+                    }
+                }
+            }
+        };
+        pendingStages.add(diskStage);
+        executors.diskIo().execute(diskStage);
+    }
+
+    /**
+     * Cancels the batch: queued stages are removed from their pools, and no more results are delivered.
+     */
+    public void cancel() {
+        cancelled = true;
+
+        synchronized (handles) {
+            for (RequestHandle handle : handles) {
+                handle.cancel();
+            }
+            handles.clear();
+        }
+
+        final LoaderExecutors executors = this.executors;
+        if (executors != null) {
+            synchronized (pendingStages) {
+                final Iterator<Runnable> iterator = pendingStages.iterator();
+                while (iterator.hasNext()) {
+                    final Runnable stage = iterator.next();
+                    if (stage instanceof DecodeStage && ((DecodeStage) stage).isAwaited()) {
+                        // Other requests wait for this image, keep decoding it for them
+                        continue;
+                    }
+                    executors.remove(stage);
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return True if {@link #cancel()} was called, False otherwise.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Registers a missing image with the registry.
+     *
+     * @return True if the batch must decode it, False if it waits for a decode already in flight.
+     */
+    private boolean startsDecode(RequestKey key, final List<Integer> positions) {
+        if (requestRegistry == null) {
+            return true;
+        }
+        final RequestHandle handle = requestRegistry.register(key, new OnBitmapRendered() {
+            @Override
+            public void onBitmapRendered(Bitmap bitmap) {
+                deliver(positions, bitmap);
+            }
+        }, new OnBitmapRenderFailed() {
+            @Override
+            public void onBitmapRenderFailed(Exception e) {
+                //Failed images are delivered as null
+                deliver(positions, null);
+            }
+        });
+        handles.add(handle);
+        if (cancelled) {
+            // Cancelled while registering, the handle may have been missed
+            handle.cancel();
+            return false;
+        }
+        return handle.getStartsDecode();
+    }
+
+    private void deliver(final List<Integer> positions, final Bitmap bitmap) {
+        if (cancelled) {
+            return;
+        }
+        for (int position : positions) {
+            results[position] = bitmap;
+        }
+        if (onBatchItemRendered != null) {
+            executors.postToMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int position : positions) {
+                        if (cancelled) {
+                            return;
+                        }
+                        onBatchItemRendered.onBatchItemRendered(position, bitmap);
+                    }
+                }
+            });
+        }
+        // Item callbacks are posted before completion, so they are delivered first
+        if (remaining.addAndGet(-positions.size()) == 0) {
+            postCompletion();
+        }
+    }
+
+    private void postCompletion() {
+        if (onBatchRendered == null) {
+            return;
+        }
+        final List<Bitmap> bitmaps = Collections.unmodifiableList(Arrays.asList(results.clone()));
+        executors.postToMainThread(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    onBatchRendered.onBatchRendered(bitmaps);
+                }
+            }
+        });
+    }
+
+    /**
+     * Decodes one distinct image of the batch and delivers it to every position it appears at, and to the requests
+     * waiting for it through the registry.
+     */
+    private class DecodeStage extends PrioritizedRunnable {
+        private final RequestKey key;
+        private final List<Integer> positions;
+
+        DecodeStage(RequestKey key, List<Integer> positions) {
+            super(priority);
+            this.key = key;
+            this.positions = positions;
+        }
+
+        /**
+         * @return True if requests out of the batch wait for this image.
+         */
+        boolean isAwaited() {
+            return requestRegistry != null && requestRegistry.isInFlight(key);
+        }
+
+        @Override
+        public void run() {
+            pendingStages.remove(this);
+            if (cancelled && !isAwaited()) {
+                return;
+            }
+            final int first = positions.get(0);
+            final BatchItem item = items.get(first);
+            Bitmap decodedBitmap = null;
+            Exception failException = null;
+            try {
+                final BitmapFactory.Options options = new BitmapFactory.Options();
+                decodedBitmap = decoder.decodeMeasured(resources, item.getResId(),
+                        item.getReqWidth(), item.getReqHeight(), ScaleMode.NONE, options,
+                        new ResourceDecoder.CancellationCheck() {
+                            @Override
+                            public boolean isCancelled() {
+                                return cancelled && !isAwaited();
+                            }
+                        });
+
+                //Add bitmap to cache if bitmap was successfully rendered and cache is available
+                if (decodedBitmap != null && drawableLoaderBitmapCache != null) {
+                    drawableLoaderBitmapCache.put(keys[first], decodedBitmap, options.outMimeType, 100);
+                }
+            } catch (Exception e) {
+                //Failed images are delivered as null
+                failException = e;
+            }
+
+            if (requestRegistry == null) {
+                deliver(positions, decodedBitmap);
+                return;
+            }
+            // Registry delivers to the batch and to every other waiting request, on the main thread like single requests
+            final Bitmap bitmap = decodedBitmap;
+            final Exception exception = decodedBitmap != null || failException != null ? failException
+                    : new IllegalArgumentException("Unable to decode resource " + item.getResId());
+            executors.postToMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (bitmap != null) {
+                        requestRegistry.renderedListener(key).onBitmapRendered(bitmap);
+                    } else {
+                        requestRegistry.failedListener(key).onBitmapRenderFailed(exception);
+                    }
+                }
+            });
+        }
+    }
+}
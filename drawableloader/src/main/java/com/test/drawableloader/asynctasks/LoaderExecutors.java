@@ -0,0 +1,162 @@
+package com.test.drawableloader.asynctasks;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.test.drawableloader.ExecutionConfig;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pools used by the loader: one for disk cache I/O, one for CPU bound decoding, and the main thread
+ * to deliver results on. This replaces the process wide serial executor of {@link android.os.AsyncTask}, so image
+ * loading neither waits behind unrelated AsyncTasks nor runs one image at a time.
+ * <p>
+ * Queued work is run by {@link com.test.drawableloader.request.Priority} when it's a {@link PrioritizedRunnable}.
+ * </p>
+ */
+public class LoaderExecutors {
+    private static final int INITIAL_QUEUE_CAPACITY = 16;
+    private static LoaderExecutors defaultExecutors;
+
+    private final ThreadPoolExecutor diskIo;
+    private final ThreadPoolExecutor decode;
+    private final Executor mainThread;
+
+    /**
+     * Builds the pools described by an {@link ExecutionConfig}.
+     *
+     * @param config Execution configuration with the size of each pool.
+     */
+    public LoaderExecutors(ExecutionConfig config) {
+        this(config, new MainThreadExecutor());
+    }
+
+    /**
+     * Builds the pools described by an {@link ExecutionConfig}, delivering results on the given {@link Executor}
+     * instead of the main thread, e.g. in tests running without a main {@link Looper}.
+     *
+     * @param config     Execution configuration with the size of each pool.
+     * @param mainThread {@link Executor} results are delivered on.
+     */
+    LoaderExecutors(ExecutionConfig config, Executor mainThread) {
+        this.diskIo = newPool("DrawableLoader-disk", config.getDiskThreads(), config.getKeepAliveSeconds());
+        this.decode = newPool("DrawableLoader-decode", config.getDecodeThreads(), config.getKeepAliveSeconds());
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Gets the executors used by tasks that are not given any, creating them with the default configuration if needed.
+     *
+     * @return Default {@link LoaderExecutors}.
+     */
+    public static synchronized LoaderExecutors getDefault() {
+        if (defaultExecutors == null) {
+            defaultExecutors = new LoaderExecutors(new ExecutionConfig());
+        }
+        return defaultExecutors;
+    }
+
+    /**
+     * Sets the executors used by tasks that are not given any. Previous default pools are shut down once their
+     * queued work is done.
+     *
+     * @param executors New default {@link LoaderExecutors}.
+     */
+    public static synchronized void setDefault(LoaderExecutors executors) {
+        if (defaultExecutors != null && defaultExecutors != executors) {
+            defaultExecutors.shutdown();
+        }
+        defaultExecutors = executors;
+    }
+
+    /**
+     * @return Pool for disk cache reads, writes and initialization.
+     */
+    public Executor diskIo() {
+        return diskIo;
+    }
+
+    /**
+     * @return Pool for CPU bound Bitmap decoding.
+     */
+    public Executor decode() {
+        return decode;
+    }
+
+    /**
+     * Runs a {@link Runnable} on the main thread.
+     *
+     * @param runnable Work to be run on the main thread.
+     */
+    public void postToMainThread(Runnable runnable) {
+        mainThread.execute(runnable);
+    }
+
+    /**
+     * Removes work from the queue of its pool if it didn't start yet.
+     *
+     * @param runnable Work to be removed.
+     * @return True if the work was removed, False if it already started or wasn't queued.
+     */
+    public boolean remove(Runnable runnable) {
+        return diskIo.remove(runnable) || decode.remove(runnable);
+    }
+
+    /**
+     * Stops accepting new work. Work already queued is still run.
+     */
+    public void shutdown() {
+        diskIo.shutdown();
+        decode.shutdown();
+    }
+
+    private static ThreadPoolExecutor newPool(String name, int threads, long keepAliveSeconds) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, keepAliveSeconds, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(INITIAL_QUEUE_CAPACITY, PrioritizedRunnable.ORDER),
+                new BackgroundThreadFactory(name));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Runs work on the main thread through its {@link Handler}.
+     */
+    private static class MainThreadExecutor implements Executor {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable runnable) {
+            handler.post(runnable);
+        }
+    }
+
+    /**
+     * Creates named threads running at background priority, so loading never competes with the UI thread.
+     */
+    private static class BackgroundThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        BackgroundThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, name + "-" + count.getAndIncrement());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.test.drawableloader.asynctasks;
+
+import com.test.drawableloader.request.Priority;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Work queued on {@link LoaderExecutors} pools with a {@link Priority}. Higher priorities run first, same priorities
+ * run newest first: after a fast scroll, rows just bound are served before the ones already scrolled away.
+ */
+public abstract class PrioritizedRunnable implements Runnable {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /**
+     * Order of queued work: by priority, then newest first. Plain {@link Runnable}s are run as {@link Priority#NORMAL},
+     * after prioritized work of that priority.
+     */
+    static final Comparator<Runnable> ORDER = new Comparator<Runnable>() {
+        @Override
+        public int compare(Runnable a, Runnable b) {
+            final int byPriority = priorityOf(a).compareTo(priorityOf(b));
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            final long sequenceA = sequenceOf(a);
+            final long sequenceB = sequenceOf(b);
+            return sequenceA > sequenceB ? -1 : (sequenceA == sequenceB ? 0 : 1);
+        }
+    };
+
+    private volatile Priority priority;
+    private volatile long sequence = SEQUENCE.getAndIncrement();
+
+    /**
+     * @param priority Priority of the work.
+     */
+    protected PrioritizedRunnable(Priority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * @return Priority of the work.
+     */
+    public Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Changes the priority of the work, which then counts as the newest of its priority. Must not be called while
+     * the work is queued, since queues don't reorder it: take it out of its pool first.
+     *
+     * @param priority New priority of the work.
+     */
+    void setPriority(Priority priority) {
+        this.priority = priority;
+        this.sequence = SEQUENCE.getAndIncrement();
+    }
+
+    private static Priority priorityOf(Runnable runnable) {
+        return runnable instanceof PrioritizedRunnable ? ((PrioritizedRunnable) runnable).priority : Priority.NORMAL;
+    }
+
+    private static long sequenceOf(Runnable runnable) {
+        return runnable instanceof PrioritizedRunnable ? ((PrioritizedRunnable) runnable).sequence : Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,299 @@
+package com.test.drawableloader.asynctasks;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.test.drawableloader.request.Priority;
+import com.test.drawableloader.request.RequestHandle;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Group of requests that can be paused and resumed together, e.g. every request of a screen or of a list.
+ * <p>
+ * While a group is paused, work of its tasks is held instead of queued: stages already queued are taken back from
+ * their pools and new ones are kept aside, so they don't compete for CPU with rendering. Running decodes finish.
+ * Held work is queued again, in the same order, once the group is resumed. Destroying a group cancels its requests,
+ * which drops their work for good.
+ * </p>
+ * <p>
+ * A group can be bound to a {@link LifecycleOwner}, to be paused while it's stopped and destroyed along with it, and to
+ * a {@link RecyclerView}, to be paused while it's flinging. The group is paused as long as any of these, or
+ * {@link #pause()}, asks for it.
+ * </p>
+ * <p>
+ * A decode job runs with the group of the request that started it. Requests for the same Bitmap attached to it later
+ * wait for it even if their own group isn't paused, and keep it running if that group is destroyed.
+ * </p>
+ */
+public class RequestGroup {
+    private final Object lock = new Object();
+    private final List<RequestHandle> handles = new ArrayList<>();
+    private final List<Stage> queued = new ArrayList<>();
+    private final List<Stage> held = new ArrayList<>();
+    private boolean manuallyPaused;
+    private boolean stopped;
+    private boolean flinging;
+    private boolean destroyed;
+
+    /**
+     * Pauses the group until {@link #resume()} is called.
+     */
+    public void pause() {
+        synchronized (lock) {
+            manuallyPaused = true;
+        }
+        updateState();
+    }
+
+    /**
+     * Resumes a group paused by {@link #pause()}. It stays paused while a bound lifecycle is stopped or a bound list
+     * is flinging.
+     */
+    public void resume() {
+        synchronized (lock) {
+            manuallyPaused = false;
+        }
+        updateState();
+    }
+
+    /**
+     * @return True if the work of the group is being held, False otherwise.
+     */
+    public boolean isPaused() {
+        synchronized (lock) {
+            return isPausedLocked();
+        }
+    }
+
+    /**
+     * Destroys the group: its requests are cancelled, so their held and queued work is dropped, and the group is never
+     * paused again. Later requests of the group are cancelled as soon as they're added.
+     */
+    public void destroy() {
+        final List<RequestHandle> handles;
+        synchronized (lock) {
+            if (destroyed) {
+                return;
+            }
+            destroyed = true;
+            handles = new ArrayList<>(this.handles);
+            this.handles.clear();
+        }
+        // Cancelled tasks take their stages back from the group and the pools
+        for (RequestHandle handle : handles) {
+            handle.cancel();
+        }
+        // Work still awaited by requests of other groups is queued again
+        updateState();
+    }
+
+    /**
+     * @return True if {@link #destroy()} was called, False otherwise.
+     */
+    public boolean isDestroyed() {
+        synchronized (lock) {
+            return destroyed;
+        }
+    }
+
+    /**
+     * Adds a request to the group, so it's cancelled when the group is destroyed.
+     *
+     * @param handle {@link RequestHandle} of the request.
+     */
+    public void add(RequestHandle handle) {
+        synchronized (lock) {
+            if (!destroyed) {
+                // Forget requests already delivered or cancelled
+                final Iterator<RequestHandle> iterator = handles.iterator();
+                while (iterator.hasNext()) {
+                    final RequestHandle known = iterator.next();
+                    if (known.isDone() || known.isCancelled()) {
+                        iterator.remove();
+                    }
+                }
+                handles.add(handle);
+                return;
+            }
+        }
+        handle.cancel();
+    }
+
+    /**
+     * Binds the group to a lifecycle: it's paused while the owner is stopped, and destroyed along with it.
+     *
+     * @param owner {@link LifecycleOwner} the requests of the group are made for, e.g. an Activity or a Fragment.
+     */
+    public void bindTo(LifecycleOwner owner) {
+        final Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            destroy();
+            return;
+        }
+        setStopped(!lifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED));
+        lifecycle.addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_START) {
+                    setStopped(false);
+                } else if (event == Lifecycle.Event.ON_STOP) {
+                    setStopped(true);
+                } else if (event == Lifecycle.Event.ON_DESTROY) {
+                    source.getLifecycle().removeObserver(this);
+                    destroy();
+                }
+            }
+        });
+    }
+
+    /**
+     * Binds the group to a list: it's paused while the list is flinging, when rows pass by too fast to be seen.
+     * Dragging doesn't pause it, rows scrolled by hand are looked at.
+     *
+     * @param recyclerView {@link RecyclerView} the requests of the group are made for.
+     */
+    public void bindTo(RecyclerView recyclerView) {
+        setFlinging(recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_SETTLING);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                setFlinging(newState == RecyclerView.SCROLL_STATE_SETTLING);
+            }
+        });
+    }
+
+    /**
+     * Queues a stage of a task of the group on a pool, or holds it if the group is paused.
+     */
+    void execute(LoaderExecutors executors, Executor pool, Runnable runnable) {
+        synchronized (lock) {
+            final Stage stage = new Stage(executors, pool, runnable);
+            if (isPausedLocked()) {
+                held.add(stage);
+                return;
+            }
+            queued.add(stage);
+        }
+        pool.execute(runnable);
+    }
+
+    /**
+     * Forgets a queued stage once it starts running.
+     */
+    void onStarted(Runnable runnable) {
+        synchronized (lock) {
+            removeStage(queued, runnable);
+        }
+    }
+
+    /**
+     * Forgets a stage of a cancelled task, wherever it is.
+     */
+    void remove(Runnable runnable) {
+        synchronized (lock) {
+            removeStage(queued, runnable);
+            removeStage(held, runnable);
+        }
+    }
+
+    /**
+     * Changes the priority of a stage of a task of the group, moving it ahead in its pool if it's queued.
+     */
+    void reprioritize(PrioritizedRunnable runnable, Priority priority) {
+        Stage requeued = null;
+        synchronized (lock) {
+            for (Stage stage : held) {
+                if (stage.runnable == runnable) {
+                    runnable.setPriority(priority);
+                    return;
+                }
+            }
+            for (Stage stage : queued) {
+                if (stage.runnable == runnable) {
+                    // Queues don't reorder their work, take it out to change it
+                    if (stage.executors.remove(runnable)) {
+                        runnable.setPriority(priority);
+                        requeued = stage;
+                    }
+                    break;
+                }
+            }
+        }
+        if (requeued != null) {
+            requeued.pool.execute(requeued.runnable);
+        }
+    }
+
+    private void setStopped(boolean stopped) {
+        synchronized (lock) {
+            this.stopped = stopped;
+        }
+        updateState();
+    }
+
+    private void setFlinging(boolean flinging) {
+        synchronized (lock) {
+            this.flinging = flinging;
+        }
+        updateState();
+    }
+
+    private boolean isPausedLocked() {
+        return !destroyed && (manuallyPaused || stopped || flinging);
+    }
+
+    /**
+     * Takes queued stages back from their pools if the group is paused, or queues held stages again if it's not.
+     */
+    private void updateState() {
+        final List<Stage> toQueue = new ArrayList<>();
+        synchronized (lock) {
+            if (isPausedLocked()) {
+                final Iterator<Stage> iterator = queued.iterator();
+                while (iterator.hasNext()) {
+                    final Stage stage = iterator.next();
+                    // Stages that already started can't be taken back
+                    if (stage.executors.remove(stage.runnable)) {
+                        held.add(stage);
+                    }
+                    iterator.remove();
+                }
+            } else {
+                toQueue.addAll(held);
+                queued.addAll(held);
+                held.clear();
+            }
+        }
+        for (Stage stage : toQueue) {
+            stage.pool.execute(stage.runnable);
+        }
+    }
+
+    private static void removeStage(List<Stage> stages, Runnable runnable) {
+        final Iterator<Stage> iterator = stages.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().runnable == runnable) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    private static final class Stage {
+        final LoaderExecutors executors;
+        final Executor pool;
+        final Runnable runnable;
+
+        Stage(LoaderExecutors executors, Executor pool, Runnable runnable) {
+            this.executors = executors;
+            this.pool = pool;
+            this.runnable = runnable;
+        }
+    }
+}
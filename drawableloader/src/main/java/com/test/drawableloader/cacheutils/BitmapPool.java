@@ -0,0 +1,256 @@
+package com.test.drawableloader.cacheutils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * A pool of mutable {@link Bitmap} objects nobody displays anymore, to be reused as {@link BitmapFactory.Options#inBitmap}
+ * by later decodes instead of allocating new pixels. Bitmaps are bucketed by {@link Bitmap.Config} and byte size,
+ * and the pool is bounded by a byte budget: least recently pooled Bitmaps are recycled first when it's exceeded.
+ * </p>
+ * <p>
+ * Reuse follows the API level rules of inBitmap: from KitKat on, any pooled Bitmap of the same config whose allocation
+ * is big enough can be reused. Before KitKat, only a Bitmap of the exact same size can, and only if no downsample is applied.
+ * </p>
+ * <p>
+ * <b>Important Note:</b> a Bitmap given to the pool is owned by it, and its pixels will be overwritten by a later decode.
+ * Never put a Bitmap that could still be displayed.
+ * </p>
+ */
+public class BitmapPool {
+    // A pooled Bitmap much bigger than needed would waste more memory than it saves
+    private static final int MAX_SIZE_MULTIPLE = 4;
+
+    private final Map<Bitmap.Config, TreeMap<Integer, LinkedList<Bitmap>>> buckets = new HashMap<>();
+    private final LinkedHashSet<Bitmap> lru = new LinkedHashSet<>();
+    private final long maxSize;
+    private long size;
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    /**
+     * @param maxSize Maximum number of bytes of pixels this pool should hold.
+     */
+    public BitmapPool(long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gives a Bitmap to the pool. Immutable, recycled or too big Bitmaps are rejected.
+     *
+     * @param bitmap {@link Bitmap} nobody uses anymore.
+     * @return True if Bitmap was pooled, False if it was rejected.
+     */
+    public synchronized boolean put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() == null
+                || lru.contains(bitmap)) {
+            return false;
+        }
+        final int bitmapSize = getBitmapSize(bitmap);
+        if (bitmapSize > maxSize) {
+            return false;
+        }
+
+        TreeMap<Integer, LinkedList<Bitmap>> bucket = buckets.get(bitmap.getConfig());
+        if (bucket == null) {
+            bucket = new TreeMap<>();
+            buckets.put(bitmap.getConfig(), bucket);
+        }
+        LinkedList<Bitmap> bitmaps = bucket.get(bitmapSize);
+        if (bitmaps == null) {
+            bitmaps = new LinkedList<>();
+            bucket.put(bitmapSize, bitmaps);
+        }
+        bitmaps.add(bitmap);
+        lru.add(bitmap);
+        size += bitmapSize;
+
+        trimToSize(maxSize);
+        return true;
+    }
+
+    /**
+     * Takes from the pool a Bitmap that can be used as {@link BitmapFactory.Options#inBitmap} for a decode.
+     *
+     * @param targetOptions Options of the decode, with bounds already decoded and inSampleSize and inPreferredConfig set.
+     * @return Reusable {@link Bitmap} if any, null otherwise.
+     */
+    public synchronized Bitmap get(BitmapFactory.Options targetOptions) {
+        final int sampleSize = Math.max(1, targetOptions.inSampleSize);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT && sampleSize != 1) {
+            // Before KitKat, inBitmap can't be used when downsampling
+            missCount++;
+            return null;
+        }
+        final int width = (targetOptions.outWidth + sampleSize - 1) / sampleSize;
+        final int height = (targetOptions.outHeight + sampleSize - 1) / sampleSize;
+        final Bitmap.Config config = targetOptions.inPreferredConfig != null
+                ? targetOptions.inPreferredConfig : Bitmap.Config.ARGB_8888;
+        return take(width, height, config);
+    }
+
+    /**
+     * Takes from the pool a Bitmap of the given size and config, e.g. to draw on it. From KitKat on, a bigger pooled
+     * Bitmap is reconfigured to the given size.
+     *
+     * @param width  Width of the Bitmap needed.
+     * @param height Height of the Bitmap needed.
+     * @param config {@link Bitmap.Config} of the Bitmap needed.
+     * @return Pooled {@link Bitmap} with given size and config if any, null otherwise.
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        final Bitmap bitmap = take(width, height, config);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && bitmap != null
+                && (bitmap.getWidth() != width || bitmap.getHeight() != height)) {
+            // Only reached from KitKat on, before it take() only returns Bitmaps of the exact size
+            bitmap.reconfigure(width, height, config);
+        }
+        return bitmap;
+    }
+
+    private Bitmap take(int width, int height, Bitmap.Config config) {
+        final TreeMap<Integer, LinkedList<Bitmap>> bucket = buckets.get(config);
+        if (bucket != null && width > 0 && height > 0) {
+            final int requiredSize = width * height * getBytesPerPixel(config);
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                // Smallest pooled allocation big enough
+                Map.Entry<Integer, LinkedList<Bitmap>> entry = bucket.ceilingEntry(requiredSize);
+                if (entry != null && entry.getKey() <= requiredSize * MAX_SIZE_MULTIPLE) {
+                    return remove(bucket, entry.getKey(), entry.getValue().getFirst());
+                }
+            } else {
+                // Exact same dimensions required
+                LinkedList<Bitmap> bitmaps = bucket.get(requiredSize);
+                if (bitmaps != null) {
+                    for (Bitmap candidate : bitmaps) {
+                        if (candidate.getWidth() == width && candidate.getHeight() == height) {
+                            return remove(bucket, requiredSize, candidate);
+                        }
+                    }
+                }
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    private Bitmap remove(TreeMap<Integer, LinkedList<Bitmap>> bucket, int bitmapSize, Bitmap bitmap) {
+        final LinkedList<Bitmap> bitmaps = bucket.get(bitmapSize);
+        bitmaps.remove(bitmap);
+        if (bitmaps.isEmpty()) {
+            bucket.remove(bitmapSize);
+        }
+        lru.remove(bitmap);
+        size -= bitmapSize;
+        hitCount++;
+        return bitmap;
+    }
+
+    /**
+     * Recycles least recently pooled Bitmaps until pool holds no more than the given number of bytes.
+     *
+     * @param maxSize Maximum number of bytes to keep.
+     */
+    public synchronized void trimToSize(long maxSize) {
+        final Iterator<Bitmap> iterator = lru.iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            final Bitmap eldest = iterator.next();
+            final int bitmapSize = getBitmapSize(eldest);
+            iterator.remove();
+
+            final TreeMap<Integer, LinkedList<Bitmap>> bucket = buckets.get(eldest.getConfig());
+            final LinkedList<Bitmap> bitmaps = bucket.get(bitmapSize);
+            bitmaps.remove(eldest);
+            if (bitmaps.isEmpty()) {
+                bucket.remove(bitmapSize);
+            }
+            size -= bitmapSize;
+            evictionCount++;
+            eldest.recycle();
+        }
+    }
+
+    /**
+     * Recycles every pooled Bitmap.
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * @return Number of bytes of pixels currently pooled.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return Maximum number of bytes of pixels this pool holds.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return Number of times a pooled Bitmap was reused.
+     */
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return Number of times no pooled Bitmap could be reused.
+     */
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return Number of pooled Bitmaps recycled to respect the byte budget.
+     */
+    public synchronized int evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Gets the number of bytes used by a Bitmap's pixels, including any unused space left by a reconfiguration.
+     *
+     * @param bitmap {@link Bitmap} to measure.
+     * @return Size of the Bitmap in bytes.
+     */
+    public static int getBitmapSize(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    /**
+     * @param config {@link Bitmap.Config} of a Bitmap.
+     * @return Number of bytes each pixel takes with that config.
+     */
+    public static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        } else if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.RGBA_F16) {
+            return 8;
+        }
+        return 4;
+    }
+}
@@ -0,0 +1,66 @@
+package com.test.drawableloader.cacheutils
+
+import android.graphics.Bitmap
+
+/**
+ * Chooses how decoded Bitmaps are encoded when they're written to disk cache. Bitmaps stored there are already
+ * downsampled to the size they were requested at, and the original encoded images are still on disk anyway: in the
+ * APK, the file system or the HTTP response cache. Disk cache entries only need to be cheaper to read back than the
+ * source, not a lossless copy of it.
+ */
+enum class DiskCacheFormat {
+    /**
+     * Bitmaps are compressed in the format of their source, JPEG for JPEG images and PNG for anything else, at the
+     * quality given when they're put in cache.
+     */
+    SOURCE {
+        override fun compressFormatOf(mimeType: String, hasAlpha: Boolean): Bitmap.CompressFormat? =
+            if (mimeType.contains("jpeg")) Bitmap.CompressFormat.JPEG else Bitmap.CompressFormat.PNG
+
+        override fun qualityOf(quality: Int): Int = quality
+    },
+
+    /**
+     * Opaque Bitmaps are compressed as JPEG at [COMPACT_QUALITY], whatever their source format. PNG encoding of photos
+     * is slow and makes entries several times bigger than JPEG does. Bitmaps with alpha are kept as PNG so they don't
+     * lose their transparency.
+     */
+    COMPACT {
+        override fun compressFormatOf(mimeType: String, hasAlpha: Boolean): Bitmap.CompressFormat? =
+            if (hasAlpha) Bitmap.CompressFormat.PNG else Bitmap.CompressFormat.JPEG
+
+        override fun qualityOf(quality: Int): Int = minOf(quality, COMPACT_QUALITY)
+    },
+
+    /**
+     * Bitmaps are stored as raw pixels, see [RawBitmapFile]. Disk hits are memory-mapped and copied into a pooled
+     * Bitmap with no codec involved, and writes don't compress anything. Entries take as much space as the Bitmap in
+     * memory, 4 bytes per pixel in ARGB_8888, so the disk cache holds fewer of them: it suits Bitmaps decoded at the
+     * size of their views, such as list thumbnails.
+     */
+    RAW {
+        override fun compressFormatOf(mimeType: String, hasAlpha: Boolean): Bitmap.CompressFormat? = null
+
+        override fun qualityOf(quality: Int): Int = quality
+    };
+
+    /**
+     * @param mimeType Mime type of the source image, e.g. 'image/png'.
+     * @param hasAlpha Whether the Bitmap has an alpha channel, see [Bitmap.hasAlpha].
+     * @return Format to compress the Bitmap to, null to store its raw pixels.
+     */
+    abstract fun compressFormatOf(mimeType: String, hasAlpha: Boolean): Bitmap.CompressFormat?
+
+    /**
+     * @param quality Quality requested by the caller, from 0 to 100.
+     * @return Quality to compress the Bitmap with.
+     */
+    abstract fun qualityOf(quality: Int): Int
+
+    companion object {
+        /**
+         * JPEG quality of [COMPACT] entries, visually lossless for Bitmaps displayed at the size they were decoded at.
+         */
+        const val COMPACT_QUALITY = 85
+    }
+}
@@ -472,6 +472,31 @@ public final class DiskLruCache implements Closeable {
      * @return {@link Bitmap} object
      */
     public Bitmap getBitmap(String key) {
+        return getBitmap(key, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Obtains a {@link Bitmap} object, if possible, from specified key's value, decoded with the config given
+     *
+     * @param key    Value's identifier
+     * @param config Preferred {@link Bitmap.Config}. Images with alpha are still decoded as ARGB_8888 if RGB_565 is given
+     * @return {@link Bitmap} object
+     */
+    public Bitmap getBitmap(String key, Bitmap.Config config) {
+        return getBitmap(key, config, null);
+    }
+
+    /**
+     * Obtains a {@link Bitmap} object, if possible, from specified key's value. Values stored by
+     * {@link #putRaw(String, Bitmap)} are copied into a Bitmap taken from the pool, in the config they were stored with.
+     * Compressed values are decoded with the config given.
+     *
+     * @param key        Value's identifier
+     * @param config     Preferred {@link Bitmap.Config} of compressed values. Images with alpha are still decoded as ARGB_8888 if RGB_565 is given
+     * @param bitmapPool Pool to take the Bitmap raw pixels are copied into. Can be null
+     * @return {@link Bitmap} object
+     */
+    public Bitmap getBitmap(String key, Bitmap.Config config, BitmapPool bitmapPool) {
         Bitmap bitmap = null;
         Snapshot snapshot = null;
 
@@ -483,10 +508,16 @@ public final class DiskLruCache implements Closeable {
             }
 
             final InputStream in = snapshot.getInputStream(0);
-            if (in != null) {
+            if (in instanceof FileInputStream) {
+                // Raw pixels are copied as they are, without any codec
+                bitmap = RawBitmapFile.read(((FileInputStream) in).getChannel(), bitmapPool);
+            }
+            if (bitmap == null && in != null) {
                 final BufferedInputStream buffIn =
                         new BufferedInputStream(in, IOHelper.IO_BUFFER_SIZE);
-                bitmap = BitmapFactory.decodeStream(buffIn);
+                final BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inPreferredConfig = config;
+                bitmap = BitmapFactory.decodeStream(buffIn, null, options);
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -624,6 +655,45 @@ public final class DiskLruCache implements Closeable {
         return put(key, bitmap, Bitmap.CompressFormat.JPEG, 100);
     }
 
+    /**
+     * Inserts the raw pixels of a bitmap into disk cache, along with its distinctive key. Reading them back is a memory
+     * copy instead of a decode, but they take as much space on disk as the bitmap in memory. Bitmaps that can't be
+     * copied, such as hardware ones, are compressed as PNG instead.
+     *
+     * @param key    {@link String} representing the entry key, to retrieve it later.
+     * @param bitmap {@link Bitmap} to store on disk cache.
+     * @return True if bitmap was stored, False otherwise.
+     */
+    public boolean putRaw(String key, Bitmap bitmap) {
+        if (!RawBitmapFile.canWrite(bitmap)) {
+            put(key, bitmap, Bitmap.CompressFormat.PNG, 100);
+            return containsKey(key);
+        }
+
+        Editor editor = null;
+        try {
+            editor = edit(key);
+            if (editor == null) {
+                return false;
+            }
+            RawBitmapFile.write(bitmap, editor.newFile(0));
+            flush();
+            editor.commit();
+            if (BuildConfig.DEBUG) {
+                Log.d("DiskLruCache", "SUCCESS: raw image successfully stored on disk cache " + key);
+            }
+            return true;
+        } catch (IOException e) {
+            if (BuildConfig.DEBUG) {
+                Log.d("DiskLruCache", "ERROR trying to store the raw image on disk cache " + key);
+            }
+            if (editor != null) {
+                editor.abortUnlessCommitted();
+            }
+            return false;
+        }
+    }
+
     /**
      * Writes bitmap data into a file.
      *
@@ -989,6 +1059,24 @@ public final class DiskLruCache implements Closeable {
             }
         }
 
+        /**
+         * Returns the file to write the value at {@code index} to, for values
+         * written without a stream, e.g. memory-mapped. Its contents are
+         * published on {@link #commit}.
+         */
+        public File newFile(int index) throws IOException {
+            synchronized (DiskLruCache.this) {
+                if (entry.currentEditor != this) {
+                    throw new IllegalStateException();
+                }
+                if (!entry.readable) {
+                    written[index] = true;
+                }
+                directory.mkdirs();
+                return entry.getDirtyFile(index);
+            }
+        }
+
         /**
          * Sets the value at {@code index} to {@code value}.
          */
@@ -0,0 +1,341 @@
+package com.test.drawableloader.cacheutils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Disk cache of HTTP responses, images are decoded from. Response bodies are streamed straight from the connection into
+ * a {@link DiskLruCache} entry, never held in memory as a whole, and the entry's second value keeps the validators of
+ * the response: ETag, Last-Modified and expiration time.
+ * <p>
+ * Fresh responses are served from disk without touching the network. Stale ones are revalidated with a conditional
+ * GET, and only downloaded again if the server says they changed. If the server can't be reached, stale responses are
+ * served as they are. Concurrent requests for the same URL share a single download.
+ * </p>
+ * <p>
+ * The {@link DiskLruCache} is opened on the first request, so its journal is never read on the main thread.
+ * </p>
+ */
+public class HttpDiskCache {
+    private static final int APP_VERSION = 1;
+    private static final int VALUE_COUNT = 2;
+    private static final int BODY = 0;
+    private static final int METADATA = 1;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int TIMEOUT_MILLIS = 15 * 1000;
+
+    private final File directory;
+    private final long maxSize;
+    private final ConcurrentHashMap<String, Download> downloads = new ConcurrentHashMap<>();
+    private final AtomicInteger downloadCount = new AtomicInteger();
+    private final AtomicInteger notModifiedCount = new AtomicInteger();
+    private final AtomicInteger coalescedCount = new AtomicInteger();
+    private DiskLruCache diskLruCache;
+
+    /**
+     * @param directory Directory responses are stored in. It must not be shared with another cache.
+     * @param maxSize   Maximum size of the stored responses, in bytes.
+     */
+    public HttpDiskCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Opens the body of the response for an URL, downloading or revalidating it first if needed. Blocks until it's
+     * on disk, so it must not be called on the main thread.
+     *
+     * @param url URL of the image.
+     * @return Stream of the response body read from disk, to be closed by the caller.
+     * @throws IOException If the response isn't on disk and couldn't be downloaded.
+     */
+    public InputStream open(URL url) throws IOException {
+        final String key = keyOf(url);
+        final Download download = new Download();
+        final Download inFlight = downloads.putIfAbsent(key, download);
+        if (inFlight != null) {
+            // Someone else is already downloading it, read it once it's on disk
+            coalescedCount.incrementAndGet();
+            inFlight.await();
+            return read(key);
+        }
+
+        try {
+            refresh(url, key);
+        } catch (IOException e) {
+            download.failure = e;
+            throw e;
+        } finally {
+            downloads.remove(key, download);
+            download.finish();
+        }
+        return read(key);
+    }
+
+    /**
+     * @return Number of responses downloaded with their body.
+     */
+    public int getDownloadCount() {
+        return downloadCount.get();
+    }
+
+    /**
+     * @return Number of stale responses the server confirmed with a 304, without sending their body again.
+     */
+    public int getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * @return Number of requests served by a download started by another request.
+     */
+    public int getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Makes sure a fresh or revalidated response is on disk.
+     */
+    private void refresh(URL url, String key) throws IOException {
+        final DiskLruCache cache = cache();
+        Metadata metadata = null;
+        final DiskLruCache.Snapshot snapshot = cache.get(key);
+        if (snapshot != null) {
+            try {
+                metadata = Metadata.parse(snapshot.getString(METADATA));
+            } finally {
+                snapshot.close();
+            }
+        }
+        final long now = System.currentTimeMillis();
+        if (metadata != null && metadata.expiresAt > now) {
+            return;
+        }
+
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            // Responses are cached here, a platform cache would only store them twice
+            connection.setUseCaches(false);
+            if (metadata != null) {
+                if (metadata.etag != null) {
+                    connection.setRequestProperty("If-None-Match", metadata.etag);
+                }
+                if (metadata.lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", metadata.lastModified);
+                }
+            }
+
+            final int responseCode;
+            try {
+                responseCode = connection.getResponseCode();
+            } catch (IOException e) {
+                if (metadata != null) {
+                    // Server can't be reached, a stale image is better than none
+                    return;
+                }
+                throw e;
+            }
+
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && metadata != null) {
+                notModifiedCount.incrementAndGet();
+                writeMetadata(cache, key, metadata.revalidated(connection, now));
+                return;
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + responseCode + " for " + url);
+            }
+            writeResponse(cache, key, connection, Metadata.of(connection, now));
+            downloadCount.incrementAndGet();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void writeResponse(DiskLruCache cache, String key, HttpURLConnection connection, Metadata metadata)
+            throws IOException {
+        final DiskLruCache.Editor editor = cache.edit(key);
+        if (editor == null) {
+            throw new IOException("Response " + key + " is being written");
+        }
+        try {
+            final InputStream in = connection.getInputStream();
+            final OutputStream out = editor.newOutputStream(BODY);
+            try {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                }
+            } finally {
+                IOHelper.closeQuietly(out);
+                IOHelper.closeQuietly(in);
+            }
+            editor.set(METADATA, metadata.toString());
+            editor.commit();
+        } finally {
+            editor.abortUnlessCommitted();
+        }
+    }
+
+    private static void writeMetadata(DiskLruCache cache, String key, Metadata metadata) throws IOException {
+        final DiskLruCache.Editor editor = cache.edit(key);
+        if (editor == null) {
+            // Body on disk is still valid, validators are refreshed next time
+            return;
+        }
+        try {
+            // Body of an existing entry is kept as it is
+            editor.set(METADATA, metadata.toString());
+            editor.commit();
+        } finally {
+            editor.abortUnlessCommitted();
+        }
+    }
+
+    private InputStream read(String key) throws IOException {
+        final DiskLruCache.Snapshot snapshot = cache().get(key);
+        if (snapshot == null) {
+            throw new FileNotFoundException("Response " + key + " was evicted from disk");
+        }
+        return new FilterInputStream(snapshot.getInputStream(BODY)) {
+            @Override
+            public void close() {
+                snapshot.close();
+            }
+        };
+    }
+
+    private synchronized DiskLruCache cache() throws IOException {
+        if (diskLruCache == null || diskLruCache.isClosed()) {
+            diskLruCache = DiskLruCache.open(directory, APP_VERSION, VALUE_COUNT, maxSize);
+        }
+        return diskLruCache;
+    }
+
+    /**
+     * {@link DiskLruCache} keys must match {@code [a-z0-9_-]{1,120}}, URLs are hashed to fit.
+     */
+    private static String keyOf(URL url) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(url.toString().getBytes(IOHelper.UTF_8));
+            final StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Download in flight, other requests for the same URL wait for.
+     */
+    private static final class Download {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile IOException failure;
+
+        void finish() {
+            done.countDown();
+        }
+
+        void await() throws IOException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for download");
+            }
+            if (failure != null) {
+                throw new IOException("Download failed", failure);
+            }
+        }
+    }
+
+    /**
+     * Validators and expiration time of a response, stored one per line.
+     */
+    static final class Metadata {
+        final String etag;
+        final String lastModified;
+        final long expiresAt;
+
+        Metadata(String etag, String lastModified, long expiresAt) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        static Metadata of(HttpURLConnection connection, long now) {
+            return new Metadata(connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"),
+                    expiresAt(connection, now));
+        }
+
+        /**
+         * Validators of a 304 response, which may only send the ones that changed.
+         */
+        Metadata revalidated(HttpURLConnection connection, long now) {
+            final String etag = connection.getHeaderField("ETag");
+            final String lastModified = connection.getHeaderField("Last-Modified");
+            return new Metadata(etag != null ? etag : this.etag, lastModified != null ? lastModified : this.lastModified,
+                    expiresAt(connection, now));
+        }
+
+        static Metadata parse(String value) {
+            final String[] lines = value.split("\n", -1);
+            if (lines.length != 3) {
+                return null;
+            }
+            try {
+                return new Metadata(lines[0].isEmpty() ? null : lines[0], lines[1].isEmpty() ? null : lines[1],
+                        Long.parseLong(lines[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Expiration time from Cache-Control max-age, or from the Expires header. Responses without any, or with
+         * no-cache, are revalidated every time.
+         */
+        static long expiresAt(HttpURLConnection connection, long now) {
+            final String cacheControl = connection.getHeaderField("Cache-Control");
+            if (cacheControl != null) {
+                for (String directive : cacheControl.split(",")) {
+                    final String trimmed = directive.trim().toLowerCase(Locale.US);
+                    if (trimmed.equals("no-cache") || trimmed.equals("no-store")) {
+                        return 0;
+                    }
+                    if (trimmed.startsWith("max-age=")) {
+                        try {
+                            return now + Long.parseLong(trimmed.substring("max-age=".length())) * 1000;
+                        } catch (NumberFormatException ignored) {
+                            //Malformed max-age, fall back to Expires
+                        }
+                    }
+                }
+            }
+            return connection.getExpiration();
+        }
+
+        @Override
+        public String toString() {
+            return (etag != null ? etag : "") + "\n" + (lastModified != null ? lastModified : "") + "\n" + expiresAt;
+        }
+    }
+}
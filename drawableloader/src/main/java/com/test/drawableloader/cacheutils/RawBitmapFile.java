@@ -0,0 +1,223 @@
+package com.test.drawableloader.cacheutils;
+
+import android.graphics.Bitmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>
+ * Disk cache file holding the raw pixels of a Bitmap behind a small header, so it's read back with a memory copy
+ * instead of a decode. Files are memory-mapped both ways: pixels are copied straight between the Bitmap and the
+ * mapped file, without any codec nor intermediate buffer.
+ * </p>
+ * <p>
+ * The header is made of big endian ints: magic, width, height, config, stride (bytes per row), density and flags.
+ * Its magic can't be mistaken for the start of a PNG, JPEG or WebP file, so raw and compressed entries can share a cache.
+ * </p>
+ */
+public final class RawBitmapFile {
+    static final int MAGIC = 0x44524157; // "DRAW"
+    static final int HEADER_SIZE = 32;
+    private static final int FLAG_HAS_ALPHA = 1;
+
+    private RawBitmapFile() {
+    }
+
+    /**
+     * Tells if a Bitmap can be stored as raw pixels. Hardware and recycled Bitmaps can't be copied.
+     *
+     * @param bitmap {@link Bitmap} to be stored.
+     * @return True if its pixels can be written to a raw file, False otherwise.
+     */
+    public static boolean canWrite(Bitmap bitmap) {
+        return bitmap != null && !bitmap.isRecycled() && configCode(bitmap.getConfig()) != 0;
+    }
+
+    /**
+     * Writes the pixels of a Bitmap to a file, replacing its contents.
+     *
+     * @param bitmap {@link Bitmap} to be written, see {@link #canWrite(Bitmap)}.
+     * @param file   Destination file.
+     * @throws IOException If file couldn't be written.
+     */
+    public static void write(Bitmap bitmap, File file) throws IOException {
+        final Header header = new Header(bitmap.getWidth(), bitmap.getHeight(), configCode(bitmap.getConfig()),
+                bitmap.getRowBytes(), bitmap.getDensity(), bitmap.hasAlpha());
+        final RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = out.getChannel();
+            final long size = HEADER_SIZE + header.pixelBytes();
+            out.setLength(size);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            header.writeTo(buffer);
+            bitmap.copyPixelsToBuffer(buffer);
+        } finally {
+            IOHelper.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Tells if an opened file is a raw file, without moving the position of its channel.
+     *
+     * @param channel Channel of the opened file.
+     * @return True if the file starts with a valid raw header, False otherwise.
+     * @throws IOException If file couldn't be read.
+     */
+    public static boolean isRaw(FileChannel channel) throws IOException {
+        return readHeader(channel) != null;
+    }
+
+    /**
+     * Reads the pixels of a raw file into a Bitmap, taken from the pool if possible.
+     *
+     * @param channel    Channel of the opened file.
+     * @param bitmapPool Pool to take the destination Bitmap from. Can be null.
+     * @return {@link Bitmap} with the stored pixels, null if the file isn't a raw file.
+     * @throws IOException If file couldn't be read.
+     */
+    public static Bitmap read(FileChannel channel, BitmapPool bitmapPool) throws IOException {
+        final Header header = readHeader(channel);
+        if (header == null) {
+            return null;
+        }
+        final Bitmap.Config config = configOf(header.config);
+        Bitmap bitmap = bitmapPool != null ? bitmapPool.get(header.width, header.height, config) : null;
+        if (bitmap != null && bitmap.getRowBytes() != header.stride) {
+            // Pixels rows wouldn't line up, leave this one for a decode
+            bitmapPool.put(bitmap);
+            bitmap = null;
+        }
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(header.width, header.height, config);
+            if (bitmap.getRowBytes() != header.stride) {
+                return null;
+            }
+        }
+
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, header.pixelBytes());
+        bitmap.copyPixelsFromBuffer(buffer);
+        bitmap.setHasAlpha(header.hasAlpha);
+        bitmap.setDensity(header.density);
+        return bitmap;
+    }
+
+    private static Header readHeader(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        if (size < HEADER_SIZE) {
+            return null;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                return null;
+            }
+        }
+        buffer.flip();
+        final Header header = Header.readFrom(buffer);
+        return header != null && size >= HEADER_SIZE + header.pixelBytes() ? header : null;
+    }
+
+    static int configCode(Bitmap.Config config) {
+        if (config == null) {
+            return 0;
+        }
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+                return 2;
+            case ARGB_4444:
+                return 3;
+            case ARGB_8888:
+                return 4;
+            default:
+                // Hardware Bitmaps can't be copied, other configs aren't known on every API level
+                return 0;
+        }
+    }
+
+    static Bitmap.Config configOf(int code) {
+        switch (code) {
+            case 1:
+                return Bitmap.Config.ALPHA_8;
+            case 2:
+                return Bitmap.Config.RGB_565;
+            case 3:
+                return Bitmap.Config.ARGB_4444;
+            case 4:
+                return Bitmap.Config.ARGB_8888;
+            default:
+                return null;
+        }
+    }
+
+    static int bytesPerPixel(int code) {
+        switch (code) {
+            case 1:
+                return 1;
+            case 2:
+            case 3:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+
+    /**
+     * Header of a raw file.
+     */
+    static final class Header {
+        final int width;
+        final int height;
+        final int config;
+        final int stride;
+        final int density;
+        final boolean hasAlpha;
+
+        Header(int width, int height, int config, int stride, int density, boolean hasAlpha) {
+            this.width = width;
+            this.height = height;
+            this.config = config;
+            this.stride = stride;
+            this.density = density;
+            this.hasAlpha = hasAlpha;
+        }
+
+        long pixelBytes() {
+            return (long) stride * height;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putInt(MAGIC)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(config)
+                    .putInt(stride)
+                    .putInt(density)
+                    .putInt(hasAlpha ? FLAG_HAS_ALPHA : 0)
+                    .putInt(0); // Reserved
+        }
+
+        /**
+         * @return Header read from the buffer, null if it isn't a valid raw header.
+         */
+        static Header readFrom(ByteBuffer buffer) {
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                return null;
+            }
+            final Header header = new Header(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                    buffer.getInt(), (buffer.getInt() & FLAG_HAS_ALPHA) != 0);
+            buffer.getInt();
+            if (header.width <= 0 || header.height <= 0 || configOf(header.config) == null
+                    || header.stride < (long) header.width * bytesPerPixel(header.config)) {
+                return null;
+            }
+            return header;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.test.drawableloader.decoder
+
+import android.graphics.Bitmap
+
+/**
+ * Chooses the [Bitmap.Config] images are decoded with.
+ */
+enum class ConfigPolicy {
+    /**
+     * Every image is decoded with the requested config, [Bitmap.Config.ARGB_8888] by default.
+     */
+    DEFAULT,
+
+    /**
+     * Images detected as opaque from their header (JPEG, PNG without alpha channel nor transparency, WebP without alpha)
+     * are decoded as [Bitmap.Config.RGB_565], halving their memory. Any other image keeps [Bitmap.Config.ARGB_8888].
+     * Gradients may show banding in RGB_565, so this policy is opt-in.
+     */
+    AUTO
+}
@@ -0,0 +1,110 @@
+package com.test.drawableloader.decoder;
+
+/**
+ * <p>
+ * Process-wide admission gate for decodes. Every decode reserves the bytes it's going to allocate before allocating them
+ * and releases them once done, so parallel decodes can't add up to more than {@link #getMaxBytes()} at once even if each
+ * of them would fit alone.
+ * </p>
+ * <p>
+ * A reservation is always granted when nothing else is reserved, so a single decode bigger than the limit can't block
+ * forever. Decoders wait in bounded steps, checking in between whether their request was cancelled.
+ * </p>
+ */
+public class DecodeGate {
+    private final long maxBytes;
+    private long reservedBytes;
+    private long peakReservedBytes;
+    private int waitCount;
+    private int timeoutCount;
+
+    /**
+     * @param maxBytes Max number of bytes reserved at once.
+     */
+    public DecodeGate(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes <= 0");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Reserves bytes for a decode, waiting for other decodes to release theirs if needed.
+     *
+     * @param bytes         Bytes the decode is going to allocate.
+     * @param timeoutMillis Max time to wait for the reservation. 0 to wait as long as needed.
+     * @return True if bytes were reserved and must be given back with {@link #release(long)}, False if wait timed out.
+     * @throws InterruptedException If thread was interrupted while waiting.
+     */
+    public synchronized boolean reserve(long bytes, long timeoutMillis) throws InterruptedException {
+        if (!fits(bytes)) {
+            waitCount++;
+            final long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (!fits(bytes)) {
+                if (timeoutMillis == 0) {
+                    wait();
+                } else {
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        timeoutCount++;
+                        return false;
+                    }
+                    wait(remaining);
+                }
+            }
+        }
+
+        reservedBytes += bytes;
+        peakReservedBytes = Math.max(peakReservedBytes, reservedBytes);
+        return true;
+    }
+
+    /**
+     * Gives back bytes reserved with {@link #reserve(long, long)}, once the decode is done.
+     *
+     * @param bytes Bytes reserved.
+     */
+    public synchronized void release(long bytes) {
+        reservedBytes = Math.max(0, reservedBytes - bytes);
+        notifyAll();
+    }
+
+    private boolean fits(long bytes) {
+        return reservedBytes == 0 || reservedBytes + bytes <= maxBytes;
+    }
+
+    /**
+     * @return Max number of bytes reserved at once.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return Bytes currently reserved by decodes in flight.
+     */
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * @return Highest number of bytes reserved at once.
+     */
+    public synchronized long getPeakReservedBytes() {
+        return peakReservedBytes;
+    }
+
+    /**
+     * @return Number of reservations that had to wait for other decodes.
+     */
+    public synchronized int getWaitCount() {
+        return waitCount;
+    }
+
+    /**
+     * @return Number of reservations that timed out waiting.
+     */
+    public synchronized int getTimeoutCount() {
+        return timeoutCount;
+    }
+}
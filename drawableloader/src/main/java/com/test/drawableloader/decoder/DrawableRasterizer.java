@@ -0,0 +1,218 @@
+package com.test.drawableloader.decoder;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.TypedValue;
+
+import androidx.core.content.res.ResourcesCompat;
+import androidx.vectordrawable.graphics.drawable.VectorDrawableCompat;
+
+import com.test.drawableloader.cacheutils.BitmapPool;
+
+/**
+ * Rasterizes XML drawable resources, such as vector, shape or layer-list drawables, which {@link BitmapFactory} can't
+ * decode. The drawable is inflated and drawn once, off the main thread, into a pooled Bitmap of the requested size,
+ * so the result can be cached like any decoded Bitmap.
+ * <p>
+ * Vectors are resolution independent: they're drawn at the requested size, upscaled if needed, instead of being
+ * downsampled from their intrinsic size. Drawables are inflated without a theme, so theme attributes aren't resolved.
+ * </p>
+ */
+public class DrawableRasterizer {
+    /**
+     * Mime type rasterized Bitmaps report, so they keep their transparency on disk cache.
+     */
+    public static final String MIME_TYPE = "image/png";
+
+    private final BitmapPool bitmapPool;
+    private final HeapBudget heapBudget;
+
+    /**
+     * @param bitmapPool Pool to take destination Bitmaps from. Can be null.
+     * @param heapBudget Budget rasterized Bitmaps reserve their bytes from. Can be null.
+     */
+    public DrawableRasterizer(BitmapPool bitmapPool, HeapBudget heapBudget) {
+        this.bitmapPool = bitmapPool;
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * Tells if an opened resource is an XML drawable rather than an encoded image.
+     *
+     * @param value Value the resource was opened with, see {@link Resources#openRawResource(int, TypedValue)}.
+     * @return True if the resource file is an XML file, False otherwise.
+     */
+    public static boolean isXmlDrawable(TypedValue value) {
+        return value.string != null && value.string.toString().endsWith(".xml");
+    }
+
+    /**
+     * Rasterizes an XML drawable resource sized against the specified measures as the {@link ScaleMode} says.
+     * Drawables without intrinsic size, such as shapes, fill the required size.
+     *
+     * @param res               Resources package. You can get default resources package using {@link Activity#getResources()} inside an activity or {@link Context#getResources()} outside if a {@link Context} is available.
+     * @param resId             App resource id.
+     * @param reqWidth          Required width of the view where the Bitmap should fit.
+     * @param reqHeight         Required height of the view where the Bitmap should fit.
+     * @param scaleMode         How the Bitmap is sized against required width and height.
+     * @param options           Options of the decode. Once rasterized, it contains the Bitmap size and {@link #MIME_TYPE}.
+     * @param cancellationCheck Check of the request being cancelled. Can be null.
+     * @return Rasterized {@link Bitmap}, null if the drawable couldn't be inflated, has no size or request was cancelled.
+     * @throws InterruptedException If thread was interrupted while waiting for other decodes to release memory.
+     */
+    public Bitmap rasterize(Resources res, int resId, int reqWidth, int reqHeight, ScaleMode scaleMode,
+                            BitmapFactory.Options options, ResourceDecoder.CancellationCheck cancellationCheck)
+            throws InterruptedException {
+        final Drawable drawable = inflate(res, resId);
+        if (drawable == null) {
+            return null;
+        }
+        final int[] size = rasterSize(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(),
+                reqWidth, reqHeight, scaleMode);
+        if (size == null || (cancellationCheck != null && cancellationCheck.isCancelled())) {
+            return null;
+        }
+        return draw(res, drawable, size, options, cancellationCheck);
+    }
+
+    /**
+     * Rasterizes an XML drawable resource at its intrinsic size divided by an inSampleSize.
+     *
+     * @param res          Resources package. You can get default resources package using {@link Activity#getResources()} inside an activity or {@link Context#getResources()} outside if a {@link Context} is available.
+     * @param resId        App resource id.
+     * @param inSampleSize Determines how many times the intrinsic size is divided.
+     * @param options      Options of the decode. Once rasterized, it contains the Bitmap size and {@link #MIME_TYPE}.
+     * @return Rasterized {@link Bitmap}, null if the drawable couldn't be inflated or has no intrinsic size.
+     * @throws InterruptedException If thread was interrupted while waiting for other decodes to release memory.
+     */
+    public Bitmap rasterizeSampled(Resources res, int resId, int inSampleSize, BitmapFactory.Options options)
+            throws InterruptedException {
+        final Drawable drawable = inflate(res, resId);
+        if (drawable == null || drawable.getIntrinsicWidth() <= 0 || drawable.getIntrinsicHeight() <= 0) {
+            return null;
+        }
+        final int sampleSize = Math.max(1, inSampleSize);
+        final int width = Math.max(1, drawable.getIntrinsicWidth() / sampleSize);
+        final int height = Math.max(1, drawable.getIntrinsicHeight() / sampleSize);
+        return draw(res, drawable, new int[]{width, height, width, height}, options, null);
+    }
+
+    /**
+     * Calculates the size of the Bitmap a drawable is rasterized into, and the bounds it's drawn with.
+     * A required size of 0 leaves that side unconstrained.
+     *
+     * @param intrinsicWidth  Intrinsic width of the drawable, -1 if it has none.
+     * @param intrinsicHeight Intrinsic height of the drawable, -1 if it has none.
+     * @param reqWidth        Required width.
+     * @param reqHeight       Required height.
+     * @param scaleMode       How the Bitmap is sized against required width and height.
+     * @return Array with Bitmap width and height, then drawable width and height, centered on the Bitmap.
+     * Null if no size is known.
+     */
+    public static int[] rasterSize(int intrinsicWidth, int intrinsicHeight, int reqWidth, int reqHeight,
+                                   ScaleMode scaleMode) {
+        if (intrinsicWidth <= 0 || intrinsicHeight <= 0) {
+            // Shapes and colors fill whatever they're drawn in
+            final int width = reqWidth > 0 ? reqWidth : reqHeight;
+            final int height = reqHeight > 0 ? reqHeight : reqWidth;
+            return width > 0 ? new int[]{width, height, width, height} : null;
+        }
+        if (reqWidth <= 0 && reqHeight <= 0) {
+            return new int[]{intrinsicWidth, intrinsicHeight, intrinsicWidth, intrinsicHeight};
+        }
+        if (scaleMode == ScaleMode.EXACT) {
+            final int width = reqWidth > 0 ? reqWidth : intrinsicWidth;
+            final int height = reqHeight > 0 ? reqHeight : intrinsicHeight;
+            return new int[]{width, height, width, height};
+        }
+
+        final float widthFactor = (float) reqWidth / intrinsicWidth;
+        final float heightFactor = (float) reqHeight / intrinsicHeight;
+        final float factor;
+        if (reqWidth <= 0) {
+            factor = heightFactor;
+        } else if (reqHeight <= 0) {
+            factor = widthFactor;
+        } else if (scaleMode == ScaleMode.CENTER_CROP) {
+            factor = Math.max(widthFactor, heightFactor);
+        } else {
+            factor = Math.min(widthFactor, heightFactor);
+        }
+        final int drawWidth = Math.max(1, Math.round(intrinsicWidth * factor));
+        final int drawHeight = Math.max(1, Math.round(intrinsicHeight * factor));
+        if (scaleMode == ScaleMode.CENTER_CROP) {
+            return new int[]{reqWidth > 0 ? Math.min(drawWidth, reqWidth) : drawWidth,
+                    reqHeight > 0 ? Math.min(drawHeight, reqHeight) : drawHeight, drawWidth, drawHeight};
+        }
+        return new int[]{drawWidth, drawHeight, drawWidth, drawHeight};
+    }
+
+    private static Drawable inflate(Resources res, int resId) {
+        if (res == null) {
+            return null;
+        }
+        try {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+                // Framework only inflates vector drawables from Lollipop on
+                final VectorDrawableCompat vector = VectorDrawableCompat.create(res, resId, null);
+                if (vector != null) {
+                    return vector;
+                }
+            }
+            return ResourcesCompat.getDrawable(res, resId, null);
+        } catch (RuntimeException e) {
+            // Same as a Bitmap that can't be decoded, e.g. a drawable needing theme attributes
+            return null;
+        }
+    }
+
+    private Bitmap draw(Resources res, Drawable drawable, int[] size, BitmapFactory.Options options,
+                        ResourceDecoder.CancellationCheck cancellationCheck) throws InterruptedException {
+        long reservedBytes = 0;
+        try {
+            options.outWidth = size[0];
+            options.outHeight = size[1];
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            options.inSampleSize = 1;
+            if (heapBudget != null) {
+                reservedBytes = heapBudget.reserve(options, cancellationCheck);
+                if (cancellationCheck != null && cancellationCheck.isCancelled()) {
+                    return null;
+                }
+            }
+            options.outMimeType = MIME_TYPE;
+
+            Bitmap bitmap = bitmapPool != null ? bitmapPool.get(size[0], size[1], Bitmap.Config.ARGB_8888) : null;
+            if (bitmap == null) {
+                bitmap = Bitmap.createBitmap(size[0], size[1], Bitmap.Config.ARGB_8888);
+            } else {
+                bitmap.eraseColor(Color.TRANSPARENT);
+            }
+            if (res.getDisplayMetrics() != null) {
+                bitmap.setDensity(res.getDisplayMetrics().densityDpi);
+            }
+
+            final int left = (size[0] - size[2]) / 2;
+            final int top = (size[1] - size[3]) / 2;
+            drawable.setBounds(left, top, left + size[2], top + size[3]);
+            drawable.draw(new Canvas(bitmap));
+            return bitmap;
+        } catch (OutOfMemoryError e) {
+            if (heapBudget != null) {
+                heapBudget.onOutOfMemoryRetry();
+            }
+            return null;
+        } finally {
+            if (reservedBytes > 0) {
+                heapBudget.release(reservedBytes);
+            }
+        }
+    }
+}
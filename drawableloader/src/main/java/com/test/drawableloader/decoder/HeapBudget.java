@@ -0,0 +1,282 @@
+package com.test.drawableloader.decoder;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import com.test.drawableloader.cacheutils.BitmapPool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Predicts whether a decode fits in memory before allocating it. The decoded byte size is estimated from image bounds,
+ * inSampleSize and {@link Bitmap.Config}, and compared with the memory still available to the app: Java heap before
+ * Oreo, where Bitmap pixels live, and the system's available memory above its low memory threshold from Oreo on.
+ * </p>
+ * <p>
+ * Decodes are never downsampled below the size their request asked for to fit the budget: such a Bitmap would be cached
+ * under the request's key and outlive the memory pressure. Decodes over budget are only counted through
+ * {@link #getOverBudgetCount()}.
+ * </p>
+ * <p>
+ * Decodes running in parallel are coordinated through a {@link DecodeGate} limited to half the heap limit, so their
+ * allocations together fit as well.
+ * </p>
+ * <p>
+ * Catching {@link OutOfMemoryError} stays as a last resort only, and is counted through {@link #onOutOfMemoryRetry()}.
+ * </p>
+ */
+public class HeapBudget {
+    private static final long MB = 1024 * 1024;
+    private static final float DEFAULT_MAX_FRACTION = 0.25f;
+    private static final float IN_FLIGHT_FRACTION = 0.5f;
+    private static final long ADMISSION_TIMEOUT_MILLIS = 500;
+    private static HeapBudget defaultBudget;
+
+    private final ActivityManager activityManager;
+    private final long memoryClassBytes;
+    private final float maxFraction;
+    private final DecodeGate decodeGate;
+    private final AtomicInteger overBudgetCount = new AtomicInteger();
+    private final AtomicInteger outOfMemoryRetryCount = new AtomicInteger();
+
+    /**
+     * Budget based on Java heap only, used when no {@link Context} is available.
+     */
+    public HeapBudget() {
+        this.activityManager = null;
+        this.memoryClassBytes = 0;
+        this.maxFraction = DEFAULT_MAX_FRACTION;
+        this.decodeGate = new DecodeGate((long) (heapLimitBytes() * IN_FLIGHT_FRACTION));
+    }
+
+    /**
+     * Budget based on the app's memory class.
+     *
+     * @param context {@link Context} to get {@link ActivityManager} from.
+     */
+    public HeapBudget(Context context) {
+        this(context, DEFAULT_MAX_FRACTION);
+    }
+
+    /**
+     * Budget based on the app's memory class.
+     *
+     * @param context     {@link Context} to get {@link ActivityManager} from.
+     * @param maxFraction Max fraction of the available memory a single decode may take, from 0 to 1.
+     */
+    public HeapBudget(Context context, float maxFraction) {
+        if (maxFraction <= 0 || maxFraction > 1) {
+            throw new IllegalArgumentException("maxFraction must be in (0, 1]");
+        }
+        final ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        long memoryClass = 0;
+        if (activityManager != null) {
+            memoryClass = activityManager.getMemoryClass() * MB;
+            // Apps with largeHeap get more than their memory class
+            if (Runtime.getRuntime().maxMemory() > memoryClass) {
+                memoryClass = activityManager.getLargeMemoryClass() * MB;
+            }
+        }
+        this.activityManager = activityManager;
+        this.memoryClassBytes = memoryClass;
+        this.maxFraction = maxFraction;
+        this.decodeGate = new DecodeGate((long) (heapLimitBytes() * IN_FLIGHT_FRACTION));
+    }
+
+    /**
+     * Gets the budget used by decoders, creating a Java heap based one if none was set.
+     *
+     * @return Default {@link HeapBudget}.
+     */
+    public static synchronized HeapBudget getDefault() {
+        if (defaultBudget == null) {
+            defaultBudget = new HeapBudget();
+        }
+        return defaultBudget;
+    }
+
+    /**
+     * Sets the budget used by decoders.
+     *
+     * @param budget New default {@link HeapBudget}.
+     */
+    public static synchronized void setDefault(HeapBudget budget) {
+        defaultBudget = budget;
+    }
+
+    /**
+     * Estimates the number of bytes a decode allocates.
+     *
+     * @param width        Width of the image, as given by a bounds decode.
+     * @param height       Height of the image, as given by a bounds decode.
+     * @param inSampleSize inSampleSize of the decode.
+     * @param config       {@link Bitmap.Config} of the decode.
+     * @return Estimated size of the decoded Bitmap in bytes.
+     */
+    public static long estimateBytes(int width, int height, int inSampleSize, Bitmap.Config config) {
+        final int sampleSize = Math.max(1, inSampleSize);
+        final long sampledWidth = (width + sampleSize - 1) / sampleSize;
+        final long sampledHeight = (height + sampleSize - 1) / sampleSize;
+        return sampledWidth * sampledHeight * BitmapPool.getBytesPerPixel(config != null ? config : Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Tells if a decode fits in a byte budget.
+     *
+     * @param width        Width of the image, as given by a bounds decode.
+     * @param height       Height of the image, as given by a bounds decode.
+     * @param inSampleSize inSampleSize of the decode.
+     * @param config       {@link Bitmap.Config} of the decode.
+     * @param budgetBytes  Bytes the decode may allocate.
+     * @return True if the decode allocates no more than the budget, False otherwise.
+     */
+    public static boolean fits(int width, int height, int inSampleSize, Bitmap.Config config, long budgetBytes) {
+        return estimateBytes(width, height, inSampleSize, config) <= budgetBytes;
+    }
+
+    /**
+     * Tells if a decode fits in the memory currently available, counting it through {@link #getOverBudgetCount()}
+     * otherwise. The decode isn't downsampled: the inSampleSize its request fits with is a floor, real shortage is left
+     * to the {@link OutOfMemoryError} fallback.
+     *
+     * @param options Options with bounds decoded, inSampleSize and inPreferredConfig set.
+     * @return True if the decode fits, False otherwise.
+     */
+    public boolean fits(BitmapFactory.Options options) {
+        final long budget = (long) (availableBytes() * maxFraction);
+        if (fits(options.outWidth, options.outHeight, options.inSampleSize, options.inPreferredConfig, budget)) {
+            return true;
+        }
+        overBudgetCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Calculates the memory the system can still give before it considers itself low on memory and starts killing
+     * background processes.
+     *
+     * @param availMem  Available memory, see {@link ActivityManager.MemoryInfo#availMem}.
+     * @param threshold Low memory threshold, see {@link ActivityManager.MemoryInfo#threshold}.
+     * @return Bytes available above the threshold.
+     */
+    public static long headroomBytes(long availMem, long threshold) {
+        return Math.max(0, availMem - threshold);
+    }
+
+    /**
+     * Reserves the bytes a decode is going to allocate from the {@link DecodeGate}, waiting as long as other decodes in
+     * flight need to release enough bytes. The gate always admits a decode when nothing else is reserved, so waiting
+     * can't block forever.
+     *
+     * @param options Options with bounds decoded, inSampleSize and inPreferredConfig set.
+     * @return Bytes reserved, to be given back with {@link #release(long)} once the decode is done.
+     * @throws InterruptedException If thread was interrupted while waiting.
+     */
+    public long reserve(BitmapFactory.Options options) throws InterruptedException {
+        return reserve(options, null);
+    }
+
+    /**
+     * Reserves the bytes a decode is going to allocate from the {@link DecodeGate}, like
+     * {@link #reserve(BitmapFactory.Options)} does, giving up if the request is cancelled meanwhile.
+     * <p>
+     * The decode is never downsampled to be admitted sooner: such a Bitmap would be cached under the request's key and
+     * stay low resolution once the burst of decodes is over.
+     * </p>
+     *
+     * @param options           Options with bounds decoded, inSampleSize and inPreferredConfig set.
+     * @param cancellationCheck Check of the request being cancelled. Can be null.
+     * @return Bytes reserved, to be given back with {@link #release(long)} once the decode is done. 0 if request was
+     * cancelled while waiting.
+     * @throws InterruptedException If thread was interrupted while waiting.
+     */
+    public long reserve(BitmapFactory.Options options, ResourceDecoder.CancellationCheck cancellationCheck)
+            throws InterruptedException {
+        final long bytes = estimateBytes(options.outWidth, options.outHeight, options.inSampleSize,
+                options.inPreferredConfig);
+        return reserve(decodeGate, bytes, cancellationCheck) ? bytes : 0;
+    }
+
+    /**
+     * Reserves bytes from a {@link DecodeGate}, waiting in bounded steps so a cancelled request doesn't hold its
+     * thread until other decodes are done.
+     *
+     * @param decodeGate        Gate to reserve bytes from.
+     * @param bytes             Bytes the decode is going to allocate.
+     * @param cancellationCheck Check of the request being cancelled. Can be null.
+     * @return True if bytes were reserved and must be given back, False if request was cancelled while waiting.
+     * @throws InterruptedException If thread was interrupted while waiting.
+     */
+    public static boolean reserve(DecodeGate decodeGate, long bytes, ResourceDecoder.CancellationCheck cancellationCheck)
+            throws InterruptedException {
+        while (!decodeGate.reserve(bytes, ADMISSION_TIMEOUT_MILLIS)) {
+            if (cancellationCheck != null && cancellationCheck.isCancelled()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives back bytes reserved with {@link #reserve(BitmapFactory.Options)}.
+     *
+     * @param bytes Bytes reserved.
+     */
+    public void release(long bytes) {
+        decodeGate.release(bytes);
+    }
+
+    /**
+     * @return Gate decodes reserve their bytes from.
+     */
+    public DecodeGate getDecodeGate() {
+        return decodeGate;
+    }
+
+    private long heapLimitBytes() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && memoryClassBytes > 0) {
+            return memoryClassBytes;
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * @return Bytes of memory the app can still allocate for Bitmap pixels.
+     */
+    public long availableBytes() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && activityManager != null) {
+            // Pixels are allocated in native memory, which isn't bound by the heap limit. Native heap usage counts
+            // cached and pooled Bitmaps too, what matters is the memory the system can still give
+            final ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+            activityManager.getMemoryInfo(memoryInfo);
+            return headroomBytes(memoryInfo.availMem, memoryInfo.threshold);
+        }
+        final Runtime runtime = Runtime.getRuntime();
+        return Math.max(0, runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory()));
+    }
+
+    /**
+     * Records a decode that still failed with {@link OutOfMemoryError} and fell back to the retry loop.
+     */
+    public void onOutOfMemoryRetry() {
+        outOfMemoryRetryCount.incrementAndGet();
+    }
+
+    /**
+     * @return Number of decodes that didn't fit in the memory available at the size their request asked for.
+     */
+    public int getOverBudgetCount() {
+        return overBudgetCount.get();
+    }
+
+    /**
+     * @return Number of times the {@link OutOfMemoryError} fallback fired.
+     */
+    public int getOutOfMemoryRetryCount() {
+        return outOfMemoryRetryCount.get();
+    }
+}
@@ -0,0 +1,124 @@
+package com.test.drawableloader.decoder;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Tells whether an encoded image has no transparency by reading only its header, so {@link ConfigPolicy#AUTO} can
+ * pick a config before the pixel pass.
+ */
+public final class OpaqueDetector {
+    private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final int PNG_IHDR = 0x49484452;
+    private static final int PNG_TRNS = 0x74524E53;
+    private static final int PNG_IDAT = 0x49444154;
+    private static final int PNG_COLOR_GRAY = 0;
+    private static final int PNG_COLOR_RGB = 2;
+    private static final int RIFF = 0x52494646;
+    private static final int WEBP = 0x57454250;
+    private static final int WEBP_VP8 = 0x56503820;
+    private static final int WEBP_VP8L = 0x5650384C;
+    private static final int WEBP_VP8X = 0x56503858;
+    private static final int WEBP_VP8X_ALPHA_FLAG = 0x10;
+
+    private OpaqueDetector() {
+    }
+
+    /**
+     * @param in       Stream positioned at the start of the encoded image. It's read past the header, callers rewind it.
+     * @param mimeType Mime type given by a bounds decode, e.g. 'image/jpeg'. Can be null.
+     * @return True if image can't have transparent pixels, False if it can or it's unknown.
+     * @throws IOException If stream can't be read.
+     */
+    public static boolean isOpaque(InputStream in, String mimeType) throws IOException {
+        if ("image/jpeg".equals(mimeType)) {
+            return true;
+        }
+        try {
+            if ("image/png".equals(mimeType)) {
+                return isOpaquePng(new DataInputStream(in));
+            }
+            if ("image/webp".equals(mimeType)) {
+                return isOpaqueWebp(new DataInputStream(in));
+            }
+        } catch (EOFException e) {
+            // Truncated header, can't tell
+            return false;
+        }
+        return false;
+    }
+
+    private static boolean isOpaquePng(DataInputStream in) throws IOException {
+        if (in.readLong() != PNG_SIGNATURE) {
+            return false;
+        }
+        // IHDR: width, height, bit depth, color type
+        final int ihdrLength = in.readInt();
+        if (in.readInt() != PNG_IHDR) {
+            return false;
+        }
+        skipFully(in, 9);
+        final int colorType = in.readUnsignedByte();
+        if (colorType != PNG_COLOR_GRAY && colorType != PNG_COLOR_RGB) {
+            // Palette and alpha color types may be transparent
+            return false;
+        }
+        skipFully(in, ihdrLength - 10 + 4);
+
+        // Transparency chunk must come before image data
+        while (true) {
+            final int length = in.readInt();
+            final int type = in.readInt();
+            if (type == PNG_TRNS) {
+                return false;
+            }
+            if (type == PNG_IDAT) {
+                return true;
+            }
+            skipFully(in, (long) length + 4);
+        }
+    }
+
+    private static boolean isOpaqueWebp(DataInputStream in) throws IOException {
+        if (in.readInt() != RIFF) {
+            return false;
+        }
+        skipFully(in, 4);
+        if (in.readInt() != WEBP) {
+            return false;
+        }
+        final int chunk = in.readInt();
+        skipFully(in, 4);
+        if (chunk == WEBP_VP8) {
+            // Simple lossy format has no alpha
+            return true;
+        }
+        if (chunk == WEBP_VP8X) {
+            return (in.readUnsignedByte() & WEBP_VP8X_ALPHA_FLAG) == 0;
+        }
+        if (chunk == WEBP_VP8L) {
+            // Signature byte, then 14 bits width, 14 bits height and alpha_is_used bit, little endian
+            skipFully(in, 1);
+            final int bits = in.readUnsignedByte() | in.readUnsignedByte() << 8
+                    | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 24;
+            return ((bits >>> 28) & 1) == 0;
+        }
+        return false;
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            final long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                count--;
+            } else {
+                count -= skipped;
+            }
+        }
+    }
+}
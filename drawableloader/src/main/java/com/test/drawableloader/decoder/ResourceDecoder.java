@@ -0,0 +1,476 @@
+package com.test.drawableloader.decoder;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import com.test.drawableloader.DrawableLoader;
+import com.test.drawableloader.cacheutils.BitmapPool;
+import com.test.drawableloader.source.DataSource;
+import com.test.drawableloader.source.ResourceSource;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes Bitmaps from app resources and any other {@link DataSource}. Shared by synchronous and asynchronous render
+ * methods, so every path downsamples, checks decodes against the {@link HeapBudget}, reserves their bytes from its
+ * {@link DecodeGate} and reuses pooled Bitmaps the same way.
+ * <p>
+ * The source is opened only once per decode: bounds and pixel passes read the same stream, rewound in between,
+ * instead of opening, inflating and parsing the resource from the APK, or reading the file, for each pass.
+ * </p>
+ * <p>
+ * XML drawables, such as vectors, are detected once opened and rasterized by a {@link DrawableRasterizer} instead.
+ * </p>
+ */
+public class ResourceDecoder {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // Streams marking natively, such as the APK's assets or in memory sources, are rewound after whole image is read
+    // without copying anything, mark must stay valid for any image size
+    private static final int MARK_LIMIT = Integer.MAX_VALUE;
+    // Buffered streams only keep what bounds and header reads need, passes reading further open the source again
+    private static final int BUFFERED_MARK_LIMIT = 64 * 1024;
+
+    private final BitmapPool bitmapPool;
+    private final HeapBudget heapBudget;
+    private final ConfigPolicy configPolicy;
+
+    /**
+     * Tells a running decode whether its request was cancelled, so it stops before allocating and decoding pixels.
+     */
+    public interface CancellationCheck {
+        /**
+         * @return True if the request the decode belongs to was cancelled, False otherwise.
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * Decoder checking decodes against {@link HeapBudget#getDefault()}.
+     *
+     * @param bitmapPool Pool to take {@link BitmapFactory.Options#inBitmap} candidates from. Can be null.
+     */
+    public ResourceDecoder(BitmapPool bitmapPool) {
+        this(bitmapPool, HeapBudget.getDefault());
+    }
+
+    /**
+     * @param bitmapPool Pool to take {@link BitmapFactory.Options#inBitmap} candidates from. Can be null.
+     * @param heapBudget Budget to check decodes against and reserve their bytes from before decoding. Can be null.
+     */
+    public ResourceDecoder(BitmapPool bitmapPool, HeapBudget heapBudget) {
+        this(bitmapPool, heapBudget, ConfigPolicy.DEFAULT);
+    }
+
+    /**
+     * @param bitmapPool   Pool to take {@link BitmapFactory.Options#inBitmap} candidates from. Can be null.
+     * @param heapBudget   Budget to check decodes against and reserve their bytes from before decoding. Can be null.
+     * @param configPolicy How the {@link Bitmap.Config} of each decode is chosen.
+     */
+    public ResourceDecoder(BitmapPool bitmapPool, HeapBudget heapBudget, ConfigPolicy configPolicy) {
+        this.bitmapPool = bitmapPool;
+        this.heapBudget = heapBudget;
+        this.configPolicy = configPolicy;
+    }
+
+    /**
+     * Decodes a sampled {@link Bitmap} from a resource, using the specified measures to calculate image downsample if needed.
+     * Downsample rate is only increased if bitmap rendering causes an {@link OutOfMemoryError}, the
+     * {@link HeapBudget} never makes a decode smaller than required.
+     *
+     * @param res       Resources package. You can get default resources package using {@link Activity#getResources()} inside an activity or {@link Context#getResources()} outside if a {@link Context} is available.
+     * @param resId     App resource id.
+     * @param reqWidth  Required width of the view where the Bitmap should fit.
+     * @param reqHeight Required height of the view where the Bitmap should fit.
+     * @param options   Options to decode with. Once decoded, it contains image info such as outMimeType.
+     * @return Decoded {@link Bitmap}, null if resource couldn't be decoded.
+     */
+    public Bitmap decodeMeasured(Resources res, int resId, int reqWidth, int reqHeight, BitmapFactory.Options options) {
+        return decodeMeasured(res, resId, reqWidth, reqHeight, ScaleMode.NONE, options);
+    }
+
+    /**
+     * Decodes a {@link Bitmap} from a resource sized against the specified measures as the {@link ScaleMode} says.
+     * Downsample rate is only increased if bitmap rendering causes an {@link OutOfMemoryError}, the
+     * {@link HeapBudget} never makes a decode smaller than required.
+     *
+     * @param res       Resources package. You can get default resources package using {@link Activity#getResources()} inside an activity or {@link Context#getResources()} outside if a {@link Context} is available.
+     * @param resId     App resource id.
+     * @param reqWidth  Required width of the view where the Bitmap should fit.
+     * @param reqHeight Required height of the view where the Bitmap should fit.
+     * @param scaleMode How the Bitmap is sized against required width and height.
+     * @param options   Options to decode with. Once decoded, it contains image info such as outMimeType.
+     * @return Decoded {@link Bitmap}, null if resource couldn't be decoded.
+     */
+    public Bitmap decodeMeasured(Resources res, int resId, int reqWidth, int reqHeight, ScaleMode scaleMode,
+                                 BitmapFactory.Options options) {
+        return decodeMeasured(res, resId, reqWidth, reqHeight, scaleMode, options, null);
+    }
+
+    /**
+     * Decodes a {@link Bitmap} from a resource sized against the specified measures as the {@link ScaleMode} says,
+     * giving up between the bounds and pixel passes if the request is cancelled meanwhile.
+     *
+     * @param res               Resources package. You can get default resources package using {@link Activity#getResources()} inside an activity or {@link Context#getResources()} outside if a {@link Context} is available.
+     * @param resId             App resource id.
+     * @param reqWidth          Required width of the view where the Bitmap should fit.
+     * @param reqHeight         Required height of the view where the Bitmap should fit.
+     * @param scaleMode         How the Bitmap is sized against required width and height.
+     * @param options           Options to decode with. Once decoded, it contains image info such as outMimeType.
+     * @param cancellationCheck Check of the request being cancelled. Can be null.
+     * @return Decoded {@link Bitmap}, null if resource couldn't be decoded or request was cancelled.
+     */
+    public Bitmap decodeMeasured(Resources res, int resId, int reqWidth, int reqHeight, ScaleMode scaleMode,
+                                 BitmapFactory.Options options, CancellationCheck cancellationCheck) {
+        return decodeMeasured(new ResourceSource(res, resId), reqWidth, reqHeight, scaleMode, options,
+                cancellationCheck);
+    }
+
+    /**
+     * Decodes a {@link Bitmap} from any {@link DataSource} sized against the specified measures as the
+     * {@link ScaleMode} says, the same way app resources are decoded.
+     *
+     * @param source            Source of the encoded image.
+     * @param reqWidth          Required width of the view where the Bitmap should fit.
+     * @param reqHeight         Required height of the view where the Bitmap should fit.
+     * @param scaleMode         How the Bitmap is sized against required width and height.
+     * @param options           Options to decode with. Once decoded, it contains image info such as outMimeType.
+     * @param cancellationCheck Check of the request being cancelled. Can be null.
+     * @return Decoded {@link Bitmap}, null if source couldn't be decoded or request was cancelled.
+     */
+    public Bitmap decodeMeasured(DataSource source, int reqWidth, int reqHeight, ScaleMode scaleMode,
+                                 BitmapFactory.Options options, CancellationCheck cancellationCheck) {
+        Bitmap decodedBitmap = null;
+        boolean outOfMemoryError = true;
+        long reservedBytes = 0;
+        final SourceStream stream = new SourceStream(source);
+
+        try {
+            // First decode with inJustDecodeBounds=true (No memory allocation) to check dimensions
+            options.inJustDecodeBounds = true;
+            stream.decode(options);
+            if (options.outWidth <= 0 && isXmlDrawable(source)) {
+                // Vector and other XML drawables have no bounds to decode, draw them at the required size instead
+                final ResourceSource resource = (ResourceSource) source;
+                options.inJustDecodeBounds = false;
+                return new DrawableRasterizer(bitmapPool, heapBudget).rasterize(resource.getRes(), resource.getResId(),
+                        reqWidth, reqHeight, scaleMode, options, cancellationCheck);
+            }
+            applyConfigPolicy(stream, options);
+
+            // Calculate inSampleSize, against the exact decode size if scale mode has one
+            final int[] decodeSize = scaleMode.decodeSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+            if (scaleMode == ScaleMode.NONE) {
+                options.inSampleSize = DrawableLoader.calculateInSampleSize(options, reqWidth, reqHeight);
+            } else {
+                options.inSampleSize = DrawableLoader.calculateInSampleSize(options, decodeSize[0], decodeSize[1]);
+            }
+            if (isCancelled(cancellationCheck)) {
+                return null;
+            }
+            if (heapBudget != null) {
+                // Decodes over budget aren't downsampled below the request's size, OOM fallback handles real shortage
+                heapBudget.fits(options);
+                reservedBytes = heapBudget.reserve(options, cancellationCheck);
+                // Reserving may have waited for other decodes
+                if (isCancelled(cancellationCheck)) {
+                    return null;
+                }
+            }
+            final int outputDensity = options.inTargetDensity;
+            // Density scaling of the resource itself, before it's overridden to scale to the decode width
+            final int sourceDensity = options.inDensity;
+            final boolean sourceScaled = options.inScaled;
+            if (scaleMode == ScaleMode.FIT_INSIDE || scaleMode == ScaleMode.CENTER_CROP) {
+                scaleToWidth(options, decodeSize[0]);
+            }
+
+            // Decode bitmap with inSampleSize set
+            options.inJustDecodeBounds = false;
+            while (outOfMemoryError) {
+                try {
+                    decodedBitmap = decodePooled(stream, options);
+                    outOfMemoryError = false;
+                } catch (OutOfMemoryError e) {
+                    //If inSampleSize still not enough to avoid out of memory error, increase it
+                    if (heapBudget != null) {
+                        heapBudget.onOutOfMemoryRetry();
+                    }
+                    options.inSampleSize *= 2;
+                    // Scaling back to the decode width would allocate as much as the failed decode did,
+                    // a smaller Bitmap is better than none
+                    options.inDensity = sourceDensity;
+                    options.inTargetDensity = outputDensity;
+                    options.inScaled = sourceScaled;
+                    outOfMemoryError = true;
+                }
+
+                if (options.inSampleSize >= 20) {
+                    //Break loop in case of too many loops (something else is happening)
+                    outOfMemoryError = false;
+                }
+            }
+
+            if (decodedBitmap != null && scaleMode != ScaleMode.NONE) {
+                // Density was only overridden to scale, Bitmap keeps the density decodeResource would give it
+                if (outputDensity > 0) {
+                    decodedBitmap.setDensity(outputDensity);
+                }
+                final int[] finalSize = scaleMode.finalSize(decodedBitmap.getWidth(), decodedBitmap.getHeight(),
+                        reqWidth, reqHeight);
+                decodedBitmap = resize(decodedBitmap, scaleMode, finalSize[0], finalSize[1]);
+            }
+        } catch (Resources.NotFoundException | IOException | SecurityException e) {
+            // Same as BitmapFactory.decodeResource, a source that can't be opened decodes to null
+            decodedBitmap = null;
+        } catch (InterruptedException e) {
+            // Interrupted while waiting for other decodes to release memory, give up
+            Thread.currentThread().interrupt();
+            decodedBitmap = null;
+        } finally {
+            if (reservedBytes > 0) {
+                heapBudget.release(reservedBytes);
+            }
+            stream.close();
+        }
+
+        return decodedBitmap;
+    }
+
+    /**
+     * Decodes a sampled {@link Bitmap} from a resource, using the inSampleSize specified.
+     *
+     * @param res          Resources package. You can get default resources package using {@link Activity#getResources()} inside an activity or {@link Context#getResources()} outside if a {@link Context} is available.
+     * @param resId        App resource id.
+     * @param inSampleSize Determines how many times image resolution is divided to lower memory usage.
+     * @param options      Options to decode with. Once decoded, it contains image info such as outMimeType.
+     * @return Decoded {@link Bitmap}, null if resource couldn't be decoded.
+     */
+    public Bitmap decodeSampled(Resources res, int resId, int inSampleSize, BitmapFactory.Options options) {
+        return decodeSampled(new ResourceSource(res, resId), inSampleSize, options);
+    }
+
+    /**
+     * Decodes a sampled {@link Bitmap} from any {@link DataSource}, using the inSampleSize specified.
+     *
+     * @param source       Source of the encoded image.
+     * @param inSampleSize Determines how many times image resolution is divided to lower memory usage.
+     * @param options      Options to decode with. Once decoded, it contains image info such as outMimeType.
+     * @return Decoded {@link Bitmap}, null if source couldn't be decoded.
+     */
+    public Bitmap decodeSampled(DataSource source, int inSampleSize, BitmapFactory.Options options) {
+        final SourceStream stream = new SourceStream(source);
+        long reservedBytes = 0;
+
+        try {
+            options.inSampleSize = inSampleSize;
+            if (bitmapPool != null || heapBudget != null || configPolicy == ConfigPolicy.AUTO) {
+                // Bounds are needed to pick a pooled Bitmap big enough, to check the decode fits in memory
+                // and to detect the image format
+                options.inJustDecodeBounds = true;
+                stream.decode(options);
+                options.inJustDecodeBounds = false;
+                applyConfigPolicy(stream, options);
+            }
+            if (heapBudget != null) {
+                heapBudget.fits(options);
+                reservedBytes = heapBudget.reserve(options);
+            }
+
+            final Bitmap bitmap = decodePooled(stream, options);
+            if (bitmap == null && isXmlDrawable(source)) {
+                final ResourceSource resource = (ResourceSource) source;
+                return new DrawableRasterizer(bitmapPool, heapBudget)
+                        .rasterizeSampled(resource.getRes(), resource.getResId(), inSampleSize, options);
+            }
+            return bitmap;
+        } catch (Resources.NotFoundException | IOException | SecurityException e) {
+            // Same as BitmapFactory.decodeResource, a source that can't be opened decodes to null
+            return null;
+        } catch (InterruptedException e) {
+            // Interrupted while waiting for other decodes to release memory, give up
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (reservedBytes > 0) {
+                heapBudget.release(reservedBytes);
+            }
+            stream.close();
+        }
+    }
+
+    /**
+     * Picks inPreferredConfig as the {@link ConfigPolicy} says, once bounds and mime type are known.
+     */
+    private void applyConfigPolicy(SourceStream stream, BitmapFactory.Options options) throws IOException {
+        if (configPolicy == ConfigPolicy.AUTO) {
+            options.inPreferredConfig = stream.isOpaque(options.outMimeType)
+                    ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        }
+    }
+
+    /**
+     * Decodes into a pooled Bitmap if a compatible one is available, into a new mutable one otherwise,
+     * so the result can be pooled itself once it's no longer used.
+     */
+    private Bitmap decodePooled(SourceStream stream, BitmapFactory.Options options) throws IOException {
+        options.inMutable = true;
+        if (bitmapPool != null && options.inBitmap == null) {
+            options.inBitmap = bitmapPool.get(options);
+        }
+
+        try {
+            final Bitmap bitmap = stream.decode(options);
+            if (bitmap == null && options.inBitmap != null) {
+                // Nothing was decoded, give pooled Bitmap back
+                bitmapPool.put(options.inBitmap);
+                options.inBitmap = null;
+            }
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            if (options.inBitmap == null) {
+                throw e;
+            }
+            // Pooled Bitmap can't be reused for this image (e.g. unsupported format), decode into a new one
+            bitmapPool.put(options.inBitmap);
+            options.inBitmap = null;
+            return stream.decode(options);
+        }
+    }
+
+    private static boolean isXmlDrawable(DataSource source) {
+        return source instanceof ResourceSource && ((ResourceSource) source).isXmlDrawable();
+    }
+
+    private static boolean isCancelled(CancellationCheck cancellationCheck) {
+        return cancellationCheck != null && cancellationCheck.isCancelled();
+    }
+
+    /**
+     * Makes the decoder scale the sampled image to the given width, through the same density scaling
+     * {@link BitmapFactory} applies to resources, so no extra Bitmap is allocated.
+     *
+     * @param options     Options with bounds decoded and inSampleSize set.
+     * @param targetWidth Width the image should be decoded at.
+     */
+    private static void scaleToWidth(BitmapFactory.Options options, int targetWidth) {
+        final int sampledWidth = options.outWidth / options.inSampleSize;
+        if (targetWidth <= 0 || sampledWidth <= targetWidth) {
+            return;
+        }
+        // Bounds already include resource density scaling, keep it in the ratio
+        final boolean densityScaled = options.inScaled && options.inDensity > 0 && options.inTargetDensity > 0;
+        options.inDensity = sampledWidth * (densityScaled ? options.inDensity : 1);
+        options.inTargetDensity = targetWidth * (densityScaled ? options.inTargetDensity : 1);
+        options.inScaled = true;
+    }
+
+    /**
+     * Final step of {@link ScaleMode#CENTER_CROP} and {@link ScaleMode#EXACT}: crops or scales the decoded Bitmap
+     * to its final size, drawing it into a pooled Bitmap when possible.
+     */
+    private Bitmap resize(Bitmap source, ScaleMode scaleMode, int width, int height) {
+        if (source.getWidth() == width && source.getHeight() == height) {
+            return source;
+        }
+
+        final Rect sourceRect;
+        if (scaleMode == ScaleMode.CENTER_CROP) {
+            final int left = (source.getWidth() - width) / 2;
+            final int top = (source.getHeight() - height) / 2;
+            sourceRect = new Rect(left, top, left + width, top + height);
+        } else {
+            sourceRect = new Rect(0, 0, source.getWidth(), source.getHeight());
+        }
+
+        final Bitmap.Config config = source.getConfig() != null ? source.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap result = bitmapPool != null ? bitmapPool.get(width, height, config) : null;
+        if (result == null) {
+            result = Bitmap.createBitmap(width, height, config);
+        } else {
+            result.eraseColor(0);
+        }
+        result.setDensity(source.getDensity());
+        new Canvas(result).drawBitmap(source, sourceRect, new Rect(0, 0, width, height),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+
+        // Intermediate Bitmap was never handed out, its pixels can be reused
+        if (bitmapPool == null || !bitmapPool.put(source)) {
+            source.recycle();
+        }
+        return result;
+    }
+
+    /**
+     * A source stream opened once and rewound before each decode pass. Streams of the APK's assets and of in memory
+     * sources support mark / reset natively. Any other stream, such as a file or a cached HTTP response, is buffered
+     * with a bounded mark: it's rewound after bounds and header reads, and reopened after a pass read past its mark,
+     * so the encoded image is never copied to the heap as a whole.
+     */
+    private static final class SourceStream implements Closeable {
+        private final DataSource source;
+        private InputStream in;
+        private int markLimit;
+
+        SourceStream(DataSource source) {
+            this.source = source;
+        }
+
+        /**
+         * Decodes the source from its start. Resources apply their density like {@link BitmapFactory#decodeResource} does.
+         */
+        Bitmap decode(BitmapFactory.Options options) throws IOException {
+            return source.decode(rewind(), options);
+        }
+
+        /**
+         * Reads the image header to tell if it can have transparent pixels.
+         */
+        boolean isOpaque(String mimeType) throws IOException {
+            return OpaqueDetector.isOpaque(rewind(), mimeType);
+        }
+
+        private InputStream rewind() throws IOException {
+            if (in != null) {
+                try {
+                    in.reset();
+                    in.mark(markLimit);
+                    return in;
+                } catch (IOException e) {
+                    // Mark was invalidated, fall back to opening the source again
+                    close();
+                }
+            }
+
+            final InputStream raw = source.open();
+            if (raw.markSupported()) {
+                in = raw;
+                markLimit = MARK_LIMIT;
+            } else {
+                in = new BufferedInputStream(raw, BUFFER_SIZE);
+                markLimit = BUFFERED_MARK_LIMIT;
+            }
+            in.mark(markLimit);
+            return in;
+        }
+
+        @Override
+        public void close() {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+                in = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.test.drawableloader.decoder
+
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.roundToInt
+
+/**
+ * How a measured decode sizes the Bitmap against the required width and height.
+ *
+ * [NONE] keeps the historic behaviour: only a power of two inSampleSize is applied, so the Bitmap can be up to twice
+ * the required size on each side. Every other mode combines that inSampleSize with a density scale, or a final scale
+ * step, so the cached Bitmap matches the required dimensions and cache capacity goes further. Only [EXACT] ever upscales.
+ */
+enum class ScaleMode {
+    /**
+     * Power of two downsample only, Bitmap keeps both sides larger than required.
+     */
+    NONE,
+
+    /**
+     * Bitmap fits inside the required size, keeping image aspect ratio.
+     */
+    FIT_INSIDE,
+
+    /**
+     * Bitmap fills the required size, keeping image aspect ratio, and is cropped around its center.
+     */
+    CENTER_CROP,
+
+    /**
+     * Bitmap has exactly the required size, image aspect ratio isn't kept. Images smaller than required are upscaled.
+     */
+    EXACT;
+
+    /**
+     * Calculates the size an image should be decoded at, before any crop or final scale step.
+     * A required size of 0 leaves that side unconstrained.
+     *
+     * @param srcWidth  Width of the image.
+     * @param srcHeight Height of the image.
+     * @param reqWidth  Required width.
+     * @param reqHeight Required height.
+     * @return Array with decode width and height.
+     */
+    fun decodeSize(srcWidth: Int, srcHeight: Int, reqWidth: Int, reqHeight: Int): IntArray {
+        if (this == NONE || srcWidth <= 0 || srcHeight <= 0 || (reqWidth <= 0 && reqHeight <= 0)) {
+            return intArrayOf(srcWidth, srcHeight)
+        }
+        val widthFactor = if (reqWidth > 0) reqWidth.toFloat() / srcWidth else Float.NaN
+        val heightFactor = if (reqHeight > 0) reqHeight.toFloat() / srcHeight else Float.NaN
+
+        val factor = when {
+            widthFactor.isNaN() -> heightFactor
+            heightFactor.isNaN() -> widthFactor
+            this == FIT_INSIDE -> min(widthFactor, heightFactor)
+            else -> max(widthFactor, heightFactor)
+        }.coerceAtMost(1f)
+
+        return intArrayOf(
+            (srcWidth * factor).roundToInt().coerceAtLeast(1),
+            (srcHeight * factor).roundToInt().coerceAtLeast(1)
+        )
+    }
+
+    /**
+     * Calculates the final size of the Bitmap, once decoded at [decodeSize].
+     *
+     * @param decodeWidth  Width the image was decoded at.
+     * @param decodeHeight Height the image was decoded at.
+     * @param reqWidth     Required width.
+     * @param reqHeight    Required height.
+     * @return Array with final width and height.
+     */
+    fun finalSize(decodeWidth: Int, decodeHeight: Int, reqWidth: Int, reqHeight: Int): IntArray {
+        return when (this) {
+            CENTER_CROP -> intArrayOf(
+                if (reqWidth > 0) min(decodeWidth, reqWidth) else decodeWidth,
+                if (reqHeight > 0) min(decodeHeight, reqHeight) else decodeHeight
+            )
+            EXACT -> intArrayOf(
+                if (reqWidth > 0) reqWidth else decodeWidth,
+                if (reqHeight > 0) reqHeight else decodeHeight
+            )
+            else -> intArrayOf(decodeWidth, decodeHeight)
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.test.drawableloader.listeners
+
+import android.graphics.Bitmap
+
+/**
+ * Listener to get a callback every time an image of a batch request is ready
+ */
+interface OnBatchItemRendered {
+    /**
+     * Callback to be invoked when an image of the batch is rendered or fails to render
+     *
+     * @param index  Position of the image in the batch
+     * @param bitmap [Bitmap] object rendered, null if it failed to render
+     */
+    fun onBatchItemRendered(index: Int, bitmap: Bitmap?)
+}
@@ -0,0 +1,15 @@
+package com.test.drawableloader.listeners
+
+import android.graphics.Bitmap
+
+/**
+ * Listener to get a single callback once every image of a batch request is ready
+ */
+interface OnBatchRendered {
+    /**
+     * Callback to be invoked when the whole batch is rendered
+     *
+     * @param bitmaps [Bitmap] objects rendered, in the order of the batch. Null for images that failed to render
+     */
+    fun onBatchRendered(bitmaps: List<Bitmap?>)
+}
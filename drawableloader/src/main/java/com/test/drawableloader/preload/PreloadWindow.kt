@@ -0,0 +1,60 @@
+package com.test.drawableloader.preload
+
+/**
+ * Tracks which adapter positions were already preloaded while scrolling in one direction, so every scroll event only
+ * preloads the positions that just entered the window of [preloadCount] positions past the visible ones.
+ *
+ * @param preloadCount Number of positions past the visible ones to keep preloaded.
+ */
+class PreloadWindow(private val preloadCount: Int) {
+    private var forward = true
+    private var preloadedStart = Int.MAX_VALUE
+    private var preloadedEnd = Int.MIN_VALUE
+
+    init {
+        require(preloadCount > 0) { "preloadCount <= 0" }
+    }
+
+    /**
+     * Calculates the positions to preload after a scroll. Scrolling back resets the window, as positions preloaded
+     * in the other direction are no longer ahead of the user.
+     *
+     * @param firstVisible First visible adapter position.
+     * @param lastVisible  Last visible adapter position.
+     * @param itemCount    Number of items of the adapter.
+     * @param forward      True if scrolling towards the end of the list, False towards its start.
+     * @return Positions not preloaded yet, empty if there are none.
+     */
+    fun next(firstVisible: Int, lastVisible: Int, itemCount: Int, forward: Boolean): IntRange {
+        if (forward != this.forward) {
+            reset()
+            this.forward = forward
+        }
+
+        return if (forward) {
+            val from = maxOf(lastVisible + 1, preloadedEnd)
+            val to = minOf(lastVisible + 1 + preloadCount, itemCount)
+            if (from >= to) {
+                return IntRange.EMPTY
+            }
+            preloadedEnd = to
+            from until to
+        } else {
+            val from = maxOf(firstVisible - preloadCount, 0)
+            val to = minOf(firstVisible, preloadedStart)
+            if (from >= to) {
+                return IntRange.EMPTY
+            }
+            preloadedStart = from
+            from until to
+        }
+    }
+
+    /**
+     * Forgets preloaded positions, e.g. after the adapter data changed.
+     */
+    fun reset() {
+        preloadedStart = Int.MAX_VALUE
+        preloadedEnd = Int.MIN_VALUE
+    }
+}
@@ -0,0 +1,91 @@
+package com.test.drawableloader.preload
+
+import android.content.res.Resources
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import com.test.drawableloader.DrawableLoader
+import com.test.drawableloader.request.RequestHandle
+import java.util.ArrayDeque
+
+/**
+ * Scroll listener preloading the drawables of the next [preloadCount] adapter positions in the scroll direction,
+ * through [DrawableLoader.preload], so rows binding just past the visible window are memory cache hits.
+ * Preloads still in flight are cancelled when the scroll direction changes.
+ *
+ * Add it with [RecyclerView.addOnScrollListener]. Works with a [LinearLayoutManager], or any subclass of it.
+ *
+ * @param resources    Resources package drawables are loaded with.
+ * @param provider     Gives the drawable of each adapter position.
+ * @param reqWidth     Width rows request their drawables with.
+ * @param reqHeight    Height rows request their drawables with.
+ * @param preloadCount Number of positions past the visible ones to preload.
+ */
+class RecyclerViewPreloader @JvmOverloads constructor(
+    private val resources: Resources,
+    private val provider: ResourceProvider,
+    private val reqWidth: Int,
+    private val reqHeight: Int,
+    private val preloadCount: Int = DEFAULT_PRELOAD_COUNT
+) : RecyclerView.OnScrollListener() {
+    private val window = PreloadWindow(preloadCount)
+    private val handles = ArrayDeque<RequestHandle>()
+    private var forward = true
+
+    /**
+     * Gives the drawable shown at an adapter position.
+     */
+    interface ResourceProvider {
+        /**
+         * @param position Adapter position.
+         * @return App resource id of the drawable shown at the position, 0 if there is none.
+         */
+        fun getResourceId(position: Int): Int
+    }
+
+    override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager ?: return
+        val itemCount = recyclerView.adapter?.itemCount ?: return
+        val first = layoutManager.findFirstVisibleItemPosition()
+        val last = layoutManager.findLastVisibleItemPosition()
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return
+        }
+
+        // First layout reports no scroll, preload forward
+        val forward = dx + dy >= 0
+        if (forward != this.forward) {
+            cancel()
+            this.forward = forward
+        }
+
+        val positions = window.next(first, last, itemCount, forward)
+        if (positions.isEmpty()) {
+            return
+        }
+        val resIds = positions.map { provider.getResourceId(it) }.filter { it != 0 }.toIntArray()
+        for (handle in DrawableLoader.preload(resources, resIds, reqWidth, reqHeight)) {
+            handles.addLast(handle)
+        }
+        while (handles.size > preloadCount * 2) {
+            // Oldest preloads are done or about to be bound, stop tracking them
+            handles.removeFirst()
+        }
+    }
+
+    /**
+     * Cancels preloads still in flight and forgets preloaded positions, e.g. after the adapter data changed.
+     */
+    fun cancel() {
+        while (handles.isNotEmpty()) {
+            handles.removeFirst().cancel()
+        }
+        window.reset()
+    }
+
+    companion object {
+        /**
+         * Default number of positions preloaded past the visible ones.
+         */
+        const val DEFAULT_PRELOAD_COUNT = 6
+    }
+}
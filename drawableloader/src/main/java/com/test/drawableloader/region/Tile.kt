@@ -0,0 +1,17 @@
+package com.test.drawableloader.region
+
+import android.graphics.Bitmap
+import android.graphics.Rect
+
+/**
+ * A decoded tile, ready to be drawn scaled into [bounds].
+ *
+ * @param key    Key of the tile.
+ * @param bounds Area of the source image the tile covers, in source image pixels.
+ * @param bitmap Decoded pixels of the area, downsampled by the tile's level inSampleSize.
+ */
+class Tile(
+    val key: TileKey,
+    val bounds: Rect,
+    val bitmap: Bitmap
+)
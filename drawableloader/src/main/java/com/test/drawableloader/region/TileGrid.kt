@@ -0,0 +1,89 @@
+package com.test.drawableloader.region
+
+/**
+ * Splits an image in tiles for every zoom level. Tiles of a level are [tileSize] pixels once decoded, so they cover
+ * `tileSize * sampleSize` pixels of the source image, and the number of tiles needed to fill a viewport depends on
+ * its size only, never on the image size.
+ *
+ * @param source      Stable identifier of the image source.
+ * @param imageWidth  Width of the source image.
+ * @param imageHeight Height of the source image.
+ * @param tileSize    Size of a decoded tile side, in pixels.
+ */
+class TileGrid(
+    val source: String,
+    val imageWidth: Int,
+    val imageHeight: Int,
+    val tileSize: Int
+) {
+    init {
+        require(tileSize > 0) { "tileSize <= 0" }
+    }
+
+    /**
+     * Calculates the level to decode for a zoom scale: the biggest power of two inSampleSize that still gives at
+     * least one decoded pixel per displayed pixel.
+     *
+     * @param scale Displayed pixels per source image pixel, e.g. 0.25 when a 4000px wide image fills a 1000px view.
+     * @return inSampleSize of the level.
+     */
+    fun sampleSizeFor(scale: Float): Int {
+        var sampleSize = 1
+        if (scale <= 0f) {
+            return sampleSize
+        }
+        while (sampleSize * 2 * scale <= 1f && (imageWidth / (sampleSize * 2) > 0 || imageHeight / (sampleSize * 2) > 0)) {
+            sampleSize *= 2
+        }
+        return sampleSize
+    }
+
+    /**
+     * Gets the tiles of a level intersecting a viewport, row by row.
+     *
+     * @param left       Left edge of the viewport, in source image pixels.
+     * @param top        Top edge of the viewport, in source image pixels.
+     * @param right      Right edge of the viewport, in source image pixels.
+     * @param bottom     Bottom edge of the viewport, in source image pixels.
+     * @param sampleSize inSampleSize of the level.
+     * @return Keys of the visible tiles, empty if viewport is outside the image.
+     */
+    fun visibleTiles(left: Int, top: Int, right: Int, bottom: Int, sampleSize: Int): List<TileKey> {
+        val span = tileSpan(sampleSize)
+        val clippedRight = right.coerceAtMost(imageWidth)
+        val clippedBottom = bottom.coerceAtMost(imageHeight)
+        val clippedLeft = left.coerceAtLeast(0)
+        val clippedTop = top.coerceAtLeast(0)
+        if (clippedLeft >= clippedRight || clippedTop >= clippedBottom) {
+            return emptyList()
+        }
+
+        val tiles = ArrayList<TileKey>()
+        for (row in clippedTop / span..(clippedBottom - 1) / span) {
+            for (column in clippedLeft / span..(clippedRight - 1) / span) {
+                tiles.add(TileKey(source, sampleSize, column, row))
+            }
+        }
+        return tiles
+    }
+
+    /**
+     * Gets the area of the source image a tile covers, clipped to the image.
+     *
+     * @param key Key of the tile.
+     * @return Left, top, right and bottom edges of the tile, in source image pixels.
+     */
+    fun tileBounds(key: TileKey): IntArray {
+        val span = tileSpan(key.sampleSize)
+        val left = key.column * span
+        val top = key.row * span
+        return intArrayOf(
+            left, top,
+            (left + span).coerceAtMost(imageWidth), (top + span).coerceAtMost(imageHeight)
+        )
+    }
+
+    private fun tileSpan(sampleSize: Int): Int {
+        return tileSize * sampleSize.coerceAtLeast(1)
+    }
+}
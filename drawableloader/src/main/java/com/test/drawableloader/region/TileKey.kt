@@ -0,0 +1,28 @@
+package com.test.drawableloader.region
+
+/**
+ * Identifies a decoded tile of a tiled image: the image source, the zoom level given by its inSampleSize and the
+ * tile's position in the grid of that level.
+ *
+ * @param source     Stable identifier of the image source, e.g. `res_2131165271_d480` for an app resource.
+ * @param sampleSize inSampleSize of the level the tile belongs to.
+ * @param column     Column of the tile in the grid of its level.
+ * @param row        Row of the tile in the grid of its level.
+ */
+data class TileKey(
+    val source: String,
+    val sampleSize: Int,
+    val column: Int,
+    val row: Int
+) {
+
+    /**
+     * Key of the tile in [com.test.drawableloader.DrawableLoaderBitmapCache] memory tier.
+     */
+    val cacheKey: String
+        get() = "tile_" + source + "_s" + sampleSize + "_x" + column + "_y" + row
+
+    override fun toString(): String {
+        return cacheKey
+    }
+}
@@ -0,0 +1,351 @@
+package com.test.drawableloader.region
+
+import android.content.res.Resources
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.graphics.BitmapRegionDecoder
+import android.graphics.Rect
+import com.test.drawableloader.DrawableLoaderBitmapCache
+import com.test.drawableloader.ExecutionConfig
+import com.test.drawableloader.asynctasks.LoaderExecutors
+import com.test.drawableloader.asynctasks.PrioritizedRunnable
+import com.test.drawableloader.decoder.HeapBudget
+import com.test.drawableloader.request.Priority
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+/**
+ * Loads an image too big to be decoded whole, one tile at a time, through [BitmapRegionDecoder]. Only tiles
+ * intersecting the viewport are decoded, at the level matching the current zoom, so memory use is proportional to
+ * the screen size rather than to the image size.
+ *
+ * Tiles are decoded in parallel on the loader's decode pool, each with its own [BitmapRegionDecoder] since a single
+ * one serializes its decodes, and are kept in the memory tier of [DrawableLoaderBitmapCache] by [TileKey].
+ *
+ * Viewport updates and listener callbacks happen on the main thread. Tiles of a new level replace the previous ones
+ * as they are decoded, so views usually draw a downsampled decode of the whole image underneath them.
+ *
+ * @param res         Resources package the image is loaded with.
+ * @param resId       App resource id of the image.
+ * @param listener    Listener notified when image bounds are known and when tiles are decoded.
+ * @param cache       Cache to keep decoded tiles in. Can be null.
+ * @param executors   Pools to open the image and decode tiles on.
+ * @param tileSize    Size of a decoded tile side, in pixels.
+ * @param parallelism Max number of tiles decoded at once.
+ */
+class TiledImageLoader @JvmOverloads constructor(
+    private val res: Resources,
+    private val resId: Int,
+    private val listener: Listener,
+    private val cache: DrawableLoaderBitmapCache?,
+    private val executors: LoaderExecutors = LoaderExecutors.getDefault(),
+    private val tileSize: Int = DEFAULT_TILE_SIZE,
+    private val parallelism: Int = ExecutionConfig.defaultDecodeThreads()
+) {
+    private val source = "res_" + resId + "_d" + res.displayMetrics.densityDpi
+    private val decoders = LinkedBlockingQueue<BitmapRegionDecoder>()
+    private var createdDecoders = 0
+    @Volatile
+    private var released = false
+
+    // Main thread state
+    private var grid: TileGrid? = null
+    private val visible = LinkedHashMap<TileKey, Tile>()
+    private val pending = HashMap<TileKey, TileTask>()
+    private var viewport: IntArray? = null
+    private var scale = 1f
+
+    /**
+     * Listener of a [TiledImageLoader]. Every callback is invoked on the main thread.
+     */
+    interface Listener {
+        /**
+         * Callback to be invoked once the image is opened and its size known.
+         *
+         * @param width  Width of the image.
+         * @param height Height of the image.
+         */
+        fun onImageReady(width: Int, height: Int)
+
+        /**
+         * Callback to be invoked when a visible tile is decoded or found on cache. Views should redraw.
+         *
+         * @param tile Decoded [Tile].
+         */
+        fun onTileLoaded(tile: Tile)
+
+        /**
+         * Callback to be invoked when the image can't be opened or a tile can't be decoded.
+         *
+         * @param e [Exception] that caused the failure.
+         */
+        fun onLoadFailed(e: Exception)
+    }
+
+    init {
+        require(parallelism > 0) { "parallelism <= 0" }
+    }
+
+    /**
+     * Opens the image on the disk I/O pool. [Listener.onImageReady] is called once its size is known.
+     */
+    fun start() {
+        executors.diskIo().execute {
+            try {
+                val decoder = acquireDecoder() ?: return@execute
+                val width = decoder.width
+                val height = decoder.height
+                returnDecoder(decoder)
+                executors.postToMainThread {
+                    if (!released) {
+                        grid = TileGrid(source, width, height, tileSize)
+                        listener.onImageReady(width, height)
+                        update()
+                    }
+                }
+            } catch (e: Exception) {
+                executors.postToMainThread { if (!released) listener.onLoadFailed(e) }
+            }
+        }
+    }
+
+    /**
+     * Sets the visible part of the image and the zoom it's displayed at. Tiles no longer visible are dropped and
+     * pending ones cancelled, missing ones are taken from cache or decoded.
+     *
+     * @param viewport Visible area, in source image pixels.
+     * @param scale    Displayed pixels per source image pixel.
+     */
+    fun setViewport(viewport: Rect, scale: Float) {
+        setViewport(viewport.left, viewport.top, viewport.right, viewport.bottom, scale)
+    }
+
+    /**
+     * Sets the visible part of the image and the zoom it's displayed at. Tiles no longer visible are dropped and
+     * pending ones cancelled, missing ones are taken from cache or decoded.
+     *
+     * @param left   Left edge of the visible area, in source image pixels.
+     * @param top    Top edge of the visible area, in source image pixels.
+     * @param right  Right edge of the visible area, in source image pixels.
+     * @param bottom Bottom edge of the visible area, in source image pixels.
+     * @param scale  Displayed pixels per source image pixel.
+     */
+    fun setViewport(left: Int, top: Int, right: Int, bottom: Int, scale: Float) {
+        this.viewport = intArrayOf(left, top, right, bottom)
+        this.scale = scale
+        update()
+    }
+
+    /**
+     * @return Tiles of the current viewport already decoded, to be drawn.
+     */
+    val visibleTiles: List<Tile>
+        get() = ArrayList(visible.values)
+
+    /**
+     * Cancels pending tiles and releases every [BitmapRegionDecoder]. The loader can't be used anymore.
+     */
+    fun release() {
+        synchronized(decoders) {
+            released = true
+            while (true) {
+                val decoder = decoders.poll() ?: break
+                decoder.recycle()
+            }
+        }
+        for (task in pending.values) {
+            task.cancel()
+        }
+        pending.clear()
+        visible.clear()
+    }
+
+    private fun update() {
+        val grid = grid ?: return
+        val viewport = viewport ?: return
+        if (released) {
+            return
+        }
+
+        val sampleSize = grid.sampleSizeFor(scale)
+        val keys = grid.visibleTiles(viewport[0], viewport[1], viewport[2], viewport[3], sampleSize)
+        val wanted = HashSet(keys)
+
+        // Forget tiles that scrolled out or belong to another level
+        visible.keys.retainAll(wanted)
+        val iterator = pending.entries.iterator()
+        while (iterator.hasNext()) {
+            val entry = iterator.next()
+            if (entry.key !in wanted) {
+                entry.value.cancel()
+                iterator.remove()
+            }
+        }
+
+        for (key in keys) {
+            if (visible.containsKey(key) || pending.containsKey(key)) {
+                continue
+            }
+            val cached = cache?.getBitmapFromMemCache(key.cacheKey)
+            if (cached != null) {
+                val tile = Tile(key, boundsOf(grid, key), cached)
+                visible[key] = tile
+                listener.onTileLoaded(tile)
+            } else {
+                val task = TileTask(grid, key)
+                pending[key] = task
+                executors.decode().execute(task)
+            }
+        }
+    }
+
+    private fun onTileDecoded(task: TileTask, tile: Tile?, e: Exception?) {
+        if (pending[task.key] !== task) {
+            // Cancelled meanwhile, tile stays in cache for later
+            return
+        }
+        pending.remove(task.key)
+        if (tile != null) {
+            visible[task.key] = tile
+            listener.onTileLoaded(tile)
+        } else if (e != null) {
+            listener.onLoadFailed(e)
+        }
+    }
+
+    /**
+     * Takes an idle [BitmapRegionDecoder], opening a new one while less than [parallelism] exist.
+     *
+     * @return Decoder, null if loader was released.
+     */
+    private fun acquireDecoder(): BitmapRegionDecoder? {
+        var open = false
+        synchronized(decoders) {
+            if (released) {
+                return null
+            }
+            val idle = decoders.poll()
+            if (idle != null) {
+                return idle
+            }
+            if (createdDecoders < parallelism) {
+                createdDecoders++
+                open = true
+            }
+        }
+        if (open) {
+            try {
+                res.openRawResource(resId).use { return BitmapRegionDecoder.newInstance(it, false) }
+            } catch (e: Exception) {
+                synchronized(decoders) { createdDecoders-- }
+                throw e
+            }
+        }
+
+        // Every decoder is busy, wait for one, giving up if loader is released meanwhile
+        while (!released) {
+            val decoder = decoders.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS)
+            if (decoder != null) {
+                return decoder
+            }
+        }
+        return null
+    }
+
+    private fun returnDecoder(decoder: BitmapRegionDecoder) {
+        synchronized(decoders) {
+            if (released) {
+                decoder.recycle()
+            } else {
+                decoders.offer(decoder)
+            }
+        }
+    }
+
+    private fun boundsOf(grid: TileGrid, key: TileKey): Rect {
+        val bounds = grid.tileBounds(key)
+        return Rect(bounds[0], bounds[1], bounds[2], bounds[3])
+    }
+
+    /**
+     * Decodes a tile on the decode pool and hands it to the main thread. Visible tiles are what the user is looking at,
+     * so they are queued with high priority.
+     */
+    private inner class TileTask(private val grid: TileGrid, val key: TileKey) : PrioritizedRunnable(Priority.HIGH) {
+        @Volatile
+        private var cancelled = false
+
+        fun cancel() {
+            cancelled = true
+            executors.remove(this)
+        }
+
+        override fun run() {
+            if (cancelled || released) {
+                return
+            }
+            var tile: Tile? = null
+            var failure: Exception? = null
+            try {
+                val bitmap = decodeTile()
+                if (bitmap != null) {
+                    cache?.putInMemCache(key.cacheKey, bitmap)
+                    tile = Tile(key, boundsOf(grid, key), bitmap)
+                }
+            } catch (e: Exception) {
+                failure = e
+            }
+            executors.postToMainThread { onTileDecoded(this, tile, failure) }
+        }
+
+        private fun decodeTile(): Bitmap? {
+            val bounds = boundsOf(grid, key)
+            val width = (bounds.width() + key.sampleSize - 1) / key.sampleSize
+            val height = (bounds.height() + key.sampleSize - 1) / key.sampleSize
+            val config = Bitmap.Config.ARGB_8888
+            val budget = HeapBudget.getDefault()
+            val bytes = HeapBudget.estimateBytes(width, height, 1, config)
+
+            // A tile scrolled out of view while waiting gives its thread back instead of waiting for memory
+            if (cancelled || !HeapBudget.reserve(budget.decodeGate, bytes) { cancelled }) {
+                return null
+            }
+            val decoder = acquireDecoder()
+            try {
+                if (decoder == null || cancelled) {
+                    return null
+                }
+                val options = BitmapFactory.Options()
+                options.inSampleSize = key.sampleSize
+                options.inPreferredConfig = config
+                options.inMutable = true
+                val pool = cache?.bitmapPool
+                options.inBitmap = pool?.get(width, height, config)
+                return try {
+                    decoder.decodeRegion(bounds, options)
+                } catch (e: IllegalArgumentException) {
+                    if (options.inBitmap == null) {
+                        throw e
+                    }
+                    // Pooled Bitmap can't be reused for this region, decode into a new one
+                    pool?.put(options.inBitmap)
+                    options.inBitmap = null
+                    decoder.decodeRegion(bounds, options)
+                }
+            } finally {
+                if (decoder != null) {
+                    returnDecoder(decoder)
+                }
+                budget.release(bytes)
+            }
+        }
+    }
+
+    companion object {
+        /**
+         * Default size of a decoded tile side, in pixels.
+         */
+        const val DEFAULT_TILE_SIZE = 256
+        private const val WAIT_MILLIS = 100L
+    }
+}
@@ -0,0 +1,14 @@
+package com.test.drawableloader.request
+
+/**
+ * One image of a batch request: an app resource and the measures it's decoded for.
+ *
+ * @param resId     App resource id.
+ * @param reqWidth  Required width of the view where the Bitmap should fit.
+ * @param reqHeight Required height of the view where the Bitmap should fit.
+ */
+data class BatchItem(
+    val resId: Int,
+    val reqWidth: Int,
+    val reqHeight: Int
+)
@@ -0,0 +1,31 @@
+package com.test.drawableloader.request
+
+import android.graphics.Bitmap
+
+/**
+ * State of a request loaded as a [kotlinx.coroutines.flow.Flow] by
+ * [com.test.drawableloader.DrawableLoader.loadBitmapFlow]: the placeholder is emitted first, then the preview if it's
+ * ready before the full Bitmap, and finally the full Bitmap.
+ */
+sealed class LoadState {
+    /**
+     * Nothing is decoded yet, the placeholder should be shown.
+     *
+     * @param bitmap Placeholder given to the request, null if none.
+     */
+    data class Placeholder(val bitmap: Bitmap?) : LoadState()
+
+    /**
+     * A heavily downsampled preview is ready, to be shown until the full Bitmap replaces it.
+     *
+     * @param bitmap Preview [Bitmap].
+     */
+    data class Preview(val bitmap: Bitmap) : LoadState()
+
+    /**
+     * The Bitmap sized for the request is ready. Last state of the flow.
+     *
+     * @param bitmap Full [Bitmap].
+     */
+    data class Complete(val bitmap: Bitmap) : LoadState()
+}
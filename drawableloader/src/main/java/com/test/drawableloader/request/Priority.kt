@@ -0,0 +1,29 @@
+package com.test.drawableloader.request
+
+/**
+ * Priority of an asynchronous request. Queued work of the loader's pools is run by priority, and newest first within
+ * the same priority. A request can be bumped to a higher priority while it's queued, see [RequestHandle.bumpPriority].
+ */
+enum class Priority {
+    /**
+     * Work blocking what's on screen right now, such as the image of a detail screen being opened. Runs before
+     * anything else queued.
+     */
+    IMMEDIATE,
+
+    /**
+     * Work the user is waiting for right now, such as progressive previews of visible rows.
+     */
+    HIGH,
+
+    /**
+     * Default priority of requests.
+     */
+    NORMAL,
+
+    /**
+     * Speculative work nobody is waiting for yet, such as preloading rows about to be scrolled in.
+     * Only runs when no other work is queued.
+     */
+    PREFETCH
+}
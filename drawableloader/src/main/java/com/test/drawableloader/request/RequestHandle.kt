@@ -0,0 +1,94 @@
+package com.test.drawableloader.request
+
+import com.test.drawableloader.listeners.OnBitmapRenderFailed
+import com.test.drawableloader.listeners.OnBitmapRendered
+
+/**
+ * Handle of an asynchronous request, returned by the async decode methods of
+ * [com.test.drawableloader.DrawableLoader]. Keep it with the view the Bitmap is meant for, and cancel it when the
+ * view is recycled or rebound, so the decode of an off screen row doesn't keep running nor calls back into it.
+ */
+class RequestHandle internal constructor(
+    key: RequestKey?,
+    internal val onBitmapRendered: OnBitmapRendered?,
+    internal val onBitmapRenderFailed: OnBitmapRenderFailed?,
+    private val registry: RequestRegistry?
+) {
+    @Volatile
+    private var cancelled = false
+
+    /**
+     * [RequestKey] of the request. Null until it's known for requests whose key is computed off the calling thread,
+     * such as requests for a [com.test.drawableloader.source.DataSource].
+     */
+    @Volatile
+    var key: RequestKey? = key
+        internal set
+    private val linked = ArrayList<RequestHandle>(0)
+
+    /**
+     * True if this request started a new decode job, False if it was attached to a decode already in flight.
+     */
+    var startsDecode: Boolean = false
+        internal set
+
+    /**
+     * True once the decode this request waited for completed, and its result was handed to its listeners.
+     */
+    @Volatile
+    var isDone: Boolean = false
+        internal set
+
+    /**
+     * True if [cancel] was called on this request.
+     */
+    val isCancelled: Boolean
+        get() = cancelled
+
+    /**
+     * Cancels the request: its listeners won't be called. If no other request is waiting for the same decode, queued
+     * work is removed before it starts and a running decode's result is dropped.
+     */
+    fun cancel() {
+        if (cancelled) {
+            return
+        }
+        cancelled = true
+        registry?.cancel(this)
+        val linked = synchronized(this.linked) { ArrayList(this.linked) }
+        for (handle in linked) {
+            handle.cancel()
+        }
+    }
+
+    /**
+     * Raises the priority of the request, e.g. when the row a preloaded image is meant for becomes visible: its queued
+     * work moves ahead of lower priorities, and of older work of the new priority. Since requests for the same Bitmap
+     * share one decode, it's raised for all of them. Lower priorities than the current one are ignored.
+     *
+     * @param priority New priority of the request.
+     */
+    fun bumpPriority(priority: Priority) {
+        val key = key
+        if (!cancelled && key != null) {
+            registry?.bumpPriority(key, priority)
+        }
+        val linked = synchronized(this.linked) { ArrayList(this.linked) }
+        for (handle in linked) {
+            handle.bumpPriority(priority)
+        }
+    }
+
+    /**
+     * Links a request to this one, so cancelling this request cancels it too. Used by requests made of several
+     * decodes, such as progressive ones.
+     */
+    internal fun link(handle: RequestHandle) {
+        synchronized(linked) {
+            linked.add(handle)
+        }
+        if (cancelled) {
+            handle.cancel()
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.test.drawableloader.request
+
+import android.content.res.Configuration
+import android.content.res.Resources
+import android.graphics.Bitmap
+import com.test.drawableloader.decoder.ConfigPolicy
+import com.test.drawableloader.decoder.ScaleMode
+import com.test.drawableloader.source.DataSource
+import com.test.drawableloader.source.ResourceSource
+import com.test.drawableloader.transform.Transformation
+import com.test.drawableloader.transform.Transformations
+import java.security.MessageDigest
+
+/**
+ * Identifies a decoded [Bitmap] by everything that changes its pixels: the source it comes from, the size or
+ * inSampleSize it was decoded for, the [Bitmap.Config] used and the density / night mode configuration of the
+ * [Resources] it was loaded with.
+ *
+ * The same [cacheKey] is used for memory and disk cache tiers of [com.test.drawableloader.DrawableLoaderBitmapCache],
+ * so a 96px thumbnail and a full screen decode of the same drawable no longer collide.
+ *
+ * @param source       Stable identifier of the image source, e.g. `res_2131165271` for an app resource, or the
+ *                     [DataSource.key] of any other source.
+ * @param reqWidth     Required width the Bitmap was measured for, 0 if not measured.
+ * @param reqHeight    Required height the Bitmap was measured for, 0 if not measured.
+ * @param inSampleSize Forced inSampleSize the Bitmap was decoded with, 0 if it was measured instead.
+ * @param config       [Bitmap.Config] used to decode the Bitmap, unless [configPolicy] picks it per image.
+ * @param densityDpi   Density of the [Resources] used to decode the Bitmap.
+ * @param nightMode    Whether the [Resources] used to decode the Bitmap were in night mode.
+ * @param scaleMode    How a measured Bitmap was sized against its required width and height.
+ * @param configPolicy How the [Bitmap.Config] was chosen. With [ConfigPolicy.AUTO] the config depends on the source
+ *                     only, so the policy takes its place in the key.
+ * @param transformations Cache key contribution of the [Transformation]s applied to the Bitmap, empty if none.
+ */
+data class RequestKey @JvmOverloads constructor(
+    val source: String,
+    val reqWidth: Int = 0,
+    val reqHeight: Int = 0,
+    val inSampleSize: Int = 0,
+    val config: Bitmap.Config = Bitmap.Config.ARGB_8888,
+    val densityDpi: Int = 0,
+    val nightMode: Boolean = false,
+    val scaleMode: ScaleMode = ScaleMode.NONE,
+    val configPolicy: ConfigPolicy = ConfigPolicy.DEFAULT,
+    val transformations: String = ""
+) {
+
+    /**
+     * Key identifying all the variants of the same image that only differ in size.
+     * Variants in the same group can be used to serve each other.
+     */
+    val variantGroup: String
+        get() = source + "_" + configName + "_d" + densityDpi + "_" + (if (nightMode) "night" else "notnight") +
+                (if (scaleMode != ScaleMode.NONE) "_" + scaleMode.name else "") +
+                (if (transformations.isNotEmpty()) "_t_$transformations" else "")
+
+    /**
+     * Name of the config part of the key.
+     */
+    private val configName: String
+        get() = if (configPolicy == ConfigPolicy.AUTO) ConfigPolicy.AUTO.name else config.name
+
+    /**
+     * Key used for both memory and disk cache entries. [com.test.drawableloader.cacheutils.DiskLruCache] keys must
+     * match `[A-z0-9%._-]{1,127}`, so the key is hashed whenever the readable form can't be used as is.
+     */
+    val cacheKey: String
+        get() {
+            val key = readableKey()
+            return if (CACHE_KEY_PATTERN.matches(key)) key else md5(key)
+        }
+
+    /**
+     * @return True if this key was measured against a required width and height, False if it forces an inSampleSize.
+     */
+    val isMeasured: Boolean
+        get() = reqWidth > 0 || reqHeight > 0
+
+    /**
+     * Checks if a Bitmap cached under another key of the same variant group can be used to serve this request
+     * without decoding again. A bigger Bitmap can always satisfy a smaller request.
+     *
+     * @param candidate Key the Bitmap was cached with.
+     * @param width     Width of the cached Bitmap.
+     * @param height    Height of the cached Bitmap.
+     * @return True if the cached Bitmap is at least as big as this request needs, False otherwise.
+     */
+    fun canBeServedBy(candidate: RequestKey, width: Int, height: Int): Boolean {
+        if (candidate == this || candidate.variantGroup != variantGroup) {
+            return false
+        }
+        // Transformations work at the requested size, e.g. corner radius, a bigger variant would look different
+        if (transformations.isNotEmpty()) {
+            return false
+        }
+        // A full resolution decode can't be improved, it serves every request
+        if (!candidate.isMeasured && candidate.inSampleSize <= 1) {
+            return true
+        }
+        return if (isMeasured) {
+            // Cropped and stretched Bitmaps only serve requests with the same aspect ratio
+            val sameAspect = candidate.reqWidth.toLong() * reqHeight == candidate.reqHeight.toLong() * reqWidth
+            width >= reqWidth && height >= reqHeight &&
+                    (scaleMode == ScaleMode.NONE || scaleMode == ScaleMode.FIT_INSIDE || sameAspect)
+        } else {
+            !candidate.isMeasured && candidate.inSampleSize <= inSampleSize
+        }
+    }
+
+    private fun readableKey(): String {
+        return variantGroup + "_w" + reqWidth + "_h" + reqHeight + "_s" + inSampleSize
+    }
+
+    override fun toString(): String {
+        return readableKey()
+    }
+
+    companion object {
+        private val CACHE_KEY_PATTERN = Regex("[A-Za-z0-9%._-]{1,120}")
+
+        /**
+         * Builds the key of a measured request for an app resource.
+         *
+         * @param res       Resources package the resource is loaded with. Its density and night mode are part of the key.
+         * @param resId     App resource id.
+         * @param reqWidth  Required width of the view where the Bitmap should fit.
+         * @param reqHeight Required height of the view where the Bitmap should fit.
+         * @param config    [Bitmap.Config] the Bitmap is decoded with.
+         * @param scaleMode How the Bitmap is sized against required width and height.
+         * @param configPolicy How the [Bitmap.Config] is chosen.
+         * @param transformations [Transformation]s applied to the Bitmap, in order.
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun forResource(
+            res: Resources?, resId: Int, reqWidth: Int, reqHeight: Int,
+            config: Bitmap.Config = Bitmap.Config.ARGB_8888,
+            scaleMode: ScaleMode = ScaleMode.NONE,
+            configPolicy: ConfigPolicy = ConfigPolicy.DEFAULT,
+            transformations: List<Transformation> = emptyList()
+        ): RequestKey {
+            return RequestKey(
+                resourceSource(resId), reqWidth, reqHeight, 0, config,
+                densityOf(res), isNightMode(res), scaleMode, configPolicy, Transformations.keyOf(transformations)
+            )
+        }
+
+        /**
+         * Builds the key of a measured request for any [DataSource]. App resources get the same key [forResource]
+         * gives them, so both kinds of request share cache entries and decodes in flight.
+         *
+         * @param source    Source of the image. Its [DataSource.key] identifies it.
+         * @param reqWidth  Required width of the view where the Bitmap should fit.
+         * @param reqHeight Required height of the view where the Bitmap should fit.
+         * @param config    [Bitmap.Config] the Bitmap is decoded with.
+         * @param scaleMode How the Bitmap is sized against required width and height.
+         * @param configPolicy How the [Bitmap.Config] is chosen.
+         * @param transformations [Transformation]s applied to the Bitmap, in order.
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun forSource(
+            source: DataSource, reqWidth: Int, reqHeight: Int,
+            config: Bitmap.Config = Bitmap.Config.ARGB_8888,
+            scaleMode: ScaleMode = ScaleMode.NONE,
+            configPolicy: ConfigPolicy = ConfigPolicy.DEFAULT,
+            transformations: List<Transformation> = emptyList()
+        ): RequestKey {
+            if (source is ResourceSource) {
+                return forResource(
+                    source.res, source.resId, reqWidth, reqHeight, config, scaleMode, configPolicy, transformations
+                )
+            }
+            return RequestKey(
+                source.key, reqWidth, reqHeight, 0, config,
+                scaleMode = scaleMode, configPolicy = configPolicy,
+                transformations = Transformations.keyOf(transformations)
+            )
+        }
+
+        /**
+         * Builds the key of a request for an app resource with a forced inSampleSize.
+         *
+         * @param res          Resources package the resource is loaded with. Its density and night mode are part of the key.
+         * @param resId        App resource id.
+         * @param inSampleSize Forced inSampleSize.
+         * @param config       [Bitmap.Config] the Bitmap is decoded with.
+         * @param configPolicy How the [Bitmap.Config] is chosen.
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun forResourceSampled(
+            res: Resources?, resId: Int, inSampleSize: Int,
+            config: Bitmap.Config = Bitmap.Config.ARGB_8888,
+            configPolicy: ConfigPolicy = ConfigPolicy.DEFAULT
+        ): RequestKey {
+            return RequestKey(
+                resourceSource(resId), 0, 0, inSampleSize.coerceAtLeast(1), config,
+                densityOf(res), isNightMode(res), configPolicy = configPolicy
+            )
+        }
+
+        private fun resourceSource(resId: Int): String {
+            return "res_$resId"
+        }
+
+        private fun densityOf(res: Resources?): Int {
+            return res?.displayMetrics?.densityDpi ?: 0
+        }
+
+        private fun isNightMode(res: Resources?): Boolean {
+            val uiMode = res?.configuration?.uiMode ?: return false
+            return uiMode and Configuration.UI_MODE_NIGHT_MASK == Configuration.UI_MODE_NIGHT_YES
+        }
+
+        private fun md5(value: String): String {
+            val digest = MessageDigest.getInstance("MD5").digest(value.toByteArray())
+            val builder = StringBuilder(digest.size * 2)
+            for (b in digest) {
+                builder.append(String.format("%02x", b))
+            }
+            return builder.toString()
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.test.drawableloader.request
+
+import android.graphics.Bitmap
+import com.test.drawableloader.asynctasks.AsyncDecodeTask
+import com.test.drawableloader.listeners.OnBitmapRenderFailed
+import com.test.drawableloader.listeners.OnBitmapRendered
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Registry of the decodes currently in flight, identified by their [RequestKey].
+ *
+ * Concurrent requests for the same key are merged into a single decode job: the first request starts the decode,
+ * later ones are just attached to it, and the single result is delivered to the listeners of every request.
+ * A decode job is cancelled once every request attached to it is cancelled.
+ */
+class RequestRegistry {
+    private val inFlight = HashMap<RequestKey, Job>()
+    private val decodes = AtomicLong()
+    private val coalesced = AtomicLong()
+    private val cancelled = AtomicLong()
+
+    /**
+     * Number of decode jobs started through this registry.
+     */
+    val decodeCount: Long
+        get() = decodes.get()
+
+    /**
+     * Number of requests attached to an already running decode job, a.k.a. the number of decodes saved.
+     */
+    val coalescedCount: Long
+        get() = coalesced.get()
+
+    /**
+     * Number of decode jobs cancelled before delivering their result.
+     */
+    val cancelledCount: Long
+        get() = cancelled.get()
+
+    /**
+     * Number of decode jobs currently in flight.
+     */
+    val inFlightCount: Int
+        get() = synchronized(inFlight) { inFlight.size }
+
+    /**
+     * @param key [RequestKey] of a decode job.
+     * @return True if a decode job is in flight for the key, with at least one request still waiting for it.
+     */
+    fun isInFlight(key: RequestKey): Boolean = synchronized(inFlight) { inFlight.containsKey(key) }
+
+    /**
+     * Registers a request and its listeners.
+     *
+     * @param key                  [RequestKey] of the request.
+     * @param onBitmapRendered     Listener to be called with the decoded Bitmap. Can be null.
+     * @param onBitmapRenderFailed Listener to be called if decode fails. Can be null.
+     * @return [RequestHandle] of the request. If [RequestHandle.startsDecode] is True there was no decode in flight
+     * for this key, and the caller must start it and [attachTask] it.
+     */
+    fun register(
+        key: RequestKey,
+        onBitmapRendered: OnBitmapRendered?,
+        onBitmapRenderFailed: OnBitmapRenderFailed?
+    ): RequestHandle {
+        val handle = RequestHandle(key, onBitmapRendered, onBitmapRenderFailed, this)
+        synchronized(inFlight) {
+            val job = inFlight[key]
+            if (job != null) {
+                job.handles.add(handle)
+                coalesced.incrementAndGet()
+            } else {
+                inFlight[key] = Job(mutableListOf(handle))
+                decodes.incrementAndGet()
+                handle.startsDecode = true
+            }
+        }
+        return handle
+    }
+
+    /**
+     * Attaches the task decoding a job, so it can be cancelled along with the job.
+     *
+     * @param key  [RequestKey] of the decode job.
+     * @param task Task decoding the job.
+     */
+    fun attachTask(key: RequestKey, task: AsyncDecodeTask) {
+        synchronized(inFlight) {
+            val job = inFlight[key]
+            if (job != null) {
+                job.task = task
+                return
+            }
+        }
+        // Every request was cancelled before the task was attached
+        task.cancel()
+    }
+
+    /**
+     * @param key [RequestKey] of the decode job.
+     * @return Listener the decode job must report its Bitmap to, so it is delivered to every waiting request.
+     */
+    fun renderedListener(key: RequestKey): OnBitmapRendered {
+        return object : OnBitmapRendered {
+            override fun onBitmapRendered(bitmap: Bitmap?) {
+                for (handle in complete(key)) {
+                    handle.onBitmapRendered?.onBitmapRendered(bitmap)
+                }
+            }
+        }
+    }
+
+    /**
+     * @param key [RequestKey] of the decode job.
+     * @return Listener the decode job must report its failure to, so it is delivered to every waiting request.
+     */
+    fun failedListener(key: RequestKey): OnBitmapRenderFailed {
+        return object : OnBitmapRenderFailed {
+            override fun onBitmapRenderFailed(e: Exception?) {
+                for (handle in complete(key)) {
+                    handle.onBitmapRenderFailed?.onBitmapRenderFailed(e)
+                }
+            }
+        }
+    }
+
+    internal fun bumpPriority(key: RequestKey, priority: Priority) {
+        val task = synchronized(inFlight) { inFlight[key]?.task }
+        task?.bumpPriority(priority)
+    }
+
+    internal fun cancel(handle: RequestHandle) {
+        val key = handle.key ?: return
+        var task: AsyncDecodeTask? = null
+        synchronized(inFlight) {
+            val job = inFlight[key] ?: return
+            job.handles.remove(handle)
+            if (job.handles.isEmpty()) {
+                inFlight.remove(key)
+                cancelled.incrementAndGet()
+                task = job.task
+            }
+        }
+        task?.cancel()
+    }
+
+    private fun complete(key: RequestKey): List<RequestHandle> {
+        synchronized(inFlight) {
+            val handles = inFlight.remove(key)?.handles ?: return emptyList()
+            for (handle in handles) {
+                handle.isDone = true
+            }
+            return handles.filter { !it.isCancelled }
+        }
+    }
+
+    private class Job(val handles: MutableList<RequestHandle>) {
+        var task: AsyncDecodeTask? = null
+    }
+}
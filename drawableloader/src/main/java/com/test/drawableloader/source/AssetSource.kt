@@ -0,0 +1,20 @@
+package com.test.drawableloader.source
+
+import android.content.res.AssetManager
+import java.io.InputStream
+
+/**
+ * Image in the app assets.
+ *
+ * @param assets Assets of the app, see [android.content.Context.getAssets].
+ * @param path   Path of the image relative to the assets root, e.g. `images/header.png`.
+ */
+class AssetSource(private val assets: AssetManager, val path: String) : DataSource {
+    override val key: String
+        get() = "asset_$path"
+
+    override fun open(): InputStream {
+        // Streaming access supports mark / reset, so both decode passes read the asset once
+        return assets.open(path, AssetManager.ACCESS_STREAMING)
+    }
+}
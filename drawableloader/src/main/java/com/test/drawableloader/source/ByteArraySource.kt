@@ -0,0 +1,55 @@
+package com.test.drawableloader.source
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import java.io.ByteArrayInputStream
+import java.io.InputStream
+import java.security.MessageDigest
+
+/**
+ * Encoded image already in memory, e.g. received from a socket. Bytes are decoded in place, without being copied.
+ *
+ * @param bytes  Array holding the encoded image. Must not be modified while requests for it are in flight.
+ * @param offset Offset of the image in the array.
+ * @param length Length of the image.
+ * @param key    Stable identifier of the image, e.g. its URL. If null, it's a digest of the bytes.
+ */
+class ByteArraySource @JvmOverloads constructor(
+    private val bytes: ByteArray,
+    private val offset: Int = 0,
+    private val length: Int = bytes.size,
+    key: String? = null
+) : DataSource {
+    override val key: String by lazy { key ?: "bytes_" + digestOf(bytes, offset, length) }
+
+    init {
+        require(offset >= 0 && length >= 0 && offset + length <= bytes.size) { "Range out of array bounds" }
+    }
+
+    override fun open(): InputStream {
+        return ByteArrayInputStream(bytes, offset, length)
+    }
+
+    override fun decode(input: InputStream, options: BitmapFactory.Options): Bitmap? {
+        return BitmapFactory.decodeByteArray(bytes, offset, length, options)
+    }
+
+    internal companion object {
+        /**
+         * Hex digest of a byte range, to key images identified by their content only.
+         */
+        fun digestOf(bytes: ByteArray, offset: Int, length: Int): String {
+            val digest = MessageDigest.getInstance("MD5")
+            digest.update(bytes, offset, length)
+            return hexOf(digest.digest())
+        }
+
+        fun hexOf(digest: ByteArray): String {
+            val builder = StringBuilder(digest.size * 2)
+            for (b in digest) {
+                builder.append(String.format("%02x", b))
+            }
+            return builder.toString()
+        }
+    }
+}
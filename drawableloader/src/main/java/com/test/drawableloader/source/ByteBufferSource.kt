@@ -0,0 +1,86 @@
+package com.test.drawableloader.source
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+
+/**
+ * Encoded image in a [ByteBuffer], from its position to its limit. Heap buffers are decoded in place; direct buffers,
+ * e.g. memory mapped files, are streamed without being copied to the heap first.
+ *
+ * @param buffer Buffer holding the encoded image. Its position and limit are left untouched, and its content must not
+ *               be modified while requests for it are in flight.
+ * @param key    Stable identifier of the image, e.g. its URL. If null, it's a digest of the bytes.
+ */
+class ByteBufferSource @JvmOverloads constructor(
+    buffer: ByteBuffer,
+    key: String? = null
+) : DataSource {
+    private val buffer: ByteBuffer = buffer.slice()
+
+    override val key: String by lazy { key ?: "bytes_" + digestOf(this.buffer.duplicate()) }
+
+    override fun open(): InputStream {
+        return ByteBufferInputStream(buffer.duplicate())
+    }
+
+    override fun decode(input: InputStream, options: BitmapFactory.Options): Bitmap? {
+        if (buffer.hasArray()) {
+            return BitmapFactory.decodeByteArray(
+                buffer.array(), buffer.arrayOffset(), buffer.remaining(), options
+            )
+        }
+        return BitmapFactory.decodeStream(input, null, options)
+    }
+
+    private fun digestOf(bytes: ByteBuffer): String {
+        val digest = MessageDigest.getInstance("MD5")
+        digest.update(bytes)
+        return ByteArraySource.hexOf(digest.digest())
+    }
+
+    /**
+     * Stream over a buffer of its own, rewound through mark / reset without buffering.
+     */
+    private class ByteBufferInputStream(private val buffer: ByteBuffer) : InputStream() {
+        override fun read(): Int {
+            return if (buffer.hasRemaining()) buffer.get().toInt() and 0xff else -1
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            if (len == 0) {
+                return 0
+            }
+            if (!buffer.hasRemaining()) {
+                return -1
+            }
+            val count = minOf(len, buffer.remaining())
+            buffer.get(b, off, count)
+            return count
+        }
+
+        override fun skip(n: Long): Long {
+            val count = minOf(n, buffer.remaining().toLong()).coerceAtLeast(0).toInt()
+            buffer.position(buffer.position() + count)
+            return count.toLong()
+        }
+
+        override fun available(): Int {
+            return buffer.remaining()
+        }
+
+        override fun markSupported(): Boolean {
+            return true
+        }
+
+        override fun mark(readlimit: Int) {
+            buffer.mark()
+        }
+
+        override fun reset() {
+            buffer.reset()
+        }
+    }
+}
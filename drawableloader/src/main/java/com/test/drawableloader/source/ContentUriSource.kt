@@ -0,0 +1,25 @@
+package com.test.drawableloader.source
+
+import android.content.ContentResolver
+import android.net.Uri
+import java.io.FileNotFoundException
+import java.io.InputStream
+
+/**
+ * Image read through a [ContentResolver], e.g. one picked by the user from the gallery. Both `content://` and
+ * `android.resource://` URIs are supported.
+ *
+ * Providers don't tell cheaply when their content changes, so [key] is the URI itself: a provider reusing a URI for
+ * another image needs its cache entries removed.
+ *
+ * @param resolver Resolver of the app, see [android.content.Context.getContentResolver].
+ * @param uri      URI of the image.
+ */
+class ContentUriSource(private val resolver: ContentResolver, val uri: Uri) : DataSource {
+    override val key: String
+        get() = "uri_$uri"
+
+    override fun open(): InputStream {
+        return resolver.openInputStream(uri) ?: throw FileNotFoundException("Provider returned no stream for $uri")
+    }
+}
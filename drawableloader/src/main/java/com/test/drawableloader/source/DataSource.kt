@@ -0,0 +1,50 @@
+package com.test.drawableloader.source
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * Source of an encoded image the loader can decode, such as an app resource, a file, an asset, a `content://` URI
+ * or bytes already in memory. Every source goes through the same decoder as app resources: bounds are read first from
+ * the image header to pick an inSampleSize that fits the request and the heap budget, pixels are decoded into pooled
+ * Bitmaps, and results are cached in memory and on disk under [key].
+ *
+ * Streams supporting mark / reset are opened once per decode and rewound between the bounds and pixel passes. Other
+ * streams are only buffered as far as the image header, and opened again for the pixel pass, so [open] may be called
+ * more than once per decode. Either way, reading bounds only costs reading the image header.
+ *
+ * @see Fetcher
+ */
+interface DataSource {
+    /**
+     * Stable identifier of the image, e.g. `file_/sdcard/img.jpg_1617181920000_48213`. It becomes part of cache keys,
+     * so it must stay the same across app launches for the same image, and differ whenever the image may differ.
+     * Async requests read it once, on the loader's pools, so it may touch the disk or digest the image.
+     */
+    val key: String
+
+    /**
+     * Opens a new stream reading the encoded image from its start. Runs on the loader's pools.
+     *
+     * @return Stream of the encoded image, closed by the caller.
+     * @throws IOException If the source can't be opened.
+     */
+    @Throws(IOException::class)
+    fun open(): InputStream
+
+    /**
+     * Decodes the image, or just its bounds if [BitmapFactory.Options.inJustDecodeBounds] is set, from a stream
+     * opened by [open]. Sources able to decode cheaper, e.g. straight from memory, or needing to set a density,
+     * override it.
+     *
+     * @param input   Stream opened by [open], positioned at its start.
+     * @param options Options to decode with.
+     * @return Decoded [Bitmap], null on a bounds decode or if the image couldn't be decoded.
+     */
+    @Throws(IOException::class)
+    fun decode(input: InputStream, options: BitmapFactory.Options): Bitmap? {
+        return BitmapFactory.decodeStream(input, null, options)
+    }
+}
@@ -0,0 +1,17 @@
+package com.test.drawableloader.source
+
+/**
+ * Turns the models requests are made for into [DataSource]s, so the loader can decode them. Built-in fetchers handle
+ * [java.io.File]s, [android.net.Uri]s (`file://`, `file:///android_asset/`, `content://` and `android.resource://`),
+ * byte arrays and [java.nio.ByteBuffer]s. Custom fetchers, e.g. for app specific models, are registered with
+ * [com.test.drawableloader.DrawableLoader.registerFetcher] and tried first.
+ */
+interface Fetcher {
+    /**
+     * Gets the source of a model. Must be cheap, it runs on the thread the request is made on.
+     *
+     * @param model Model a request is made for.
+     * @return [DataSource] reading the model, null if this fetcher doesn't handle it.
+     */
+    fun fetch(model: Any): DataSource?
+}
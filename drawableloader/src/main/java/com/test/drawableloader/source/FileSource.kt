@@ -0,0 +1,19 @@
+package com.test.drawableloader.source
+
+import java.io.File
+import java.io.FileInputStream
+import java.io.InputStream
+
+/**
+ * Image file, e.g. a downloaded or captured one. Its size and last modification time are part of [key], so a file
+ * overwritten with another image isn't served from cache. They're read once per source, the first time [key] is read.
+ *
+ * @param file Image file.
+ */
+class FileSource(val file: File) : DataSource {
+    override val key: String by lazy { "file_" + file.absolutePath + "_" + file.lastModified() + "_" + file.length() }
+
+    override fun open(): InputStream {
+        return FileInputStream(file)
+    }
+}
@@ -0,0 +1,27 @@
+package com.test.drawableloader.source
+
+import android.net.Uri
+import com.test.drawableloader.cacheutils.HttpDiskCache
+import java.net.URL
+
+/**
+ * Fetcher of images served over HTTP, given as [URL]s, or as `http` / `https` [Uri]s or strings. Responses are cached
+ * on disk by [diskCache], which also merges concurrent downloads of the same URL.
+ *
+ * @param diskCache Disk cache responses are downloaded into.
+ */
+class HttpFetcher(val diskCache: HttpDiskCache) : Fetcher {
+    override fun fetch(model: Any): DataSource? {
+        val url = when (model) {
+            is URL -> model
+            is Uri -> if (isHttp(model.scheme)) URL(model.toString()) else null
+            is String -> if (isHttp(model.substringBefore(':', ""))) URL(model) else null
+            else -> null
+        }
+        return if (url != null && isHttp(url.protocol)) HttpSource(url, diskCache) else null
+    }
+
+    private fun isHttp(scheme: String?): Boolean {
+        return scheme.equals("http", ignoreCase = true) || scheme.equals("https", ignoreCase = true)
+    }
+}
@@ -0,0 +1,21 @@
+package com.test.drawableloader.source
+
+import com.test.drawableloader.cacheutils.HttpDiskCache
+import java.io.InputStream
+import java.net.URL
+
+/**
+ * Image served over HTTP. The response is downloaded into a [HttpDiskCache] and decoded from disk, so decoding never
+ * holds the whole response in memory, and later decodes, e.g. for another size, don't download it again.
+ *
+ * @param url       URL of the image.
+ * @param diskCache Disk cache responses are downloaded into.
+ */
+class HttpSource(val url: URL, private val diskCache: HttpDiskCache) : DataSource {
+    override val key: String
+        get() = "http_$url"
+
+    override fun open(): InputStream {
+        return diskCache.open(url)
+    }
+}
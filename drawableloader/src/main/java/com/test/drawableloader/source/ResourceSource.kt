@@ -0,0 +1,44 @@
+package com.test.drawableloader.source
+
+import android.content.res.Resources
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.util.TypedValue
+import com.test.drawableloader.decoder.DrawableRasterizer
+import java.io.InputStream
+
+/**
+ * App resource, decoded with its density like [BitmapFactory.decodeResource] does.
+ *
+ * @param res   Resources package the resource is loaded with. Its density and night mode are part of cache keys.
+ * @param resId App resource id.
+ */
+class ResourceSource(val res: Resources?, val resId: Int) : DataSource {
+    override val key: String
+        get() = "res_$resId"
+
+    override fun open(): InputStream {
+        if (res == null) {
+            throw Resources.NotFoundException("No resources to open resource $resId")
+        }
+        return res.openRawResource(resId)
+    }
+
+    override fun decode(input: InputStream, options: BitmapFactory.Options): Bitmap? {
+        return BitmapFactory.decodeResourceStream(res, valueOf(), input, null, options)
+    }
+
+    /**
+     * @return True if the resource is an XML drawable, such as a vector, rather than an encoded image.
+     */
+    fun isXmlDrawable(): Boolean {
+        return res != null && DrawableRasterizer.isXmlDrawable(valueOf())
+    }
+
+    private fun valueOf(): TypedValue {
+        // Looked up on each pass, it's a resource table lookup, and keeps the source free to share between threads
+        val value = TypedValue()
+        res?.getValue(resId, value, true)
+        return value
+    }
+}
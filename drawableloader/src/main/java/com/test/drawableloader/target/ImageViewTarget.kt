@@ -0,0 +1,197 @@
+package com.test.drawableloader.target
+
+import android.content.res.Resources
+import android.graphics.Bitmap
+import android.view.ViewGroup
+import android.view.ViewTreeObserver
+import android.widget.ImageView
+import com.test.drawableloader.DrawableLoader
+import com.test.drawableloader.R
+import com.test.drawableloader.decoder.ScaleMode
+import com.test.drawableloader.listeners.OnBitmapRenderFailed
+import com.test.drawableloader.listeners.OnBitmapRendered
+import com.test.drawableloader.request.Priority
+import com.test.drawableloader.request.RequestHandle
+import com.test.drawableloader.transform.Transformation
+
+/**
+ * Request bound to an [ImageView] by [DrawableLoader.into]. The Bitmap is decoded for the size the view is laid out
+ * at, waiting for layout through [ViewTreeObserver] if it isn't known yet, and is set on the view once it's ready.
+ * It's scaled to that size the way the view's [ImageView.ScaleType] shows it, see [scaleModeOf], so no more pixels
+ * than displayed are decoded and cached.
+ *
+ * The target is kept as a tag of the view, so binding the view again, e.g. when a RecyclerView row is reused,
+ * cancels the previous request before it can overwrite the new image. Every method must be called on the main thread.
+ */
+class ImageViewTarget internal constructor(
+    private val imageView: ImageView,
+    private val res: Resources?,
+    private val resId: Int,
+    private val priority: Priority,
+    private val transformations: List<Transformation>,
+    private val onBitmapRenderFailed: OnBitmapRenderFailed?
+) : ViewTreeObserver.OnPreDrawListener {
+    private var handle: RequestHandle? = null
+    private var observer: ViewTreeObserver? = null
+    private var cancelled = false
+
+    /**
+     * Width the Bitmap is decoded for, 0 until the view size is known.
+     */
+    var width = 0
+        private set
+
+    /**
+     * Height the Bitmap is decoded for, 0 until the view size is known.
+     */
+    var height = 0
+        private set
+
+    /**
+     * True if the request was cancelled, either by [cancel] or by binding the view again.
+     */
+    val isCancelled: Boolean
+        get() = cancelled
+
+    /**
+     * Loads the Bitmap right away if the view size is known, otherwise once the view is laid out.
+     */
+    internal fun start() {
+        if (!resolveSize()) {
+            val observer = imageView.viewTreeObserver
+            observer.addOnPreDrawListener(this)
+            this.observer = observer
+        }
+    }
+
+    override fun onPreDraw(): Boolean {
+        if (!cancelled && resolveSize()) {
+            removePreDrawListener()
+        }
+        return true
+    }
+
+    /**
+     * Cancels the request: the view is left as it is, and no listener is called.
+     */
+    fun cancel() {
+        if (cancelled) {
+            return
+        }
+        cancelled = true
+        removePreDrawListener()
+        handle?.cancel()
+        if (imageView.getTag(R.id.drawable_loader_target) === this) {
+            imageView.setTag(R.id.drawable_loader_target, null)
+        }
+    }
+
+    /**
+     * Measures the view and starts the request once both sides are known.
+     *
+     * @return True if the request was started, False if layout is still needed.
+     */
+    private fun resolveSize(): Boolean {
+        val params = imageView.layoutParams
+        val metrics = imageView.resources.displayMetrics
+        val fallback = maxOf(metrics.widthPixels, metrics.heightPixels)
+        val width = targetSize(
+            imageView.width, imageView.paddingLeft + imageView.paddingRight,
+            params?.width ?: ViewGroup.LayoutParams.WRAP_CONTENT, fallback
+        )
+        val height = targetSize(
+            imageView.height, imageView.paddingTop + imageView.paddingBottom,
+            params?.height ?: ViewGroup.LayoutParams.WRAP_CONTENT, fallback
+        )
+        if (width <= 0 || height <= 0) {
+            return false
+        }
+
+        this.width = width
+        this.height = height
+        load()
+        return true
+    }
+
+    private fun load() {
+        val scaleMode = scaleModeOf(imageView.scaleType)
+        // Memory cache hits are set right away, so a rebound row never shows its previous image for a frame
+        val cached = DrawableLoader.getBitmapFromMemCache(res, resId, width, height, scaleMode, transformations)
+        if (cached != null) {
+            imageView.setImageBitmap(cached)
+            return
+        }
+
+        imageView.setImageDrawable(null)
+        handle = DrawableLoader.decodeBitmapFromResource(
+            res, resId, width, height, scaleMode, priority, null,
+            object : OnBitmapRendered {
+                override fun onBitmapRendered(bitmap: Bitmap?) {
+                    if (!cancelled) {
+                        imageView.setImageBitmap(bitmap)
+                    }
+                }
+            },
+            object : OnBitmapRenderFailed {
+                override fun onBitmapRenderFailed(e: Exception?) {
+                    if (!cancelled) {
+                        onBitmapRenderFailed?.onBitmapRenderFailed(e)
+                    }
+                }
+            },
+            transformations
+        )
+    }
+
+    private fun removePreDrawListener() {
+        val observer = observer ?: return
+        if (observer.isAlive) {
+            observer.removeOnPreDrawListener(this)
+        } else {
+            imageView.viewTreeObserver.removeOnPreDrawListener(this)
+        }
+        this.observer = null
+    }
+
+    companion object {
+        /**
+         * [ScaleMode] matching how an [ImageView] scales its content. Views scaling the image to their size get a
+         * Bitmap decoded exactly for it, views showing it unscaled keep the power of two downsample only.
+         *
+         * @param scaleType [ImageView.ScaleType] of the view.
+         * @return [ScaleMode] to decode the Bitmap with.
+         */
+        @JvmStatic
+        fun scaleModeOf(scaleType: ImageView.ScaleType?): ScaleMode {
+            return when (scaleType) {
+                ImageView.ScaleType.CENTER_CROP -> ScaleMode.CENTER_CROP
+                // FIT_XY stretches the Bitmap, fitting inside keeps it undistorted and never upscaled in cache
+                ImageView.ScaleType.FIT_CENTER, ImageView.ScaleType.FIT_START, ImageView.ScaleType.FIT_END,
+                ImageView.ScaleType.FIT_XY, ImageView.ScaleType.CENTER_INSIDE -> ScaleMode.FIT_INSIDE
+                // CENTER and MATRIX show the image at its own size
+                else -> ScaleMode.NONE
+            }
+        }
+
+        /**
+         * Size a Bitmap should be decoded at to fill one side of a view.
+         *
+         * @param viewSize   Laid out size of the view, 0 if it isn't laid out yet.
+         * @param padding    Padding of the view on that side.
+         * @param paramsSize Size the layout params ask for, or [ViewGroup.LayoutParams.MATCH_PARENT] or
+         *                   [ViewGroup.LayoutParams.WRAP_CONTENT].
+         * @param fallback   Size used when the view wraps its content, usually the largest screen side.
+         * @return Size to decode at, 0 if it's only known after layout.
+         */
+        @JvmStatic
+        fun targetSize(viewSize: Int, padding: Int, paramsSize: Int, fallback: Int): Int {
+            return when {
+                viewSize > 0 -> (viewSize - padding).coerceAtLeast(1)
+                paramsSize > 0 -> (paramsSize - padding).coerceAtLeast(1)
+                // Content of a wrapping view is shown as big as the image, bounded by the screen
+                paramsSize == ViewGroup.LayoutParams.WRAP_CONTENT -> fallback
+                else -> 0
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.test.drawableloader.transform
+
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Matrix
+import android.graphics.Paint
+import com.test.drawableloader.cacheutils.BitmapPool
+
+/**
+ * Scales a Bitmap so it fills the required width and height, keeping its aspect ratio, and crops the overflow evenly
+ * on both sides. Bitmaps without required measures, or already at them, are left as they are.
+ */
+class CenterCrop : Transformation {
+    override val key: String
+        get() = "centercrop"
+
+    override fun transform(pool: BitmapPool?, source: Bitmap, reqWidth: Int, reqHeight: Int): Bitmap {
+        if (reqWidth <= 0 || reqHeight <= 0 || (source.width == reqWidth && source.height == reqHeight)) {
+            return source
+        }
+
+        val scale: Float
+        var dx = 0f
+        var dy = 0f
+        if (source.width.toLong() * reqHeight > reqWidth.toLong() * source.height) {
+            scale = reqHeight.toFloat() / source.height
+            dx = (reqWidth - source.width * scale) * 0.5f
+        } else {
+            scale = reqWidth.toFloat() / source.width
+            dy = (reqHeight - source.height * scale) * 0.5f
+        }
+        val matrix = Matrix()
+        matrix.setScale(scale, scale)
+        matrix.postTranslate(dx + 0.5f, dy + 0.5f)
+
+        val result = Transformations.obtain(pool, reqWidth, reqHeight, Transformations.configOf(source, false))
+        result.setHasAlpha(source.hasAlpha())
+        Canvas(result).drawBitmap(source, matrix, Paint(Paint.FILTER_BITMAP_FLAG or Paint.DITHER_FLAG))
+        return result
+    }
+}
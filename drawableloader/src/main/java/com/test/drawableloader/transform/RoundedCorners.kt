@@ -0,0 +1,33 @@
+package com.test.drawableloader.transform
+
+import android.graphics.Bitmap
+import android.graphics.BitmapShader
+import android.graphics.Canvas
+import android.graphics.Paint
+import android.graphics.RectF
+import android.graphics.Shader
+import com.test.drawableloader.cacheutils.BitmapPool
+
+/**
+ * Rounds the corners of a Bitmap, leaving them transparent.
+ *
+ * @param radius Radius of the corners, in pixels of the Bitmap.
+ */
+class RoundedCorners(private val radius: Int) : Transformation {
+    init {
+        require(radius > 0) { "radius <= 0" }
+    }
+
+    override val key: String
+        get() = "rounded_$radius"
+
+    override fun transform(pool: BitmapPool?, source: Bitmap, reqWidth: Int, reqHeight: Int): Bitmap {
+        val result = Transformations.obtain(pool, source.width, source.height, Transformations.configOf(source, true))
+        result.setHasAlpha(true)
+        val paint = Paint(Paint.ANTI_ALIAS_FLAG or Paint.FILTER_BITMAP_FLAG)
+        paint.shader = BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP)
+        val bounds = RectF(0f, 0f, source.width.toFloat(), source.height.toFloat())
+        Canvas(result).drawRoundRect(bounds, radius.toFloat(), radius.toFloat(), paint)
+        return result
+    }
+}
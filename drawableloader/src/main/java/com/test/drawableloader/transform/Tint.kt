@@ -0,0 +1,27 @@
+package com.test.drawableloader.transform
+
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Paint
+import android.graphics.PorterDuff
+import android.graphics.PorterDuffColorFilter
+import com.test.drawableloader.cacheutils.BitmapPool
+
+/**
+ * Tints a Bitmap with a color, keeping its alpha, so opaque pixels take the color. Meant for icons and silhouettes.
+ *
+ * @param color Color to tint with, as an ARGB int.
+ */
+class Tint(private val color: Int) : Transformation {
+    override val key: String
+        get() = "tint_" + Integer.toHexString(color)
+
+    override fun transform(pool: BitmapPool?, source: Bitmap, reqWidth: Int, reqHeight: Int): Bitmap {
+        val result = Transformations.obtain(pool, source.width, source.height, Transformations.configOf(source, true))
+        result.setHasAlpha(true)
+        val paint = Paint(Paint.FILTER_BITMAP_FLAG)
+        paint.colorFilter = PorterDuffColorFilter(color, PorterDuff.Mode.SRC_IN)
+        Canvas(result).drawBitmap(source, 0f, 0f, paint)
+        return result
+    }
+}
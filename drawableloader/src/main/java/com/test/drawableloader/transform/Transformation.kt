@@ -0,0 +1,34 @@
+package com.test.drawableloader.transform
+
+import android.graphics.Bitmap
+import com.test.drawableloader.cacheutils.BitmapPool
+
+/**
+ * Transformation applied to decoded Bitmaps before they're cached, such as [CenterCrop], [RoundedCorners] or [Tint].
+ * Requests can chain several of them, applied in order.
+ *
+ * Transformed Bitmaps are cached in memory and disk tiers under a key including the [key] of every transformation of
+ * the request, so binding the same request again is a cache hit, without decoding nor transforming again.
+ */
+interface Transformation {
+    /**
+     * Stable identifier of the transformation and of every parameter that changes its output, e.g. `rounded_16`.
+     * It becomes part of cache keys, so it must stay the same across app launches, and differ whenever the
+     * transformation would output different pixels.
+     */
+    val key: String
+
+    /**
+     * Transforms a Bitmap. Runs on the decode pool.
+     *
+     * Destination Bitmaps should be taken from [pool], see [Transformations.obtain]. [source] must not be modified nor
+     * recycled: if it's not returned, it's given back to the pool once the transformation is done.
+     *
+     * @param pool      Pool to take the destination Bitmap from. Can be null.
+     * @param source    Bitmap to transform.
+     * @param reqWidth  Required width of the view where the Bitmap should fit.
+     * @param reqHeight Required height of the view where the Bitmap should fit.
+     * @return Transformed [Bitmap], or [source] itself if nothing had to change.
+     */
+    fun transform(pool: BitmapPool?, source: Bitmap, reqWidth: Int, reqHeight: Int): Bitmap
+}
@@ -0,0 +1,92 @@
+package com.test.drawableloader.transform
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import com.test.drawableloader.cacheutils.BitmapPool
+
+/**
+ * Helpers to apply chains of [Transformation]s and to build them.
+ */
+object Transformations {
+    /**
+     * Cache key contribution of a chain of transformations.
+     *
+     * @param transformations Transformations, in the order they're applied.
+     * @return Keys of every transformation joined in order, empty if there is none.
+     */
+    @JvmStatic
+    fun keyOf(transformations: List<Transformation>): String {
+        return transformations.joinToString("-") { it.key }
+    }
+
+    /**
+     * Applies a chain of transformations in order. Intermediate Bitmaps are never shown nor cached, so they're given
+     * back to the pool as soon as the next transformation is done with them.
+     *
+     * @param transformations Transformations to apply, in order.
+     * @param pool            Pool transformations take their destinations from, and intermediate Bitmaps go back to. Can be null.
+     * @param source          Decoded Bitmap, owned by the caller.
+     * @param reqWidth        Required width of the view where the Bitmap should fit.
+     * @param reqHeight       Required height of the view where the Bitmap should fit.
+     * @return Transformed [Bitmap], [source] if no transformation changed it.
+     */
+    @JvmStatic
+    fun apply(
+        transformations: List<Transformation>,
+        pool: BitmapPool?,
+        source: Bitmap,
+        reqWidth: Int,
+        reqHeight: Int
+    ): Bitmap {
+        var bitmap = source
+        for (transformation in transformations) {
+            val transformed = transformation.transform(pool, bitmap, reqWidth, reqHeight)
+            if (transformed !== bitmap) {
+                pool?.put(bitmap)
+                bitmap = transformed
+            }
+        }
+        return bitmap
+    }
+
+    /**
+     * Mime type a transformed Bitmap should be stored on disk with. Transformations may add transparency, e.g.
+     * rounded corners, which JPEG would lose.
+     *
+     * @param bitmap         Transformed Bitmap.
+     * @param sourceMimeType Mime type of the decoded image.
+     * @return Mime type to compress the Bitmap with.
+     */
+    @JvmStatic
+    fun outMimeType(bitmap: Bitmap, sourceMimeType: String?): String {
+        return if (bitmap.hasAlpha() || sourceMimeType == null) "image/png" else sourceMimeType
+    }
+
+    /**
+     * Gets a cleared Bitmap to draw a transformation into, reusing a pooled one if possible.
+     *
+     * @param pool   Pool to take the Bitmap from. Can be null.
+     * @param width  Width of the Bitmap.
+     * @param height Height of the Bitmap.
+     * @param config [Bitmap.Config] of the Bitmap.
+     * @return Transparent [Bitmap] of the given size and config.
+     */
+    @JvmStatic
+    fun obtain(pool: BitmapPool?, width: Int, height: Int, config: Bitmap.Config): Bitmap {
+        val pooled = pool?.get(width, height, config)
+        if (pooled != null) {
+            pooled.eraseColor(Color.TRANSPARENT)
+            return pooled
+        }
+        return Bitmap.createBitmap(width, height, config)
+    }
+
+    /**
+     * Config of a transformation's destination: the source one, or ARGB_8888 if the transformation adds transparency
+     * or the source config is unknown.
+     */
+    internal fun configOf(source: Bitmap, needsAlpha: Boolean): Bitmap.Config {
+        val config = source.config
+        return if (needsAlpha || config == null) Bitmap.Config.ARGB_8888 else config
+    }
+}
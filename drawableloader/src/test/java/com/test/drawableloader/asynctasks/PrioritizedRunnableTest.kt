@@ -0,0 +1,54 @@
+package com.test.drawableloader.asynctasks
+
+import com.test.drawableloader.request.Priority
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.concurrent.PriorityBlockingQueue
+
+class PrioritizedRunnableTest {
+
+    @Test
+    fun higherPriorityRunsFirstThenNewestFirst() {
+        val queue = PriorityBlockingQueue(16, PrioritizedRunnable.ORDER)
+        val fullA = task("fullA", Priority.NORMAL)
+        val fullB = task("fullB", Priority.NORMAL)
+        val previewA = task("previewA", Priority.HIGH)
+        val previewB = task("previewB", Priority.HIGH)
+
+        queue.addAll(listOf(fullA, fullB, previewA, previewB))
+
+        assertEquals(listOf(previewB, previewA, fullB, fullA), List(4) { queue.poll() })
+    }
+
+    @Test
+    fun plainRunnablesRunAsNormalPriority() {
+        val queue = PriorityBlockingQueue(16, PrioritizedRunnable.ORDER)
+        val plain = Runnable { }
+        val normal = task("normal", Priority.NORMAL)
+        val high = task("high", Priority.HIGH)
+
+        queue.addAll(listOf(plain, normal, high))
+
+        assertEquals(listOf(high, normal, plain), List(3) { queue.poll() })
+    }
+
+    @Test
+    fun bumpedWorkRunsAsNewestOfItsPriority() {
+        val queue = PriorityBlockingQueue(16, PrioritizedRunnable.ORDER)
+        val prefetch = task("prefetch", Priority.PREFETCH)
+        val visible = task("visible", Priority.HIGH)
+        val immediate = task("immediate", Priority.IMMEDIATE)
+        prefetch.setPriority(Priority.HIGH)
+
+        queue.addAll(listOf(prefetch, visible, immediate))
+
+        assertEquals(listOf(immediate, prefetch, visible), List(3) { queue.poll() })
+    }
+
+    private fun task(name: String, priority: Priority): PrioritizedRunnable {
+        return object : PrioritizedRunnable(priority) {
+            override fun run() {}
+            override fun toString() = name
+        }
+    }
+}
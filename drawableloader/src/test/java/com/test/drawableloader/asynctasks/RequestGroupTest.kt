@@ -0,0 +1,105 @@
+package com.test.drawableloader.asynctasks
+
+import com.test.drawableloader.ExecutionConfig
+import com.test.drawableloader.request.Priority
+import com.test.drawableloader.request.RequestKey
+import com.test.drawableloader.request.RequestRegistry
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.Executor
+
+class RequestGroupTest {
+
+    // Nothing is delivered on the main thread here, and unit tests have no main Looper
+    private val executors = LoaderExecutors(ExecutionConfig(1, 1), Executor { it.run() })
+    private val queued = mutableListOf<Runnable>()
+    private val pool = Executor { queued.add(it) }
+
+    @After
+    fun tearDown() {
+        executors.shutdown()
+    }
+
+    @Test
+    fun pausedGroupHoldsWorkUntilResumed() {
+        val group = RequestGroup()
+        val first = Runnable { }
+        val second = Runnable { }
+
+        group.pause()
+        group.execute(executors, pool, first)
+        group.execute(executors, pool, second)
+        assertTrue(group.isPaused)
+        assertTrue(queued.isEmpty())
+
+        group.resume()
+        assertFalse(group.isPaused)
+        assertEquals(listOf(first, second), queued)
+    }
+
+    @Test
+    fun heldWorkKeepsBumpedPriority() {
+        val group = RequestGroup()
+        val stage = object : PrioritizedRunnable(Priority.PREFETCH) {
+            override fun run() {}
+        }
+
+        group.pause()
+        group.execute(executors, pool, stage)
+        group.reprioritize(stage, Priority.HIGH)
+        group.resume()
+
+        assertEquals(Priority.HIGH, stage.priority)
+        assertEquals(listOf<Runnable>(stage), queued)
+    }
+
+    @Test
+    fun cancelledWorkIsNotResumed() {
+        val group = RequestGroup()
+        val stage = Runnable { }
+
+        group.pause()
+        group.execute(executors, pool, stage)
+        group.remove(stage)
+        group.resume()
+
+        assertTrue(queued.isEmpty())
+    }
+
+    @Test
+    fun destroyingGroupCancelsItsRequests() {
+        val registry = RequestRegistry()
+        val group = RequestGroup()
+        val handle = registry.register(RequestKey.forResource(null, 42, 96, 96), null, null)
+        group.add(handle)
+
+        group.destroy()
+
+        assertTrue(handle.isCancelled)
+        assertEquals(0, registry.inFlightCount)
+        assertTrue(group.isDestroyed)
+
+        // Late requests of a destroyed group are cancelled right away
+        val late = registry.register(RequestKey.forResource(null, 43, 96, 96), null, null)
+        group.add(late)
+        assertTrue(late.isCancelled)
+    }
+
+    @Test
+    fun destroyedGroupReleasesHeldWorkAndNeverPauses() {
+        val group = RequestGroup()
+        val stage = Runnable { }
+
+        group.pause()
+        group.execute(executors, pool, stage)
+        group.destroy()
+
+        // Work awaited by requests of other groups isn't left behind
+        assertEquals(listOf(stage), queued)
+        group.pause()
+        assertFalse(group.isPaused)
+    }
+}
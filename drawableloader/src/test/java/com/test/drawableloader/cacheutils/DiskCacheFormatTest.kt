@@ -0,0 +1,29 @@
+package com.test.drawableloader.cacheutils
+
+import android.graphics.Bitmap
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class DiskCacheFormatTest {
+
+    @Test
+    fun sourceKeepsFormatAndQualityOfSource() {
+        assertEquals(Bitmap.CompressFormat.JPEG, DiskCacheFormat.SOURCE.compressFormatOf("image/jpeg", false))
+        assertEquals(Bitmap.CompressFormat.PNG, DiskCacheFormat.SOURCE.compressFormatOf("image/png", false))
+        assertEquals(Bitmap.CompressFormat.PNG, DiskCacheFormat.SOURCE.compressFormatOf("image/webp", true))
+        assertEquals(100, DiskCacheFormat.SOURCE.qualityOf(100))
+    }
+
+    @Test
+    fun compactStoresOpaqueBitmapsAsJpeg() {
+        assertEquals(Bitmap.CompressFormat.JPEG, DiskCacheFormat.COMPACT.compressFormatOf("image/png", false))
+        assertEquals(DiskCacheFormat.COMPACT_QUALITY, DiskCacheFormat.COMPACT.qualityOf(100))
+        assertEquals(60, DiskCacheFormat.COMPACT.qualityOf(60))
+    }
+
+    @Test
+    fun compactKeepsTransparencyAsPng() {
+        assertEquals(Bitmap.CompressFormat.PNG, DiskCacheFormat.COMPACT.compressFormatOf("image/png", true))
+        assertEquals(Bitmap.CompressFormat.PNG, DiskCacheFormat.COMPACT.compressFormatOf("image/jpeg", true))
+    }
+}
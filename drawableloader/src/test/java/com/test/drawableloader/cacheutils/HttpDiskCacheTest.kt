@@ -0,0 +1,121 @@
+package com.test.drawableloader.cacheutils
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.net.InetSocketAddress
+import java.net.URL
+import java.nio.file.Files
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class HttpDiskCacheTest {
+
+    private val body = ByteArray(64 * 1024) { it.toByte() }
+    private val requests = AtomicInteger()
+    private val conditionalRequests = AtomicInteger()
+    private lateinit var server: HttpServer
+    private lateinit var directory: File
+    private lateinit var diskCache: HttpDiskCache
+
+    @Volatile
+    private var cacheControl = "no-cache"
+
+    @Volatile
+    private var responseGate: CountDownLatch? = null
+
+    @Before
+    fun setUp() {
+        server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/img.png") { exchange -> respond(exchange) }
+        server.executor = Executors.newCachedThreadPool()
+        server.start()
+        directory = Files.createTempDirectory("http").toFile()
+        diskCache = HttpDiskCache(directory, 1024 * 1024)
+    }
+
+    @After
+    fun tearDown() {
+        server.stop(0)
+        directory.deleteRecursively()
+    }
+
+    @Test
+    fun responseIsStreamedToDiskAndServedFromIt() {
+        cacheControl = "max-age=600"
+
+        assertArrayEquals(body, read())
+        assertArrayEquals(body, read())
+
+        assertEquals(1, requests.get())
+        assertEquals(1, diskCache.downloadCount)
+    }
+
+    @Test
+    fun staleResponseIsRevalidatedWithoutDownload() {
+        assertArrayEquals(body, read())
+        assertArrayEquals(body, read())
+
+        assertEquals(2, requests.get())
+        assertEquals(1, conditionalRequests.get())
+        assertEquals(1, diskCache.downloadCount)
+        assertEquals(1, diskCache.notModifiedCount)
+    }
+
+    @Test
+    fun staleResponseIsServedWhenServerIsDown() {
+        assertArrayEquals(body, read())
+        server.stop(0)
+
+        assertArrayEquals(body, read())
+    }
+
+    @Test
+    fun concurrentRequestsShareDownload() {
+        val gate = CountDownLatch(1)
+        responseGate = gate
+        val pool = Executors.newFixedThreadPool(4)
+        val results = (1..4).map { pool.submit<ByteArray> { read() } }
+
+        // Wait for every request to be merged before the server answers
+        while (diskCache.coalescedCount < 3) {
+            Thread.sleep(5)
+        }
+        gate.countDown()
+        results.forEach { assertArrayEquals(body, it.get(5, TimeUnit.SECONDS)) }
+        pool.shutdown()
+
+        assertEquals(1, requests.get())
+        assertEquals(3, diskCache.coalescedCount)
+    }
+
+    private fun read(): ByteArray {
+        return diskCache.open(URL("http://127.0.0.1:${server.address.port}/img.png")).use { it.readBytes() }
+    }
+
+    private fun respond(exchange: HttpExchange) {
+        requests.incrementAndGet()
+        responseGate?.await(5, TimeUnit.SECONDS)
+        exchange.responseHeaders.add("Cache-Control", cacheControl)
+        if (exchange.requestHeaders.getFirst("If-None-Match") == ETAG) {
+            conditionalRequests.incrementAndGet()
+            exchange.sendResponseHeaders(304, -1)
+        } else {
+            exchange.responseHeaders.add("ETag", ETAG)
+            exchange.sendResponseHeaders(200, body.size.toLong())
+            exchange.responseBody.write(body)
+        }
+        exchange.close()
+    }
+
+    private companion object {
+        const val ETAG = "\"v1\""
+    }
+}
@@ -0,0 +1,79 @@
+package com.test.drawableloader.cacheutils
+
+import android.graphics.Bitmap
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+
+class RawBitmapFileTest {
+
+    @Test
+    fun headerRoundTrips() {
+        val buffer = ByteBuffer.allocate(RawBitmapFile.HEADER_SIZE)
+        RawBitmapFile.Header(120, 80, RawBitmapFile.configCode(Bitmap.Config.RGB_565), 240, 420, false)
+            .writeTo(buffer)
+        buffer.flip()
+
+        val header = RawBitmapFile.Header.readFrom(buffer)!!
+
+        assertEquals(120, header.width)
+        assertEquals(80, header.height)
+        assertEquals(Bitmap.Config.RGB_565, RawBitmapFile.configOf(header.config))
+        assertEquals(240, header.stride)
+        assertEquals(420, header.density)
+        assertFalse(header.hasAlpha)
+        assertEquals(240L * 80, header.pixelBytes())
+    }
+
+    @Test
+    fun headerWithRowsShorterThanWidthIsRejected() {
+        val buffer = ByteBuffer.allocate(RawBitmapFile.HEADER_SIZE)
+        RawBitmapFile.Header(120, 80, RawBitmapFile.configCode(Bitmap.Config.ARGB_8888), 120, 0, true)
+            .writeTo(buffer)
+        buffer.flip()
+
+        assertNull(RawBitmapFile.Header.readFrom(buffer))
+    }
+
+    @Test
+    fun compressedImagesAreNotRaw() {
+        val png = byteArrayOf(0x89.toByte(), 'P'.toByte(), 'N'.toByte(), 'G'.toByte(), 0x0D, 0x0A, 0x1A, 0x0A) +
+            ByteArray(64)
+
+        assertFalse(isRaw(png))
+    }
+
+    @Test
+    fun truncatedRawFileIsNotRaw() {
+        assertTrue(isRaw(rawFile(pixelBytes = 64)))
+        assertFalse(isRaw(rawFile(pixelBytes = 16)))
+    }
+
+    @Test
+    fun hardwareBitmapsHaveNoRawConfig() {
+        assertEquals(0, RawBitmapFile.configCode(Bitmap.Config.HARDWARE))
+        assertEquals(0, RawBitmapFile.configCode(null))
+    }
+
+    // Header of a 4x4 ARGB_8888 Bitmap, followed by pixelBytes bytes of pixels
+    private fun rawFile(pixelBytes: Int): ByteArray {
+        val buffer = ByteBuffer.allocate(RawBitmapFile.HEADER_SIZE + pixelBytes)
+        RawBitmapFile.Header(4, 4, RawBitmapFile.configCode(Bitmap.Config.ARGB_8888), 16, 0, true).writeTo(buffer)
+        return buffer.array()
+    }
+
+    private fun isRaw(bytes: ByteArray): Boolean {
+        val file = File.createTempFile("raw", ".0")
+        try {
+            file.writeBytes(bytes)
+            return RandomAccessFile(file, "r").use { RawBitmapFile.isRaw(it.channel) }
+        } finally {
+            file.delete()
+        }
+    }
+}
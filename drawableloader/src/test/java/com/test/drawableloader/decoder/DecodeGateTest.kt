@@ -0,0 +1,57 @@
+package com.test.drawableloader.decoder
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class DecodeGateTest {
+
+    @Test
+    fun reservesWithinLimit() {
+        val gate = DecodeGate(100)
+
+        assertTrue(gate.reserve(60, 10))
+        assertTrue(gate.reserve(40, 10))
+        assertEquals(100L, gate.reservedBytes)
+        assertEquals(0, gate.waitCount)
+    }
+
+    @Test
+    fun oversizedReservationAdmittedWhenIdle() {
+        val gate = DecodeGate(100)
+
+        assertTrue(gate.reserve(500, 10))
+        assertEquals(500L, gate.peakReservedBytes)
+    }
+
+    @Test
+    fun reservationOverLimitTimesOut() {
+        val gate = DecodeGate(100)
+        gate.reserve(80, 10)
+
+        assertFalse(gate.reserve(40, 10))
+        assertEquals(1, gate.timeoutCount)
+        assertEquals(80L, gate.reservedBytes)
+    }
+
+    @Test
+    fun releaseWakesWaitingReservation() {
+        val gate = DecodeGate(100)
+        gate.reserve(80, 10)
+        val admitted = CountDownLatch(1)
+
+        Thread {
+            if (gate.reserve(40, 0)) {
+                admitted.countDown()
+            }
+        }.start()
+        assertFalse(admitted.await(50, TimeUnit.MILLISECONDS))
+
+        gate.release(80)
+        assertTrue(admitted.await(1, TimeUnit.SECONDS))
+        assertEquals(40L, gate.reservedBytes)
+    }
+}
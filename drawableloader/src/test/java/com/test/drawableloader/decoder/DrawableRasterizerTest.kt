@@ -0,0 +1,57 @@
+package com.test.drawableloader.decoder
+
+import android.util.TypedValue
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class DrawableRasterizerTest {
+
+    @Test
+    fun vectorIsDrawnAtRequiredSizeNotIntrinsicOne() {
+        // 24dp icon shown in a 192px view
+        assertArrayEquals(
+            intArrayOf(192, 192, 192, 192),
+            DrawableRasterizer.rasterSize(72, 72, 192, 192, ScaleMode.NONE)
+        )
+    }
+
+    @Test
+    fun fitKeepsAspectRatio() {
+        assertArrayEquals(
+            intArrayOf(200, 100, 200, 100),
+            DrawableRasterizer.rasterSize(100, 50, 200, 200, ScaleMode.FIT_INSIDE)
+        )
+    }
+
+    @Test
+    fun centerCropFillsThenCrops() {
+        assertArrayEquals(
+            intArrayOf(200, 200, 400, 200),
+            DrawableRasterizer.rasterSize(100, 50, 200, 200, ScaleMode.CENTER_CROP)
+        )
+    }
+
+    @Test
+    fun shapeWithoutIntrinsicSizeFillsRequiredSize() {
+        assertArrayEquals(
+            intArrayOf(300, 120, 300, 120),
+            DrawableRasterizer.rasterSize(-1, -1, 300, 120, ScaleMode.NONE)
+        )
+        assertNull(DrawableRasterizer.rasterSize(-1, -1, 0, 0, ScaleMode.NONE))
+    }
+
+    @Test
+    fun xmlResourcesAreDetectedByFileName() {
+        val vector = TypedValue()
+        vector.string = "res/drawable/ic_launcher_background.xml"
+        val png = TypedValue()
+        png.string = "res/drawable-xxhdpi-v4/img.png"
+
+        assertTrue(DrawableRasterizer.isXmlDrawable(vector))
+        assertFalse(DrawableRasterizer.isXmlDrawable(png))
+        assertFalse(DrawableRasterizer.isXmlDrawable(TypedValue()))
+    }
+}
@@ -0,0 +1,47 @@
+package com.test.drawableloader.decoder
+
+import android.graphics.Bitmap
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class HeapBudgetTest {
+
+    @Test
+    fun estimateUsesSampledSizeAndConfig() {
+        assertEquals(4000L * 3000 * 4, HeapBudget.estimateBytes(4000, 3000, 1, Bitmap.Config.ARGB_8888))
+        assertEquals(1000L * 750 * 2, HeapBudget.estimateBytes(4000, 3000, 4, Bitmap.Config.RGB_565))
+    }
+
+    @Test
+    fun estimateRoundsSampledSizeUp() {
+        assertEquals(2L * 2 * 4, HeapBudget.estimateBytes(3, 3, 2, Bitmap.Config.ARGB_8888))
+    }
+
+    @Test
+    fun decodeFitsBudget() {
+        // 12MB at 2
+        assertTrue(HeapBudget.fits(4000, 3000, 2, Bitmap.Config.ARGB_8888, 12_000_000L))
+    }
+
+    @Test
+    fun decodeOverBudgetDoesNotFit() {
+        assertFalse(HeapBudget.fits(4000, 3000, 1, Bitmap.Config.ARGB_8888, 5_000_000L))
+    }
+
+    @Test
+    fun headroomLeavesLowMemoryThreshold() {
+        assertEquals(300L, HeapBudget.headroomBytes(500L, 200L))
+        assertEquals(0L, HeapBudget.headroomBytes(100L, 200L))
+    }
+
+    @Test
+    fun cancelledReservationGivesUpWaiting() {
+        val gate = DecodeGate(100)
+        gate.reserve(80, 10)
+
+        assertFalse(HeapBudget.reserve(gate, 40) { true })
+        assertEquals(80L, gate.reservedBytes)
+    }
+}
@@ -0,0 +1,98 @@
+package com.test.drawableloader.decoder
+
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+class OpaqueDetectorTest {
+
+    @Test
+    fun jpegIsOpaque() {
+        assertTrue(OpaqueDetector.isOpaque(ByteArrayInputStream(ByteArray(0)), "image/jpeg"))
+    }
+
+    @Test
+    fun rgbPngIsOpaque() {
+        assertTrue(isOpaque(png(2), "image/png"))
+    }
+
+    @Test
+    fun rgbaPngIsNotOpaque() {
+        assertFalse(isOpaque(png(6), "image/png"))
+    }
+
+    @Test
+    fun rgbPngWithTransparencyChunkIsNotOpaque() {
+        assertFalse(isOpaque(png(2, "tRNS"), "image/png"))
+    }
+
+    @Test
+    fun palettePngIsNotOpaque() {
+        assertFalse(isOpaque(png(3), "image/png"))
+    }
+
+    @Test
+    fun truncatedPngIsNotOpaque() {
+        assertFalse(isOpaque(png(2).copyOf(20), "image/png"))
+    }
+
+    @Test
+    fun webpAlphaFlagIsRead() {
+        assertTrue(isOpaque(webp("VP8 ", 0), "image/webp"))
+        assertTrue(isOpaque(webp("VP8X", 0), "image/webp"))
+        assertFalse(isOpaque(webp("VP8X", 0x10), "image/webp"))
+    }
+
+    @Test
+    fun unknownFormatIsNotOpaque() {
+        assertFalse(isOpaque(png(2), "image/gif"))
+    }
+
+    private fun isOpaque(bytes: ByteArray, mimeType: String): Boolean {
+        return OpaqueDetector.isOpaque(ByteArrayInputStream(bytes), mimeType)
+    }
+
+    private fun png(colorType: Int, extraChunk: String? = null): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        val out = DataOutputStream(bytes)
+        out.writeInt(0x89504E47.toInt())
+        out.writeInt(0x0D0A1A0A)
+        out.writeInt(13)
+        out.writeBytes("IHDR")
+        out.writeInt(16)
+        out.writeInt(16)
+        out.writeByte(8)
+        out.writeByte(colorType)
+        out.write(ByteArray(3))
+        out.writeInt(0)
+        chunk(out, "gAMA", 4)
+        if (extraChunk != null) {
+            chunk(out, extraChunk, 6)
+        }
+        chunk(out, "IDAT", 10)
+        return bytes.toByteArray()
+    }
+
+    private fun chunk(out: DataOutputStream, type: String, length: Int) {
+        out.writeInt(length)
+        out.writeBytes(type)
+        out.write(ByteArray(length))
+        out.writeInt(0)
+    }
+
+    private fun webp(chunk: String, flags: Int): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        val out = DataOutputStream(bytes)
+        out.writeBytes("RIFF")
+        out.writeInt(0)
+        out.writeBytes("WEBP")
+        out.writeBytes(chunk)
+        out.writeInt(10)
+        out.writeByte(flags)
+        out.write(ByteArray(9))
+        return bytes.toByteArray()
+    }
+}
@@ -0,0 +1,49 @@
+package com.test.drawableloader.decoder
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class ScaleModeTest {
+
+    @Test
+    fun noneKeepsSourceSize() {
+        assertSize(1000, 800, ScaleMode.NONE.decodeSize(1000, 800, 300, 300))
+    }
+
+    @Test
+    fun fitInsideMatchesLimitingSide() {
+        assertSize(300, 240, ScaleMode.FIT_INSIDE.decodeSize(1000, 800, 300, 300))
+        assertSize(300, 240, ScaleMode.FIT_INSIDE.finalSize(300, 240, 300, 300))
+    }
+
+    @Test
+    fun centerCropFillsThenCrops() {
+        val decodeSize = ScaleMode.CENTER_CROP.decodeSize(1000, 800, 300, 300)
+
+        assertSize(375, 300, decodeSize)
+        assertSize(300, 300, ScaleMode.CENTER_CROP.finalSize(decodeSize[0], decodeSize[1], 300, 300))
+    }
+
+    @Test
+    fun exactEndsAtRequiredSize() {
+        assertSize(300, 100, ScaleMode.EXACT.finalSize(375, 300, 300, 100))
+    }
+
+    @Test
+    fun unconstrainedSideFollowsAspectRatio() {
+        assertSize(500, 400, ScaleMode.FIT_INSIDE.decodeSize(1000, 800, 500, 0))
+        assertSize(250, 200, ScaleMode.CENTER_CROP.decodeSize(1000, 800, 0, 200))
+    }
+
+    @Test
+    fun smallImagesAreNotUpscaled() {
+        assertSize(200, 100, ScaleMode.FIT_INSIDE.decodeSize(200, 100, 400, 400))
+        assertSize(200, 100, ScaleMode.CENTER_CROP.decodeSize(200, 100, 400, 400))
+    }
+
+    private fun assertSize(width: Int, height: Int, size: IntArray) {
+        assertEquals(2, size.size)
+        assertEquals("width", width.toLong(), size[0].toLong())
+        assertEquals("height", height.toLong(), size[1].toLong())
+    }
+}
@@ -0,0 +1,41 @@
+package com.test.drawableloader.preload
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PreloadWindowTest {
+
+    @Test
+    fun preloadsPositionsAfterVisibleOnes() {
+        val window = PreloadWindow(4)
+
+        assertEquals(6 until 10, window.next(0, 5, 100, true))
+    }
+
+    @Test
+    fun scrollingForwardOnlyPreloadsNewPositions() {
+        val window = PreloadWindow(4)
+        window.next(0, 5, 100, true)
+
+        assertEquals(10 until 11, window.next(1, 6, 100, true))
+        assertTrue(window.next(1, 6, 100, true).isEmpty())
+    }
+
+    @Test
+    fun windowStopsAtEndOfList() {
+        val window = PreloadWindow(4)
+
+        assertEquals(8 until 10, window.next(2, 7, 10, true))
+        assertTrue(window.next(4, 9, 10, true).isEmpty())
+    }
+
+    @Test
+    fun scrollingBackPreloadsPositionsBeforeVisibleOnes() {
+        val window = PreloadWindow(4)
+        window.next(20, 25, 100, true)
+
+        assertEquals(16 until 20, window.next(20, 25, 100, false))
+        assertEquals(15 until 16, window.next(19, 24, 100, false))
+    }
+}
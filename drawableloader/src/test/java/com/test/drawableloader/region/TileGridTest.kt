@@ -0,0 +1,48 @@
+package com.test.drawableloader.region
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class TileGridTest {
+    private val grid = TileGrid("res_42_d480", 8000, 6000, 256)
+
+    @Test
+    fun levelMatchesZoom() {
+        assertEquals(1, grid.sampleSizeFor(1f))
+        assertEquals(1, grid.sampleSizeFor(0.6f))
+        assertEquals(2, grid.sampleSizeFor(0.5f))
+        assertEquals(8, grid.sampleSizeFor(0.125f))
+    }
+
+    @Test
+    fun visibleTileCountDependsOnViewportOnly() {
+        // 1024x768 screen showing the whole image at 1/8 or a part of it at full resolution
+        val zoomedOut = grid.visibleTiles(0, 0, 8000, 6000, 8)
+        val zoomedIn = grid.visibleTiles(2048, 2048, 2048 + 1024, 2048 + 768, 1)
+
+        assertEquals(4 * 3, zoomedOut.size)
+        assertEquals(4 * 3, zoomedIn.size)
+    }
+
+    @Test
+    fun viewportIsClippedToImage() {
+        val tiles = grid.visibleTiles(-500, -500, 100, 100, 1)
+
+        assertEquals(listOf(TileKey("res_42_d480", 1, 0, 0)), tiles)
+        assertTrue(grid.visibleTiles(9000, 0, 9500, 100, 1).isEmpty())
+    }
+
+    @Test
+    fun lastTileBoundsAreClippedToImage() {
+        val last = TileKey("res_42_d480", 4, 7, 5)
+
+        assertArrayEquals(intArrayOf(7168, 5120, 8000, 6000), grid.tileBounds(last))
+    }
+
+    @Test
+    fun tilesOfDifferentLevelsHaveDifferentKeys() {
+        assertTrue(TileKey("res_42_d480", 1, 0, 0).cacheKey != TileKey("res_42_d480", 2, 0, 0).cacheKey)
+    }
+}
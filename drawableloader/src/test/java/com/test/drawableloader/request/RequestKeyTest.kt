@@ -0,0 +1,74 @@
+package com.test.drawableloader.request
+
+import android.graphics.Bitmap
+import com.test.drawableloader.decoder.ConfigPolicy
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class RequestKeyTest {
+
+    @Test
+    fun differentSizesOfSameResourceDoNotCollide() {
+        val thumbnail = RequestKey.forResource(null, 42, 96, 96)
+        val fullScreen = RequestKey.forResource(null, 42, 1080, 1920)
+
+        assertNotEquals(thumbnail.cacheKey, fullScreen.cacheKey)
+        assertEquals(thumbnail.variantGroup, fullScreen.variantGroup)
+    }
+
+    @Test
+    fun configIsPartOfKey() {
+        val argb = RequestKey.forResource(null, 42, 96, 96)
+        val rgb = RequestKey.forResource(null, 42, 96, 96, Bitmap.Config.RGB_565)
+
+        assertNotEquals(argb.cacheKey, rgb.cacheKey)
+        assertNotEquals(argb.variantGroup, rgb.variantGroup)
+    }
+
+    @Test
+    fun autoConfigPolicyIsPartOfKey() {
+        val argb = RequestKey.forResource(null, 42, 96, 96)
+        val auto = RequestKey.forResource(null, 42, 96, 96, configPolicy = ConfigPolicy.AUTO)
+
+        assertNotEquals(argb.cacheKey, auto.cacheKey)
+        assertFalse(auto.canBeServedBy(argb, 200, 200))
+    }
+
+    @Test
+    fun cacheKeyIsValidDiskKey() {
+        val key = RequestKey("file:///sdcard/Pictures/some image.png", 100, 100)
+
+        assertTrue(key.cacheKey.matches(Regex("[A-z0-9%._-]{1,127}")))
+    }
+
+    @Test
+    fun largerVariantServesSmallerRequest() {
+        val small = RequestKey.forResource(null, 42, 96, 96)
+        val large = RequestKey.forResource(null, 42, 400, 400)
+
+        assertTrue(small.canBeServedBy(large, 500, 500))
+        assertFalse(large.canBeServedBy(small, 120, 120))
+    }
+
+    @Test
+    fun fullResolutionVariantServesAnyRequest() {
+        val original = RequestKey.forResourceSampled(null, 42, 1)
+        val measured = RequestKey.forResource(null, 42, 4000, 4000)
+        val sampled = RequestKey.forResourceSampled(null, 42, 4)
+
+        assertTrue(measured.canBeServedBy(original, 640, 480))
+        assertTrue(sampled.canBeServedBy(original, 640, 480))
+        assertFalse(original.canBeServedBy(sampled, 160, 120))
+    }
+
+    @Test
+    fun otherSourcesNeverServeRequest() {
+        val request = RequestKey.forResource(null, 42, 96, 96)
+        val otherResource = RequestKey.forResource(null, 43, 400, 400)
+
+        assertFalse(request.canBeServedBy(otherResource, 500, 500))
+    }
+}
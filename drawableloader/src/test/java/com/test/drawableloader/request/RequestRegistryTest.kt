@@ -0,0 +1,159 @@
+package com.test.drawableloader.request
+
+import android.graphics.Bitmap
+import com.test.drawableloader.asynctasks.AsyncDecodeTask
+import com.test.drawableloader.listeners.OnBitmapRenderFailed
+import com.test.drawableloader.listeners.OnBitmapRendered
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class RequestRegistryTest {
+
+    private val key = RequestKey.forResource(null, 42, 96, 96)
+
+    @Test
+    fun concurrentRequestsShareOneDecode() {
+        val registry = RequestRegistry()
+        var rendered = 0
+        val listener = object : OnBitmapRendered {
+            override fun onBitmapRendered(bitmap: Bitmap?) {
+                rendered++
+            }
+        }
+
+        assertTrue(registry.register(key, listener, null).startsDecode)
+        assertFalse(registry.register(key, listener, null).startsDecode)
+        assertFalse(registry.register(key, listener, null).startsDecode)
+        registry.renderedListener(key).onBitmapRendered(null)
+
+        assertEquals(3, rendered)
+        assertEquals(1L, registry.decodeCount)
+        assertEquals(2L, registry.coalescedCount)
+        assertEquals(0, registry.inFlightCount)
+    }
+
+    @Test
+    fun failureIsDeliveredToEveryRequest() {
+        val registry = RequestRegistry()
+        val failures = mutableListOf<Exception?>()
+        val listener = object : OnBitmapRenderFailed {
+            override fun onBitmapRenderFailed(e: Exception?) {
+                failures.add(e)
+            }
+        }
+        val error = IllegalArgumentException()
+
+        registry.register(key, null, listener)
+        registry.register(key, null, listener)
+        registry.failedListener(key).onBitmapRenderFailed(error)
+
+        assertEquals(listOf<Exception?>(error, error), failures)
+    }
+
+    @Test
+    fun newDecodeStartsOnceJobCompleted() {
+        val registry = RequestRegistry()
+
+        assertTrue(registry.register(key, null, null).startsDecode)
+        registry.renderedListener(key).onBitmapRendered(null)
+
+        assertTrue(registry.register(key, null, null).startsDecode)
+        assertEquals(2L, registry.decodeCount)
+        assertEquals(0L, registry.coalescedCount)
+    }
+
+    @Test
+    fun differentKeysAreNotMerged() {
+        val registry = RequestRegistry()
+
+        assertTrue(registry.register(key, null, null).startsDecode)
+        assertTrue(registry.register(RequestKey.forResource(null, 42, 400, 400), null, null).startsDecode)
+        assertEquals(2, registry.inFlightCount)
+    }
+
+    @Test
+    fun cancelledRequestIsNotDelivered() {
+        val registry = RequestRegistry()
+        var rendered = 0
+        val listener = object : OnBitmapRendered {
+            override fun onBitmapRendered(bitmap: Bitmap?) {
+                rendered++
+            }
+        }
+
+        registry.register(key, listener, null)
+        registry.register(key, listener, null).cancel()
+        registry.renderedListener(key).onBitmapRendered(null)
+
+        assertEquals(1, rendered)
+        assertEquals(0L, registry.cancelledCount)
+    }
+
+    @Test
+    fun jobIsCancelledWhenEveryRequestIsCancelled() {
+        val registry = RequestRegistry()
+        val task = NoOpTask()
+
+        val first = registry.register(key, null, null)
+        val second = registry.register(key, null, null)
+        registry.attachTask(key, task)
+
+        first.cancel()
+        assertFalse(task.isCancelled)
+        second.cancel()
+        assertTrue(task.isCancelled)
+        assertEquals(1L, registry.cancelledCount)
+        assertEquals(0, registry.inFlightCount)
+    }
+
+    @Test
+    fun taskAttachedAfterCancellationIsCancelled() {
+        val registry = RequestRegistry()
+        val task = NoOpTask()
+
+        registry.register(key, null, null).cancel()
+        registry.attachTask(key, task)
+
+        assertTrue(task.isCancelled)
+    }
+
+    @Test
+    fun cancellingRequestCancelsLinkedRequests() {
+        val registry = RequestRegistry()
+        val preview = RequestKey.forResource(null, 42, 12, 12)
+        val previewTask = NoOpTask()
+        val fullHandle = registry.register(key, null, null)
+        val previewHandle = registry.register(preview, null, null)
+        registry.attachTask(preview, previewTask)
+
+        fullHandle.link(previewHandle)
+        fullHandle.cancel()
+
+        assertTrue(previewHandle.isCancelled)
+        assertTrue(previewTask.isCancelled)
+        assertEquals(0, registry.inFlightCount)
+    }
+
+    private class NoOpTask : AsyncDecodeTask() {
+        override fun loadFromCache(): Bitmap? = null
+
+        override fun decode(): Bitmap? = null
+
+        override fun onPostExecute(bitmap: Bitmap?) {}
+    }
+
+    @Test
+    fun jobIsInFlightWhileAnyRequestWaits() {
+        val registry = RequestRegistry()
+        val batch = registry.register(key, null, null)
+        val single = registry.register(key, null, null)
+
+        batch.cancel()
+        assertTrue(registry.isInFlight(key))
+
+        single.cancel()
+        assertFalse(registry.isInFlight(key))
+    }
+}
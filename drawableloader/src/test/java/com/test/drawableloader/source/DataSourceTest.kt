@@ -0,0 +1,105 @@
+package com.test.drawableloader.source
+
+import com.test.drawableloader.DrawableLoader
+import com.test.drawableloader.request.RequestKey
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.File
+import java.nio.ByteBuffer
+
+class DataSourceTest {
+
+    @Test
+    fun bytesAreKeyedByContent() {
+        val first = ByteArraySource(byteArrayOf(1, 2, 3))
+        val same = ByteArraySource(byteArrayOf(0, 1, 2, 3), 1, 3)
+        val other = ByteArraySource(byteArrayOf(3, 2, 1))
+
+        assertEquals(first.key, same.key)
+        assertNotEquals(first.key, other.key)
+        assertEquals("url_42", ByteArraySource(byteArrayOf(1), key = "url_42").key)
+    }
+
+    @Test
+    fun bufferStreamRewindsWithoutTouchingBuffer() {
+        val buffer = ByteBuffer.allocateDirect(4)
+        buffer.put(byteArrayOf(9, 1, 2, 3))
+        buffer.position(1)
+        val source = ByteBufferSource(buffer)
+
+        val input = source.open()
+        assertTrue(input.markSupported())
+        input.mark(Int.MAX_VALUE)
+        assertEquals(1, input.read())
+        input.reset()
+        val read = ByteArray(3)
+        assertEquals(3, input.read(read, 0, 3))
+        assertArrayEquals(byteArrayOf(1, 2, 3), read)
+        assertEquals(-1, input.read())
+
+        assertEquals(1, buffer.position())
+        assertEquals(ByteArraySource(byteArrayOf(1, 2, 3)).key, source.key)
+    }
+
+    @Test
+    fun rewrittenFileChangesKey() {
+        val file = File.createTempFile("source", ".png")
+        try {
+            file.writeBytes(byteArrayOf(1, 2, 3))
+            val before = FileSource(file).key
+            file.writeBytes(byteArrayOf(1, 2, 3, 4))
+
+            assertNotEquals(before, FileSource(file).key)
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test
+    fun fileKeyIsReadOncePerSource() {
+        val file = File.createTempFile("source", ".png")
+        try {
+            file.writeBytes(byteArrayOf(1, 2, 3))
+            val source = FileSource(file)
+            val before = source.key
+            file.writeBytes(byteArrayOf(1, 2, 3, 4))
+
+            // Merging and caching under the same key, even if the file changes in between
+            assertEquals(before, source.key)
+        } finally {
+            file.delete()
+        }
+    }
+
+    @Test
+    fun resourceSourceSharesResourceKey() {
+        assertEquals(
+            RequestKey.forResource(null, 42, 96, 96),
+            RequestKey.forSource(ResourceSource(null, 42), 96, 96)
+        )
+        assertNotEquals(
+            RequestKey.forSource(FileSource(File("/img.png")), 96, 96).variantGroup,
+            RequestKey.forSource(FileSource(File("/other.png")), 96, 96).variantGroup
+        )
+    }
+
+    @Test
+    fun builtInFetchersHandleCommonModels() {
+        val file = File("/img.png")
+        val source = ByteArraySource(byteArrayOf(1))
+
+        assertTrue(DrawableLoader.sourceOf(file) is FileSource)
+        assertTrue(DrawableLoader.sourceOf(byteArrayOf(1)) is ByteArraySource)
+        assertTrue(DrawableLoader.sourceOf(ByteBuffer.wrap(byteArrayOf(1))) is ByteBufferSource)
+        assertSame(source, DrawableLoader.sourceOf(source))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun unknownModelIsRejected() {
+        DrawableLoader.sourceOf(Any())
+    }
+}
@@ -0,0 +1,46 @@
+package com.test.drawableloader.target
+
+import android.view.ViewGroup
+import android.widget.ImageView
+import com.test.drawableloader.decoder.ScaleMode
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class ImageViewTargetTest {
+
+    @Test
+    fun laidOutSizeWinsOverLayoutParams() {
+        assertEquals(180, ImageViewTarget.targetSize(200, 20, ViewGroup.LayoutParams.MATCH_PARENT, 1920))
+        assertEquals(180, ImageViewTarget.targetSize(200, 20, 500, 1920))
+    }
+
+    @Test
+    fun fixedLayoutParamsAreKnownBeforeLayout() {
+        assertEquals(96, ImageViewTarget.targetSize(0, 0, 96, 1920))
+        assertEquals(1, ImageViewTarget.targetSize(0, 40, 32, 1920))
+    }
+
+    @Test
+    fun wrappingViewsAreBoundedByScreen() {
+        assertEquals(1920, ImageViewTarget.targetSize(0, 0, ViewGroup.LayoutParams.WRAP_CONTENT, 1920))
+    }
+
+    @Test
+    fun matchParentWaitsForLayout() {
+        assertEquals(0, ImageViewTarget.targetSize(0, 0, ViewGroup.LayoutParams.MATCH_PARENT, 1920))
+        assertEquals(0, ImageViewTarget.targetSize(0, 0, 0, 1920))
+    }
+
+    @Test
+    fun viewsScalingImageGetExactDecodes() {
+        assertEquals(ScaleMode.CENTER_CROP, ImageViewTarget.scaleModeOf(ImageView.ScaleType.CENTER_CROP))
+        assertEquals(ScaleMode.FIT_INSIDE, ImageViewTarget.scaleModeOf(ImageView.ScaleType.FIT_CENTER))
+        assertEquals(ScaleMode.FIT_INSIDE, ImageViewTarget.scaleModeOf(ImageView.ScaleType.FIT_XY))
+    }
+
+    @Test
+    fun viewsShowingImageUnscaledKeepSampling() {
+        assertEquals(ScaleMode.NONE, ImageViewTarget.scaleModeOf(ImageView.ScaleType.CENTER))
+        assertEquals(ScaleMode.NONE, ImageViewTarget.scaleModeOf(ImageView.ScaleType.MATRIX))
+    }
+}
@@ -0,0 +1,51 @@
+package com.test.drawableloader.transform
+
+import android.graphics.Color
+import com.test.drawableloader.request.RequestKey
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotEquals
+import org.junit.Test
+
+class TransformationsTest {
+
+    @Test
+    fun keyFollowsChainOrder() {
+        val crop = CenterCrop()
+        val rounded = RoundedCorners(16)
+
+        assertEquals("", Transformations.keyOf(emptyList()))
+        assertEquals("centercrop-rounded_16", Transformations.keyOf(listOf(crop, rounded)))
+        assertNotEquals(
+            Transformations.keyOf(listOf(crop, rounded)),
+            Transformations.keyOf(listOf(rounded, crop))
+        )
+    }
+
+    @Test
+    fun parametersArePartOfKey() {
+        assertNotEquals(RoundedCorners(8).key, RoundedCorners(16).key)
+        assertNotEquals(Tint(Color.RED).key, Tint(Color.BLUE).key)
+        assertEquals(Tint(Color.RED).key, Tint(Color.RED).key)
+    }
+
+    @Test
+    fun transformedBitmapsAreCachedApart() {
+        val plain = RequestKey.forResource(null, 42, 96, 96)
+        val rounded = RequestKey.forResource(null, 42, 96, 96, transformations = listOf(RoundedCorners(16)))
+        val roundedAgain = RequestKey.forResource(null, 42, 96, 96, transformations = listOf(RoundedCorners(16)))
+
+        assertNotEquals(plain.cacheKey, rounded.cacheKey)
+        assertNotEquals(plain.variantGroup, rounded.variantGroup)
+        assertEquals(rounded.cacheKey, roundedAgain.cacheKey)
+    }
+
+    @Test
+    fun transformedRequestIsNotServedByOtherSize() {
+        val small = RequestKey.forResource(null, 42, 96, 96, transformations = listOf(RoundedCorners(16)))
+        val big = RequestKey.forResource(null, 42, 512, 512, transformations = listOf(RoundedCorners(16)))
+
+        // Same radius on a bigger Bitmap looks rounder once scaled down
+        assertFalse(small.canBeServedBy(big, 512, 512))
+    }
+}